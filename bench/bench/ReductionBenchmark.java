@@ -0,0 +1,145 @@
+package bench;
+
+import parser.Parser;
+import interpreter.Interpreter;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of Interpreter.doReduction() on generated
+ * workloads. Each benchmark operation is a single reduction, so the reported
+ * score is in reductions per second, and the gc.alloc.rate.norm figure given
+ * by running with '-prof gc' is the number of bytes allocated per reduction.
+ *
+ * Every workload is built so that it never stops reducing: a replicated
+ * process on a 'tick' channel restarts each piece of work once it completes.
+ * The interpreter therefore stays in a steady state for the whole trial,
+ * without being rebuilt inside the measured code.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReductionBenchmark {
+
+    /**
+     * The shape of program to reduce:
+     *     fanIn - size senders repeatedly send to a single replicated
+     *         receiver on one channel
+     *     replicatedServers - size copies of examples/nonterminating, each on
+     *         its own channel
+     *     deepLambda - a sender whose payload takes size beta reductions to
+     *         evaluate
+     *     wideSum - a choice between size branches, each of which can
+     *         communicate
+     */
+    @Param({ "fanIn", "replicatedServers", "deepLambda", "wideSum" })
+    public String workload;
+
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    private Interpreter interpreter;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String source = ReductionBenchmark.source(this.workload, this.size);
+        this.interpreter = Interpreter.fromTranslation(Parser.parseStream(
+                new ByteArrayInputStream(
+                        source.getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Benchmark
+    public boolean doReduction() {
+        if(!this.interpreter.doReduction()) {
+            throw new IllegalStateException("Workload " + this.workload +
+                    " stopped reducing");
+        }
+        return true;
+    }
+
+    /**
+     * Generate the source of a workload program.
+     * @param workload the name of the workload
+     * @param size the size parameter of the workload
+     * @return the source code of the program
+     */
+    public static String source(String workload, int size) {
+        StringBuilder procs = new StringBuilder();
+        switch(workload) {
+
+            case "fanIn":
+                procs.append("! c ( x ) . 0");
+                for(int i = 0; i < size; i++) {
+                    String tick = "t" + ReductionBenchmark.name(i);
+                    procs.append(" | ! " + tick + " ( u ) . c < u > . " +
+                            tick + " < u > . 0 | " + tick + " < v > . 0");
+                }
+                break;
+
+            case "replicatedServers":
+                for(int i = 0; i < size; i++) {
+                    String chnl = "x" + ReductionBenchmark.name(i);
+                    procs.append((i == 0 ? "" : " | ") + "! " + chnl +
+                            " < y > . " + chnl + " ( y ) . 0 | " + chnl +
+                            " ( y ) . 0");
+                }
+                break;
+
+            case "deepLambda":
+                StringBuilder payload = new StringBuilder("u");
+                for(int i = 0; i < size; i++) {
+                    payload.insert(0, "(\\a.a) (").append(")");
+                }
+                procs.append("! t ( u ) . c < " + payload + " > . t < u > . " +
+                        "0 | t < v > . 0 | ! c ( x ) . 0");
+                break;
+
+            case "wideSum":
+                StringBuilder branches = new StringBuilder();
+                for(int i = 0; i < size; i++) {
+                    String chnl = "c" + ReductionBenchmark.name(i);
+                    branches.append((i == 0 ? "" : " + ") + chnl +
+                            " < u > . t < u > . 0");
+                    procs.append("! " + chnl + " ( x ) . 0 | ");
+                }
+                // Sums must have at least two branches
+                if(size < 2) { branches.append(" + 0"); }
+                procs.append("! t ( u ) . { " + branches + " } | t < v > . 0");
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown workload: " +
+                        workload);
+        }
+        return "[ " + procs + " ]";
+    }
+
+    /*
+     * Generate a distinct suffix for each index, using only the letters that
+     * are allowed in names.
+     */
+    private static String name(int index) {
+        StringBuilder name = new StringBuilder("_");
+        do {
+            name.append((char) ('a' + index % 26));
+            index /= 26;
+        } while(index > 0);
+        return name.toString();
+    }
+}
@@ -0,0 +1,617 @@
+package interpreter;
+
+import syntax.*;
+import utils.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An alternative to the Interpreter, that runs a program as a collection of
+ * concurrent actors rather than by repeatedly choosing a reduction from
+ * central pools of processes.
+ *
+ * Every channel name has a Rendezvous, at which the processes waiting to
+ * communicate on that channel are parked. A process that becomes ready to
+ * communicate locks the rendezvous of each of its channels, and either takes
+ * a waiting partner from one of them or parks itself at all of them. Parked
+ * processes hold no thread, so a replicated server that is never used costs a
+ * single entry at a rendezvous, and the work done follows the channels that
+ * are active rather than the number of processes.
+ *
+ * Each communication is carried out by its own task, on a virtual thread if
+ * the JVM supports them and on a ForkJoinPool otherwise. The task evaluates
+ * the message, substitutes it into the receiver and starts the newly exposed
+ * processes, which either park or perform further communications.
+ *
+ * A run ends when no tasks remain, at which point no parked processes can
+ * communicate. Replicated processes that can perform an internal action could
+ * do so forever, and so are rejected. For the same reason, replicated senders
+ * are never made to communicate with replicated receivers.
+ */
+public final class ActorRuntime {
+
+    /*
+     * A process that is waiting to communicate. Its ports are the Sends and
+     * Receives in its term that are not under a prefix, a Tau or a Replicate,
+     * and whose channels are not restricted within the term. A replicated
+     * process is parked for ever, and its term is left unchanged each time it
+     * communicates. Any other process is taken by its first communication.
+     */
+    private static final class Process {
+
+        final PiTerm term;
+        final boolean replicated;
+        final ArrayList<PiTermComm> ports;
+        final AtomicBoolean taken;
+
+        Process(PiTerm term, boolean replicated) {
+            this.term = term;
+            this.replicated = replicated;
+            this.ports = new ArrayList<>();
+            this.taken = new AtomicBoolean(false);
+            ActorRuntime.collectPorts(term, this.ports);
+        }
+    }
+
+    /*
+     * An offer by a process to communicate through one of its ports.
+     */
+    private static final class Offer {
+
+        final Process owner;
+        final int port;
+
+        Offer(Process owner, int port) {
+            this.owner = owner;
+            this.port = port;
+        }
+    }
+
+    /*
+     * The offers waiting at a rendezvous with a particular arity.
+     */
+    private static final class Waiting {
+
+        final ArrayDeque<Offer> senders = new ArrayDeque<>();
+        final ArrayDeque<Offer> receivers = new ArrayDeque<>();
+        final ArrayList<Offer> replSenders = new ArrayList<>();
+        final ArrayList<Offer> replReceivers = new ArrayList<>();
+
+        /*
+         * Take an offer that can communicate with an offer from a sender or a
+         * receiver, replicated or otherwise. Non-replicated offers are taken
+         * in the order they arrived, skipping those whose owner has already
+         * been taken through another port. A replicated offer is chosen at
+         * random.
+         */
+        Offer takePartner(boolean sender, boolean replicated,
+                Random random) {
+            ArrayDeque<Offer> queue = sender ? this.receivers : this.senders;
+            while(!queue.isEmpty()) {
+                Offer offer = queue.poll();
+                if(offer.owner.taken.compareAndSet(false, true)) {
+                    return offer;
+                }
+            }
+            ArrayList<Offer> repl =
+                    sender ? this.replReceivers : this.replSenders;
+            if(replicated || repl.isEmpty()) { return null; }
+            return Utils.arbitraryElement(random, repl);
+        }
+
+        /*
+         * Leave an offer to be taken by a later partner.
+         */
+        void add(Offer offer, boolean sender) {
+            if(offer.owner.replicated) {
+                (sender ? this.replSenders : this.replReceivers).add(offer);
+            }
+            else {
+                (sender ? this.senders : this.receivers).add(offer);
+            }
+        }
+
+        /*
+         * Add the owners of the offers still waiting here to the given set.
+         */
+        void addOwnersTo(Set<Process> owners) {
+            for(Offer offer : this.senders) {
+                if(!offer.owner.taken.get()) { owners.add(offer.owner); }
+            }
+            for(Offer offer : this.receivers) {
+                if(!offer.owner.taken.get()) { owners.add(offer.owner); }
+            }
+            for(Offer offer : this.replSenders) { owners.add(offer.owner); }
+            for(Offer offer : this.replReceivers) { owners.add(offer.owner); }
+        }
+    }
+
+    /*
+     * The place where processes meet to communicate on a single channel.
+     */
+    private static final class Rendezvous {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final HashMap<Integer, Waiting> byArity = new HashMap<>();
+
+        Waiting waiting(int arity) {
+            return this.byArity.computeIfAbsent(arity, a -> new Waiting());
+        }
+    }
+
+    private final NameSupply names;
+    private final PiTerm term;
+
+    private final ConcurrentHashMap<Integer, Rendezvous> channels;
+    private final ConcurrentLinkedQueue<PiTerm> inert;
+    private final Set<Integer> boundNames;
+    private LambdaEvaluator evaluator;
+    private Random random;
+
+    private final ExecutorService executor;
+    private final AtomicLong pending;
+    private final CompletableFuture<Void> quiescent;
+    private final AtomicReference<RuntimeException> failure;
+    private final AtomicLong reductions;
+    private boolean started;
+
+    /**
+     * Construct a new ActorRuntime.
+     * @param term the PiTerm to run
+     * @param symbols the user's names, numbered by the integer names used for
+     * them in term
+     * @param nextAvailableName the value to use next time a fresh name is
+     * required
+     */
+    public ActorRuntime(PiTerm term, SymbolTable symbols,
+            int nextAvailableName) {
+
+        this.names = new NameSupply(symbols, nextAvailableName);
+        this.term = term;
+
+        this.channels = new ConcurrentHashMap<>();
+        this.inert = new ConcurrentLinkedQueue<>();
+        this.boundNames = ConcurrentHashMap.newKeySet();
+        this.evaluator = LambdaReducer.EVALUATOR;
+        this.random = new Random();
+
+        this.executor = ActorRuntime.newExecutor();
+        this.pending = new AtomicLong(0);
+        this.quiescent = new CompletableFuture<>();
+        this.failure = new AtomicReference<>();
+        this.reductions = new AtomicLong(0);
+        this.started = false;
+    }
+
+    /**
+     * Construct a new ActorRuntime from the given SyntaxTranslationResult.
+     * @param SyntaxTranslationResult the result of translating a source program
+     * into an interpretable program.
+     */
+    public static ActorRuntime fromTranslation(
+            Triple<PiTerm, SymbolTable, Integer> result) {
+
+        return new ActorRuntime(result.frst, result.scnd, result.thrd);
+    }
+
+    /**
+     * Choose how the expressions in messages are evaluated. By default, they
+     * are reduced by substitution with LambdaReducer. Must be called before
+     * run().
+     * @param evaluator the LambdaEvaluator to use
+     */
+    public void setEvaluator(LambdaEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Choose the source of the random numbers that decide which branch of a
+     * sum to commit to and which replicated partner to take. By default, it
+     * differs on every run. A seeded source makes these choices repeatable,
+     * though the order in which concurrent tasks meet may still vary. Must be
+     * called before run().
+     * @param random the source of random numbers
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Run the program until no further communication is possible. May only be
+     * called once.
+     * @return the number of reductions performed
+     */
+    public long run() {
+        if(this.started) {
+            throw new IllegalStateException("ActorRuntime.run() may only be " +
+                    "called once");
+        }
+        this.started = true;
+
+        this.submit(() -> this.start(this.term));
+        this.quiescent.join();
+        this.executor.shutdown();
+
+        if(this.failure.get() != null) { throw this.failure.get(); }
+        return this.reductions.get();
+    }
+
+    /*
+     * Run a task on the executor, keeping count of the tasks that have not
+     * finished so that the end of the run can be detected.
+     */
+    private void submit(Runnable task) {
+        this.pending.incrementAndGet();
+        this.executor.execute(() -> {
+            try {
+                task.run();
+            }
+            catch(RuntimeException e) {
+                this.failure.compareAndSet(null, e);
+            }
+            finally {
+                if(this.pending.decrementAndGet() == 0) {
+                    this.quiescent.complete(null);
+                }
+            }
+        });
+    }
+
+    /*
+     * Start the given process, performing its internal actions and parking the
+     * processes it exposes that wait to communicate.
+     */
+    private void start(PiTerm term) {
+        ArrayDeque<PiTerm> toStart = new ArrayDeque<>();
+        toStart.push(term);
+
+        while(!toStart.isEmpty()) {
+            PiTerm next = toStart.pop();
+
+            if(next instanceof Send || next instanceof Receive) {
+                this.park(new Process(next, false));
+            }
+            else if(next instanceof Parallel) {
+                Parallel para = (Parallel) next;
+                for(int i = 0; i < para.arity(); i++) {
+                    toStart.push(para.subterm(i));
+                }
+            }
+            else if(next instanceof Restrict) {
+                toStart.push(this.extrude((Restrict) next));
+            }
+            else if(next instanceof Tau) {
+                this.reductions.incrementAndGet();
+                toStart.push(((Tau) next).subterm());
+            }
+            else if(next instanceof NDSum) {
+                NDSum sum = (NDSum) next;
+
+                // Commit to a branch that has an internal action if there is
+                // one, as that action can always be performed
+                if(PiTerm.hasInternalAction(sum)) {
+                    toStart.push(Utils.arbitraryElement(this.random,
+                            Utils.filter(
+                                (PiTerm tm) -> PiTerm.hasInternalAction(tm),
+                                sum.subterms())));
+                }
+                else {
+                    this.parkOrKeep(sum, false);
+                }
+            }
+            else if(next instanceof Replicate) {
+                PiTerm subterm = ((Replicate) next).subterm();
+
+                if(subterm instanceof Replicate) {
+                    toStart.push(subterm);
+                }
+                else if(subterm instanceof Parallel) {
+                    Parallel para = (Parallel) subterm;
+                    for(int i = 0; i < para.arity(); i++) {
+                        toStart.push(new Replicate(para.subterm(i)));
+                    }
+                }
+                else if(PiTerm.hasInternalAction(subterm)) {
+                    throw new IllegalArgumentException("Replicated processes " +
+                            "with internal actions cannot be run by the " +
+                            "actor runtime");
+                }
+                else {
+                    this.parkOrKeep(subterm, true);
+                }
+            }
+            else {
+                throw new IllegalArgumentException("Non-standard PiTerm " +
+                        "found in program");
+            }
+        }
+    }
+
+    /*
+     * Park the given term as a process if it has ports, or otherwise keep it
+     * only so that it is printed.
+     */
+    private void parkOrKeep(PiTerm term, boolean replicated) {
+        Process process = new Process(term, replicated);
+        if(!process.ports.isEmpty()) {
+            this.park(process);
+        }
+        else {
+            this.inert.add(replicated ? new Replicate(term) : term);
+        }
+    }
+
+    /*
+     * Find partners for the given process at the rendezvous of its channels,
+     * and park it at all of them if it remains able to communicate. A
+     * replicated process communicates with every non-replicated partner that
+     * is waiting, and is always parked. Rendezvous are locked in order of
+     * channel name, so that processes with several channels cannot deadlock.
+     */
+    private void park(Process process) {
+        TreeMap<Integer, Rendezvous> locked = new TreeMap<>();
+        for(PiTermComm port : process.ports) {
+            locked.computeIfAbsent(port.chnl(), chnl -> this.channels
+                    .computeIfAbsent(chnl, c -> new Rendezvous()));
+        }
+
+        ArrayList<Pair<Offer, Offer>> matches = new ArrayList<>();
+        for(Rendezvous rendezvous : locked.values()) {
+            rendezvous.lock.lock();
+        }
+        try {
+            boolean taken = false;
+            for(int i = 0; i < process.ports.size() && !taken; i++) {
+                PiTermComm port = process.ports.get(i);
+                boolean sender = port instanceof Send;
+                Waiting waiting = locked.get(port.chnl())
+                        .waiting(ActorRuntime.arity(port));
+
+                Offer partner;
+                while(!taken && (partner = waiting.takePartner(sender,
+                        process.replicated, this.random)) != null) {
+
+                    Offer offer = new Offer(process, i);
+                    matches.add(sender ? Pair.make(offer, partner) :
+                            Pair.make(partner, offer));
+                    taken = !process.replicated;
+                }
+            }
+            if(!taken) {
+                for(int i = 0; i < process.ports.size(); i++) {
+                    PiTermComm port = process.ports.get(i);
+                    locked.get(port.chnl())
+                            .waiting(ActorRuntime.arity(port))
+                            .add(new Offer(process, i), port instanceof Send);
+                }
+            }
+        }
+        finally {
+            for(Rendezvous rendezvous : locked.descendingMap().values()) {
+                rendezvous.lock.unlock();
+            }
+        }
+
+        for(Pair<Offer, Offer> match : matches) {
+            this.submit(() -> this.communicate(match.frst, match.scnd));
+        }
+    }
+
+    /*
+     * Pass a message from the given sending offer to the given receiving
+     * offer, and start the processes that are exposed by doing so.
+     */
+    private void communicate(Offer sendOffer, Offer receiveOffer) {
+        ArrayList<PiTerm> exposed = new ArrayList<>();
+        Send send = (Send) this.expose(sendOffer, exposed);
+        Receive rece = (Receive) this.expose(receiveOffer, exposed);
+
+        exposed.add(send.subterm());
+        exposed.add(Interpreter.exchange(send, rece, this.evaluator));
+        this.reductions.incrementAndGet();
+
+        for(PiTerm term : exposed) { this.start(term); }
+    }
+
+    /*
+     * Obtain the port of the given offer. Restrictions above the port are
+     * extruded, and the processes in parallel with the port are added to
+     * exposed. Other branches of sums above the port are discarded. The term
+     * of the owner is left unchanged, so a replicated owner can go on
+     * offering it.
+     */
+    private PiTermComm expose(Offer offer, ArrayList<PiTerm> exposed) {
+        PiTermComm port = this.expose(offer.owner.term, offer.port, exposed);
+        if(port == null) {
+            throw new IllegalStateException("Port of a parked process could " +
+                    "not be found");
+        }
+        return port;
+    }
+
+    /*
+     * Find the port with the given number within the given term, extruding
+     * the Restricts passed through on the way. Ports are numbered by the
+     * names that are free before any of the restrictions are opened, so the
+     * term is searched as it is given, while the port and the exposed
+     * processes are taken from the term as it is opened.
+     */
+    private PiTermComm expose(PiTerm term, int port,
+            ArrayList<PiTerm> exposed) {
+
+        // The term with the Restricts passed through so far opened
+        PiTerm opened = term;
+
+        // The number of the first port in term
+        int first = 0;
+
+        while(true) {
+            if(term instanceof PiTermComm) {
+                PiTermComm comm = (PiTermComm) term;
+                if(first == port && !Term.isBound(comm.chnl())) {
+                    return (PiTermComm) opened;
+                }
+                exposed.add(opened);
+                return null;
+            }
+            else if(term instanceof Restrict) {
+                opened = this.extrude((Restrict) opened);
+                term = ((Restrict) term).subterm();
+            }
+            else if(term instanceof Parallel) {
+                Parallel para = (Parallel) term;
+                Parallel openedPara = (Parallel) opened;
+                int found = -1;
+                int foundFirst = first;
+                for(int i = 0; i < para.arity(); i++) {
+                    int count = ActorRuntime.countPorts(para.subterm(i));
+                    if(found < 0 && port >= first && port < first + count) {
+                        found = i;
+                        foundFirst = first;
+                    }
+                    else {
+                        exposed.add(openedPara.subterm(i));
+                    }
+                    first += count;
+                }
+                if(found < 0) { return null; }
+                term = para.subterm(found);
+                opened = openedPara.subterm(found);
+                first = foundFirst;
+            }
+            else if(term instanceof NDSum) {
+                NDSum sum = (NDSum) term;
+                int found = -1;
+                for(int i = 0; i < sum.arity() && found < 0; i++) {
+                    int count = ActorRuntime.countPorts(sum.subterm(i));
+                    if(port >= first && port < first + count) {
+                        found = i;
+                    }
+                    else {
+                        first += count;
+                    }
+                }
+                if(found < 0) { return null; }
+                term = sum.subterm(found);
+                opened = ((NDSum) opened).subterm(found);
+            }
+            else {
+                exposed.add(opened);
+                return null;
+            }
+        }
+    }
+
+    /*
+     * Give the name bound by the given Restrict a fresh free name, extruding
+     * its scope to the top level, and return the opened subterm.
+     */
+    private PiTerm extrude(Restrict rest) {
+        int newName = this.names.lease(rest.boundName());
+        this.boundNames.add(newName);
+        return PiReducer.open(rest, newName);
+    }
+
+    /*
+     * Collect the ports of the given term into the given list, in the order
+     * in which they are numbered. Channels restricted within the term are
+     * exactly the bound ones.
+     */
+    private static void collectPorts(PiTerm term,
+            ArrayList<PiTermComm> ports) {
+
+        ArrayDeque<PiTerm> stack = new ArrayDeque<>();
+        stack.push(term);
+        while(!stack.isEmpty()) {
+            PiTerm next = stack.pop();
+            if(next instanceof PiTermComm) {
+                PiTermComm comm = (PiTermComm) next;
+                if(!Term.isBound(comm.chnl())) { ports.add(comm); }
+            }
+            else if(next instanceof Restrict) {
+                stack.push(((Restrict) next).subterm());
+            }
+            else if(next instanceof PiTermManySub) {
+
+                // Push in reverse, so that subterms are numbered left to right
+                PiTermManySub ptms = (PiTermManySub) next;
+                for(int i = ptms.arity() - 1; i >= 0; i--) {
+                    stack.push(ptms.subterm(i));
+                }
+            }
+        }
+    }
+
+    private static int countPorts(PiTerm term) {
+        ArrayList<PiTermComm> ports = new ArrayList<>();
+        ActorRuntime.collectPorts(term, ports);
+        return ports.size();
+    }
+
+    private static int arity(PiTermComm comm) {
+        return comm instanceof Send ?
+                ((Send) comm).arity() : ((Receive) comm).arity();
+    }
+
+    /*
+     * Create an executor that runs each task on a new virtual thread if the
+     * JVM supports them, or a ForkJoinPool otherwise.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(ReflectiveOperationException e) {
+            return new ForkJoinPool();
+        }
+    }
+
+    /**
+     * Obtain a String representation of the processes parked in this runtime.
+     * Should not be called while the runtime is running.
+     * @return a String representation of this runtime
+     */
+    @Override
+    public String toString() {
+        LinkedHashSet<Process> parked = new LinkedHashSet<>();
+        for(Rendezvous rendezvous : this.channels.values()) {
+            for(Waiting waiting : rendezvous.byArity.values()) {
+                waiting.addOwnersTo(parked);
+            }
+        }
+
+        ArrayList<String> termStrings = new ArrayList<>();
+        for(Process process : parked) {
+            termStrings.add((process.replicated ? "! " : "") +
+                    process.term.toStringWithNameMap(this.names::printable));
+        }
+        for(PiTerm term : this.inert) {
+            termStrings.add(term.toStringWithNameMap(this.names::printable));
+        }
+        String procs = termStrings.isEmpty() ? "" : termStrings.remove(0);
+        while(!termStrings.isEmpty()) {
+            procs += " | " + termStrings.remove(0);
+        }
+        String scope = "";
+        for(Integer i : this.boundNames) {
+            scope += "new " + this.names.printable(i) + " in ";
+        }
+        return scope + (procs.equals("") ? "0" : "[ " + procs + " ]");
+    }
+}
@@ -0,0 +1,498 @@
+package interpreter;
+
+import syntax.*;
+import utils.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Holds the top-level Send and Receive terms of an Interpreter, along with the
+ * bodies of replicated Sends and Receives, keyed on channel name and grouped
+ * by arity. A Send and a Receive can only communicate if they agree on both,
+ * so a communicating pair is always found within a single Channel rather than
+ * by comparing every sender with every receiver.
+ *
+ * For each kind of pairing (senders with receivers, senders with replicated
+ * receivers and receivers with replicated senders), the number of pairs
+ * available on each Channel is kept in a FenwickTree. This allows a pair to be
+ * chosen uniformly at random from all enabled pairs of that kind in
+ * logarithmic time in the number of channels.
+ *
+ * If the Scheduler is ordered, the Channels with enabled pairs of each kind
+ * are also kept sorted on the lowest key of a non-replicated member of such a
+ * pair, so that the pair with the lowest key can be found in logarithmic time
+ * too.
+ */
+final class ChannelIndex {
+
+    // Indices of the kinds of pairing, in the keys of a Channel and in the
+    // ordered sets of Channels
+    private static final int COMMUNICATIONS = 0;
+    private static final int REPL_RECEPTIONS = 1;
+    private static final int REPL_SENDS = 2;
+
+    // The key of a Channel with no pairs of a kind
+    private static final long NONE = Long.MAX_VALUE;
+
+    /*
+     * The processes waiting on a single channel name with a single arity.
+     */
+    private static final class Channel {
+
+        final Integer name;
+        final int arity;
+        final int slot;
+
+        // The key of this Channel in each ordered set of Channels, or NONE if
+        // it has no pairs of that kind
+        final long[] keys = { NONE, NONE, NONE };
+
+        // Position in the communicating list, or -1 if absent
+        int communicatingIndex = -1;
+
+        final Pool<Send> senders = new Pool<>();
+        final Pool<Receive> receivers = new Pool<>();
+        final Pool<Send> replSenders = new Pool<>();
+        final Pool<Receive> replReceivers = new Pool<>();
+
+        Channel(Integer name, int arity, int slot) {
+            this.name = name;
+            this.arity = arity;
+            this.slot = slot;
+        }
+
+        boolean isEmpty() {
+            return this.senders.isEmpty() && this.receivers.isEmpty() &&
+                    this.replSenders.isEmpty() && this.replReceivers.isEmpty();
+        }
+    }
+
+    // Channel name -> arity -> Channel
+    private HashMap<Integer, HashMap<Integer, Channel>> channels;
+
+    // Channels by slot, and the slots of discarded channels for reuse
+    private ArrayList<Channel> slots;
+    private ArrayList<Integer> freeSlots;
+
+    // Channels with at least one sender and at least one receiver
+    private ArrayList<Channel> communicating;
+
+    // Number of enabled pairs of each kind, by channel slot
+    private FenwickTree communications;
+    private FenwickTree replReceptions;
+    private FenwickTree replSends;
+
+    // If the Scheduler is ordered, the Channels with pairs of each kind,
+    // sorted on their keys for that kind. Otherwise null.
+    private ArrayList<TreeSet<Channel>> ordered;
+
+    // Gives members their keys, and makes the choices between them
+    private Scheduler scheduler;
+
+    /**
+     * Construct a new, empty ChannelIndex.
+     * @param scheduler the Scheduler that chooses between pairs
+     */
+    ChannelIndex(Scheduler scheduler) {
+        this.channels = new HashMap<>();
+        this.slots = new ArrayList<>();
+        this.freeSlots = new ArrayList<>();
+        this.communicating = new ArrayList<>();
+        this.communications = new FenwickTree(16);
+        this.replReceptions = new FenwickTree(16);
+        this.replSends = new FenwickTree(16);
+        this.scheduler = scheduler;
+        if(scheduler.isOrdered()) {
+            this.ordered = new ArrayList<>();
+            for(int pairing = 0; pairing < 3; pairing++) {
+                final int p = pairing;
+                this.ordered.add(new TreeSet<Channel>(Comparator
+                        .comparingLong((Channel chan) -> chan.keys[p])
+                        .thenComparingInt(chan -> chan.slot)));
+            }
+        }
+    }
+
+    /**
+     * Add a top-level Send.
+     * @param send the Send to add
+     */
+    void add(Send send) {
+        Channel chan = this.channel(send.chnl(), send.arity());
+        chan.senders.add(send, this.scheduler.key(send));
+        this.reweigh(chan);
+    }
+
+    /**
+     * Add a top-level Receive.
+     * @param rece the Receive to add
+     */
+    void add(Receive rece) {
+        Channel chan = this.channel(rece.chnl(), rece.arity());
+        chan.receivers.add(rece, this.scheduler.key(rece));
+        this.reweigh(chan);
+    }
+
+    /**
+     * Add the body of a replicated Send, unless it is already present.
+     * @param send the body of the replicated Send
+     * @return true if the Send was added, false if it was already present
+     */
+    boolean addReplicated(Send send) {
+        Channel chan = this.channel(send.chnl(), send.arity());
+        if(chan.replSenders.contains(send)) { return false; }
+        chan.replSenders.add(Pool.own(send), this.scheduler.key(send));
+        this.reweigh(chan);
+        return true;
+    }
+
+    /**
+     * Add the body of a replicated Receive, unless it is already present.
+     * @param rece the body of the replicated Receive
+     * @return true if the Receive was added, false if it was already present
+     */
+    boolean addReplicated(Receive rece) {
+        Channel chan = this.channel(rece.chnl(), rece.arity());
+        if(chan.replReceivers.contains(rece)) { return false; }
+        chan.replReceivers.add(Pool.own(rece), this.scheduler.key(rece));
+        this.reweigh(chan);
+        return true;
+    }
+
+    /**
+     * Determine if the given Send is a top-level member of this index.
+     * @param send the Send to look for
+     * @return true if the Send is present, false otherwise
+     */
+    boolean contains(Send send) {
+        Channel chan = this.lookup(send.chnl(), send.arity());
+        return chan != null && chan.senders.contains(send);
+    }
+
+    /**
+     * Determine if the given Receive is a top-level member of this index.
+     * @param rece the Receive to look for
+     * @return true if the Receive is present, false otherwise
+     */
+    boolean contains(Receive rece) {
+        Channel chan = this.lookup(rece.chnl(), rece.arity());
+        return chan != null && chan.receivers.contains(rece);
+    }
+
+    /**
+     * Determine if the given Send is the body of a replicated Send in this
+     * index.
+     * @param send the Send to look for
+     * @return true if the Send is present, false otherwise
+     */
+    boolean containsReplicated(Send send) {
+        Channel chan = this.lookup(send.chnl(), send.arity());
+        return chan != null && chan.replSenders.contains(send);
+    }
+
+    /**
+     * Determine if the given Receive is the body of a replicated Receive in
+     * this index.
+     * @param rece the Receive to look for
+     * @return true if the Receive is present, false otherwise
+     */
+    boolean containsReplicated(Receive rece) {
+        Channel chan = this.lookup(rece.chnl(), rece.arity());
+        return chan != null && chan.replReceivers.contains(rece);
+    }
+
+    /**
+     * Remove a top-level Send. The Send must not have had its channel or
+     * arity changed since it was added.
+     * @param send the Send to remove
+     */
+    void remove(Send send) {
+        Channel chan = this.lookup(send.chnl(), send.arity());
+        if(chan == null || !chan.senders.remove(send)) {
+            throw new IllegalArgumentException("Tried to remove a Send " +
+                    "that is not in the ChannelIndex");
+        }
+        this.reweigh(chan);
+    }
+
+    /**
+     * Remove a top-level Receive. The Receive must not have had its channel
+     * or arity changed since it was added.
+     * @param rece the Receive to remove
+     */
+    void remove(Receive rece) {
+        Channel chan = this.lookup(rece.chnl(), rece.arity());
+        if(chan == null || !chan.receivers.remove(rece)) {
+            throw new IllegalArgumentException("Tried to remove a Receive " +
+                    "that is not in the ChannelIndex");
+        }
+        this.reweigh(chan);
+    }
+
+    /**
+     * Choose a pair of indexed terms that can communicate, one from each of
+     * the given pools. The pair is chosen uniformly at random, unless the
+     * Scheduler is ordered, in which case its non-replicated members have
+     * the lowest keys possible. Both pools must be indexed, and must be one
+     * of the pairings senders and receivers, senders and replicated
+     * receivers, or receivers and replicated senders, in either order.
+     * @param kind1 the pool of the first term in the returned pair
+     * @param kind2 the pool of the second term in the returned pair
+     * @return the chosen communicating pair, or empty if there are none
+     */
+    Optional<Pair<PiTerm, PiTerm>> chooseMatch(PoolKind kind1,
+            PoolKind kind2) {
+
+        // Put the sending pool first
+        if(kind2 == PoolKind.SENDERS || kind2 == PoolKind.REPL_SENDERS) {
+            return this.chooseMatch(kind2, kind1)
+                    .map(pair -> Pair.make(pair.scnd, pair.frst));
+        }
+
+        int pairing = ChannelIndex.pairing(kind1, kind2);
+        FenwickTree weights = this.weights(pairing);
+        if(weights.total() == 0) { return Optional.empty(); }
+
+        // Choose the Channel with the lowest key, or a Channel with
+        // probability proportional to its number of pairs
+        Channel chan = this.ordered != null ?
+                this.ordered.get(pairing).first() :
+                this.slots.get(weights.find(
+                        this.scheduler.choose(weights.total())));
+        return Optional.of(Pair.<PiTerm, PiTerm>make(
+                this.choose(this.members(chan, kind1)),
+                this.choose(this.members(chan, kind2))));
+    }
+
+    /**
+     * Determine if a member of one of the given pools can communicate with a
+     * member of the other, without making any choice.
+     * @param kind1 the first pool
+     * @param kind2 the second pool
+     * @return true if there is a pair that can communicate
+     */
+    boolean canMatch(PoolKind kind1, PoolKind kind2) {
+        boolean sendFirst =
+                kind1 == PoolKind.SENDERS || kind1 == PoolKind.REPL_SENDERS;
+        return this.weights(sendFirst ? ChannelIndex.pairing(kind1, kind2) :
+                ChannelIndex.pairing(kind2, kind1)).total() > 0;
+    }
+
+    /**
+     * Access the key of a member of one of the indexed pools.
+     * @param term the member
+     * @param kind the pool it is in
+     * @return the key it was added with
+     */
+    long key(PiTerm term, PoolKind kind) {
+        PiTermComm comm = (PiTermComm) term;
+        int arity = comm instanceof Send ?
+                ((Send) comm).arity() : ((Receive) comm).arity();
+        Channel chan = this.lookup(comm.chnl(), arity);
+        if(chan == null) {
+            throw new IllegalArgumentException("Tried to find the key of a " +
+                    "term that is not in the ChannelIndex");
+        }
+        return this.members(chan, kind).key(term);
+    }
+
+    /**
+     * Remove a maximal set of communicating Send and Receive pairs that share
+     * no process. Once this returns, no channel has both a sender and a
+     * receiver.
+     * @return the removed pairs
+     */
+    ArrayList<Pair<Send, Receive>> removeDisjointCommunications() {
+        ArrayList<Pair<Send, Receive>> pairs = new ArrayList<>();
+
+        // Copy the list, as reweighing removes channels from it
+        for(Channel chan : new ArrayList<>(this.communicating)) {
+            while(!(chan.senders.isEmpty() || chan.receivers.isEmpty())) {
+                Send send = this.choose(chan.senders);
+                Receive rece = this.choose(chan.receivers);
+                chan.senders.remove(send);
+                chan.receivers.remove(rece);
+                pairs.add(Pair.make(send, rece));
+            }
+            this.reweigh(chan);
+        }
+        return pairs;
+    }
+
+    /**
+     * Access the members of the given indexed pool on a single channel name
+     * with a single arity.
+     * @param name the channel name
+     * @param arity the arity
+     * @param kind the pool
+     * @return the members of the pool on that channel, or null if there are
+     * no terms of any pool on it
+     */
+    Pool<? extends PiTerm> members(Integer name, int arity, PoolKind kind) {
+        Channel chan = this.lookup(name, arity);
+        return chan == null ? null : this.members(chan, kind);
+    }
+
+    /**
+     * Enumerate all members of the given indexed pool. Intended for printing,
+     * not for searching.
+     * @param kind the pool to enumerate
+     * @return a new list of the members of the pool
+     */
+    ArrayList<PiTerm> all(PoolKind kind) {
+        ArrayList<PiTerm> all = new ArrayList<>();
+        for(Channel chan : this.slots) {
+            if(chan == null) { continue; }
+            for(PiTerm member : this.members(chan, kind)) { all.add(member); }
+        }
+        return all;
+    }
+
+    /*
+     * Choose a member of a non-empty pool: the one with the lowest key if the
+     * Scheduler is ordered, or one at random otherwise.
+     */
+    private <T extends PiTerm> T choose(Pool<T> pool) {
+        return this.ordered != null ?
+                pool.first() : pool.arbitraryMember(this.scheduler);
+    }
+
+    /*
+     * Access the list of members of the given pool on the given Channel.
+     */
+    private Pool<? extends PiTerm> members(Channel chan, PoolKind kind) {
+        switch(kind) {
+            case SENDERS:        return chan.senders;
+            case RECEIVERS:      return chan.receivers;
+            case REPL_SENDERS:   return chan.replSenders;
+            case REPL_RECEIVERS: return chan.replReceivers;
+            default:
+                throw new IllegalArgumentException("Pool " + kind + " is " +
+                        "not held in a ChannelIndex");
+        }
+    }
+
+    /*
+     * Find the Channel for the given name and arity, or null if there is none.
+     */
+    private Channel lookup(Integer name, int arity) {
+        HashMap<Integer, Channel> byArity = this.channels.get(name);
+        return byArity == null ? null : byArity.get(arity);
+    }
+
+    /*
+     * Find the Channel for the given name and arity, creating it if necessary.
+     */
+    private Channel channel(Integer name, int arity) {
+        Channel chan = this.lookup(name, arity);
+        if(chan == null) {
+            int slot;
+            if(this.freeSlots.isEmpty()) {
+                slot = this.slots.size();
+                this.slots.add(null);
+            }
+            else {
+                slot = this.freeSlots.remove(this.freeSlots.size() - 1);
+            }
+            chan = new Channel(name, arity, slot);
+            this.slots.set(slot, chan);
+            this.channels.computeIfAbsent(name, n -> new HashMap<>())
+                    .put(arity, chan);
+        }
+        return chan;
+    }
+
+    /*
+     * Find the kind of pairing between a sending pool and a receiving pool.
+     */
+    private static int pairing(PoolKind sending, PoolKind receiving) {
+        if(sending == PoolKind.SENDERS && receiving == PoolKind.RECEIVERS) {
+            return COMMUNICATIONS;
+        }
+        if(sending == PoolKind.SENDERS &&
+                receiving == PoolKind.REPL_RECEIVERS) {
+
+            return REPL_RECEPTIONS;
+        }
+        if(sending == PoolKind.REPL_SENDERS &&
+                receiving == PoolKind.RECEIVERS) {
+
+            return REPL_SENDS;
+        }
+        throw new IllegalArgumentException("ChannelIndex was given pools " +
+                "that cannot communicate");
+    }
+
+    /*
+     * Access the numbers of enabled pairs of a kind, by channel slot.
+     */
+    private FenwickTree weights(int pairing) {
+        return pairing == COMMUNICATIONS ? this.communications :
+                pairing == REPL_RECEPTIONS ? this.replReceptions :
+                this.replSends;
+    }
+
+    /*
+     * Recompute the pair counts for a Channel after its members change, and
+     * discard the Channel if it has become empty.
+     */
+    private void reweigh(Channel chan) {
+        long comms = (long) chan.senders.size() * chan.receivers.size();
+        this.communications.set(chan.slot, comms);
+        if(comms > 0 && chan.communicatingIndex < 0) {
+            chan.communicatingIndex = this.communicating.size();
+            this.communicating.add(chan);
+        }
+        else if(comms == 0 && chan.communicatingIndex >= 0) {
+            Channel last =
+                    this.communicating.remove(this.communicating.size() - 1);
+            if(last != chan) {
+                this.communicating.set(chan.communicatingIndex, last);
+                last.communicatingIndex = chan.communicatingIndex;
+            }
+            chan.communicatingIndex = -1;
+        }
+
+        this.replReceptions.set(chan.slot,
+                (long) chan.senders.size() * chan.replReceivers.size());
+        this.replSends.set(chan.slot,
+                (long) chan.receivers.size() * chan.replSenders.size());
+
+        if(this.ordered != null) {
+            boolean hasSenders = !chan.senders.isEmpty();
+            boolean hasReceivers = !chan.receivers.isEmpty();
+            this.reorder(chan, COMMUNICATIONS, hasSenders && hasReceivers ?
+                    Math.min(chan.senders.firstKey(),
+                            chan.receivers.firstKey()) : NONE);
+            this.reorder(chan, REPL_RECEPTIONS,
+                    hasSenders && !chan.replReceivers.isEmpty() ?
+                    chan.senders.firstKey() : NONE);
+            this.reorder(chan, REPL_SENDS,
+                    hasReceivers && !chan.replSenders.isEmpty() ?
+                    chan.receivers.firstKey() : NONE);
+        }
+
+        if(chan.isEmpty()) {
+            HashMap<Integer, Channel> byArity = this.channels.get(chan.name);
+            byArity.remove(chan.arity);
+            if(byArity.isEmpty()) { this.channels.remove(chan.name); }
+            this.slots.set(chan.slot, null);
+            this.freeSlots.add(chan.slot);
+        }
+    }
+
+    /*
+     * Give a Channel a new key for one kind of pairing, moving it within the
+     * ordered set of Channels for that kind.
+     */
+    private void reorder(Channel chan, int pairing, long key) {
+        if(chan.keys[pairing] == key) { return; }
+        TreeSet<Channel> set = this.ordered.get(pairing);
+        if(chan.keys[pairing] != NONE) { set.remove(chan); }
+        chan.keys[pairing] = key;
+        if(key != NONE) { set.add(chan); }
+    }
+}
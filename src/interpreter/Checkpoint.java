@@ -0,0 +1,345 @@
+package interpreter;
+
+import syntax.*;
+import utils.IntSet;
+import utils.SymbolTable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The state of an Interpreter at one moment, which can be written to a file
+ * and read back to resume interpreting from that moment (see
+ * Interpreter.checkpoint() and Interpreter.resume()).
+ *
+ * Taking a Checkpoint copies only references to the processes in the pools,
+ * which are immutable, and the Interpreter's own few names, so it costs time
+ * in proportion to the number of processes rather than their size, and the
+ * Interpreter can go on reducing as soon as it has been taken. The processes
+ * are encoded and written by write(), which may be called from another thread
+ * while the Interpreter goes on, and only finds out how the leased names in
+ * them are printed then. Meanwhile the Checkpoint keeps alive the processes
+ * that the Interpreter has since done away with.
+ *
+ * A checkpoint file is made up of a header of eleven ints - a magic number, a
+ * version, the first name the NameSupply could lease and an upper bound on
+ * those it has leased, the number of the user's names and of the printable
+ * versions of leased names, their total length in bytes, the number of leased
+ * names in use, of roots with printed names and of names brought into scope,
+ * and the number of ints encoding the processes - followed by the lengths of
+ * the user's names and printable versions, the names themselves in ASCII
+ * padded to a whole number of ints, each leased name with the user's name at
+ * its root and its printable version (or -1), each root with the number of
+ * names printed with it, the names brought into scope, and the code of the
+ * processes (see TermCode). The processes are encoded as a Parallel of two
+ * Parallels: the processes in the pools, the replicated ones under a
+ * Replicate, and the terms in the middle of a reduction. All ints are
+ * big-endian.
+ */
+public final class Checkpoint {
+
+    private static final int MAGIC = 0x4A415043;
+    private static final int VERSION = 1;
+    private static final int HEADER = 11;
+
+    // Supplies the names of the Interpreter, and a copy of the user's names
+    // and the bound on the names leased when this was taken
+    final NameSupply names;
+    private final String[] userNames;
+    private final int upperBound;
+
+    // The names brought into scope at the top level, in order
+    final int[] boundNames;
+
+    // The processes in the pools, the bodies of the replicated ones in the
+    // pools, and the actingTerms
+    final ArrayList<PiTerm> processes;
+    final ArrayList<PiTerm> replicated;
+    final ArrayList<PiTerm> acting;
+
+    /**
+     * Construct a new Checkpoint, copying the user's names as they stand.
+     * The terms given must not be changed afterwards.
+     * @param names the NameSupply of the Interpreter
+     * @param boundNames the names brought into scope at the top level
+     * @param processes the processes in the pools, other than the replicated
+     * ones, and perhaps Replicates
+     * @param replicated the bodies of the replicated processes in the pools
+     * @param acting the actingTerms, in the order of a Pair of them
+     */
+    Checkpoint(NameSupply names, int[] boundNames,
+            ArrayList<PiTerm> processes, ArrayList<PiTerm> replicated,
+            ArrayList<PiTerm> acting) {
+
+        SymbolTable symbols = names.userNames();
+        this.names = names;
+        this.userNames = new String[symbols.size()];
+        for(int i = 0; i < this.userNames.length; i++) {
+            this.userNames[i] = symbols.name(i);
+        }
+        this.upperBound = names.upperBound();
+        this.boundNames = boundNames;
+        this.processes = processes;
+        this.replicated = replicated;
+        this.acting = acting;
+    }
+
+    /**
+     * Determine if a file is a checkpoint.
+     * @param path the path of the file
+     * @return true if the file begins as a checkpoint does, false otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCheckpoint(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path)) {
+            ByteBuffer start = ByteBuffer.allocate(4);
+            while(start.hasRemaining() && channel.read(start) >= 0) {}
+            return !start.hasRemaining() && start.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Write this Checkpoint to a file, replacing anything in it. The file is
+     * written in full under another name first, and then moved into place,
+     * so that if writing fails the file is left as it was. Safe to call from
+     * any thread, while the Interpreter this was taken from goes on.
+     * @param path the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+
+        // Encode the processes, and find the leased names in use
+        ArrayList<PiTerm> pools = new ArrayList<>(this.processes);
+        for(PiTerm body : this.replicated) { pools.add(new Replicate(body)); }
+        ArrayList<PiTerm> parts = new ArrayList<>(2);
+        parts.add(new Parallel(pools));
+        parts.add(new Parallel(this.acting));
+        IntBuffer code = TermCode.encode(new Parallel(parts));
+
+        IntSet used = new IntSet();
+        TermCode.addNames(code, used);
+        for(int name : this.boundNames) { used.add(name); }
+        IntSet leasedSet = new IntSet();
+        int firstLeasable = this.names.firstLeasable();
+        used.forEach(name -> {
+            if(name >= firstLeasable) { leasedSet.add(name); }
+        });
+        int[] leased = new int[leasedSet.size()];
+        for(int i = 0; i < leased.length; i++) { leased[i] = leasedSet.get(i); }
+        String[] roots = new String[leased.length];
+        String[] printed = new String[leased.length];
+        HashMap<String, Integer> counts =
+                this.names.describe(leased, roots, printed);
+
+        // Gather the strings, the user's names first
+        HashMap<String, Integer> symbols = new HashMap<>();
+        ArrayList<byte[]> strings = new ArrayList<>();
+        for(String name : this.userNames) {
+            symbols.put(name, strings.size());
+            strings.add(name.getBytes(StandardCharsets.US_ASCII));
+        }
+        int[] printedIndex = new int[leased.length];
+        for(int i = 0; i < leased.length; i++) {
+            printedIndex[i] = printed[i] == null ? -1 :
+                    strings.size() - this.userNames.length;
+            if(printed[i] != null) {
+                strings.add(printed[i].getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        int stringBytes = 0;
+        for(byte[] string : strings) { stringBytes += string.length; }
+
+        long size = 4L * (HEADER + strings.size() +
+                Checkpoint.words(stringBytes) + 3 * leased.length +
+                2 * counts.size() + this.boundNames.length) +
+                4L * code.remaining();
+        if(size > Integer.MAX_VALUE) {
+            throw new IOException("The state is too large to checkpoint");
+        }
+        ByteBuffer image = ByteBuffer.allocate((int) size);
+        image.putInt(MAGIC).putInt(VERSION).putInt(firstLeasable)
+                .putInt(this.upperBound).putInt(this.userNames.length)
+                .putInt(strings.size() - this.userNames.length)
+                .putInt(stringBytes).putInt(leased.length)
+                .putInt(counts.size()).putInt(this.boundNames.length)
+                .putInt(code.remaining());
+        for(byte[] string : strings) { image.putInt(string.length); }
+        int namesStart = image.position();
+        for(byte[] string : strings) { image.put(string); }
+        image.position(namesStart + 4 * Checkpoint.words(stringBytes));
+        for(int i = 0; i < leased.length; i++) {
+            image.putInt(leased[i]).putInt(Checkpoint.symbol(symbols, roots[i]))
+                    .putInt(printedIndex[i]);
+        }
+        for(Map.Entry<String, Integer> count : counts.entrySet()) {
+            image.putInt(Checkpoint.symbol(symbols, count.getKey()))
+                    .putInt(count.getValue());
+        }
+        for(int name : this.boundNames) { image.putInt(name); }
+        image.asIntBuffer().put(code);
+        image.position(0);
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            while(image.hasRemaining()) { channel.write(image); }
+            channel.force(false);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read a Checkpoint from a file, with a new NameSupply that carries on
+     * from the one it was taken with.
+     * @param path the path of the file
+     * @return the Checkpoint
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    static Checkpoint read(Path path) throws IOException {
+        ByteBuffer image;
+        try(FileChannel channel = FileChannel.open(path)) {
+            long size = channel.size();
+            if(size < 4 * HEADER || size > Integer.MAX_VALUE ||
+                    size % 4 != 0) {
+                throw Checkpoint.damaged(path);
+            }
+            image = ByteBuffer.allocate((int) size);
+            while(image.hasRemaining() && channel.read(image) >= 0) {}
+            if(image.hasRemaining()) { throw Checkpoint.damaged(path); }
+            image.flip();
+        }
+
+        IntBuffer ints = image.asIntBuffer();
+        int[] header = new int[HEADER];
+        ints.get(header);
+        if(header[0] != MAGIC) {
+            throw new IOException(path + " is not a japi checkpoint");
+        }
+        if(header[1] != VERSION) {
+            throw new IOException(path + " was written by a different " +
+                    "version of japi");
+        }
+        int firstLeasable = header[2];
+        int upperBound = header[3];
+        int userCount = header[4];
+        int printedCount = header[5];
+        int stringBytes = header[6];
+        int leasedCount = header[7];
+        int rootCount = header[8];
+        int boundCount = header[9];
+        int length = header[10];
+        for(int i = 4; i < HEADER; i++) {
+            if(header[i] < 0) { throw Checkpoint.damaged(path); }
+        }
+        long stringCount = (long) userCount + printedCount;
+        if(HEADER + stringCount + Checkpoint.words(stringBytes) +
+                3L * leasedCount + 2L * rootCount + boundCount + length !=
+                ints.capacity()) {
+
+            throw Checkpoint.damaged(path);
+        }
+
+        // Read the strings
+        int[] stringLengths = new int[(int) stringCount];
+        ints.get(stringLengths);
+        byte[] chars = new byte[stringBytes];
+        image.position(4 * (HEADER + stringLengths.length));
+        image.get(chars);
+        ints.position(HEADER + stringLengths.length +
+                Checkpoint.words(stringBytes));
+        String[] strings = new String[stringLengths.length];
+        int offset = 0;
+        for(int i = 0; i < strings.length; i++) {
+            if(stringLengths[i] < 0 ||
+                    stringLengths[i] > stringBytes - offset) {
+
+                throw Checkpoint.damaged(path);
+            }
+            strings[i] = new String(chars, offset, stringLengths[i],
+                    StandardCharsets.US_ASCII);
+            offset += stringLengths[i];
+        }
+
+        try {
+
+            // Restore the names
+            SymbolTable symbols = new SymbolTable();
+            for(int i = 0; i < userCount; i++) {
+                if(symbols.intern(strings[i]) != i) {
+                    throw Checkpoint.damaged(path);
+                }
+            }
+            NameSupply names =
+                    new NameSupply(symbols, firstLeasable, upperBound);
+            for(int i = 0; i < leasedCount; i++) {
+                int name = ints.get();
+                String root = symbols.name(ints.get());
+                int printed = ints.get();
+                names.restore(name, root, printed < 0 ? null :
+                        strings[userCount + printed]);
+            }
+            for(int i = 0; i < rootCount; i++) {
+                String root = symbols.name(ints.get());
+                names.restorePrinted(root, ints.get());
+            }
+            int[] boundNames = new int[boundCount];
+            ints.get(boundNames);
+
+            // Rebuild the processes
+            int[] code = new int[length];
+            ints.get(code);
+            Parallel parts = (Parallel) TermCode.decode(code);
+            if(parts.arity() != 2 ||
+                    ((Parallel) parts.subterm(1)).arity() > 2) {
+
+                throw Checkpoint.damaged(path);
+            }
+            return new Checkpoint(names, boundNames,
+                    ((Parallel) parts.subterm(0)).subterms(),
+                    new ArrayList<PiTerm>(),
+                    ((Parallel) parts.subterm(1)).subterms());
+        }
+        catch(RuntimeException e) {
+            throw Checkpoint.damaged(path);
+        }
+    }
+
+    /*
+     * Find the number of one of the user's names.
+     */
+    private static int symbol(HashMap<String, Integer> symbols, String name) {
+        Integer symbol = symbols.get(name);
+        if(symbol == null) {
+            throw new IllegalStateException("The root " + name + " is not " +
+                    "one of the user's names");
+        }
+        return symbol;
+    }
+
+    /*
+     * Determine the number of ints that hold the given number of bytes.
+     */
+    private static int words(int bytes) { return (bytes + 3) / 4; }
+
+    private static IOException damaged(Path path) {
+        return new IOException(path + " is a damaged japi checkpoint");
+    }
+}
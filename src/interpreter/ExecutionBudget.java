@@ -0,0 +1,173 @@
+package interpreter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the work done by a call to Interpreter.run(): the number of
+ * reductions performed, the number of beta-steps taken to evaluate messages,
+ * the number of live processes, their total size, and the time taken. Every
+ * limit starts out unlimited (see UNLIMITED), and each is set by the
+ * corresponding with method, which leaves this ExecutionBudget as it is and
+ * returns a new one.
+ *
+ * The size of the live processes is the number of nodes of syntax in them,
+ * including the LambdaTerms in their messages, which is roughly proportional
+ * to the heap they take up. Shared subterms are counted once for each process
+ * they belong to.
+ */
+public final class ExecutionBudget {
+
+    /**
+     * Names the limits of an ExecutionBudget, one of which is given as the
+     * reason a run stopped early (see RunResult.limit()).
+     */
+    public enum Limit { REDUCTIONS, BETA_STEPS, PROCESSES, TERM_SIZE, TIME }
+
+    /**
+     * The ExecutionBudget with no limits.
+     */
+    public static final ExecutionBudget UNLIMITED = new ExecutionBudget(
+            Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE,
+            Long.MAX_VALUE);
+
+    private final long reductions;
+    private final long betaSteps;
+    private final long processes;
+    private final long termSize;
+    private final long nanos;
+
+    private ExecutionBudget(long reductions, long betaSteps, long processes,
+            long termSize, long nanos) {
+
+        this.reductions = reductions;
+        this.betaSteps = betaSteps;
+        this.processes = processes;
+        this.termSize = termSize;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Construct an ExecutionBudget with the limits of this one and a new
+     * limit on the number of reductions performed.
+     * @param reductions the most reductions to perform
+     * @return a new ExecutionBudget with the given limit
+     */
+    public ExecutionBudget withReductions(long reductions) {
+        ExecutionBudget.checkLimit(reductions);
+        return new ExecutionBudget(reductions, this.betaSteps, this.processes,
+                this.termSize, this.nanos);
+    }
+
+    /**
+     * Construct an ExecutionBudget with the limits of this one and a new
+     * limit on the number of beta-steps taken to evaluate messages. A
+     * reduction that would take more is cut short, and left to be performed
+     * when the run is resumed.
+     * @param betaSteps the most beta-steps to take
+     * @return a new ExecutionBudget with the given limit
+     */
+    public ExecutionBudget withBetaSteps(long betaSteps) {
+        ExecutionBudget.checkLimit(betaSteps);
+        return new ExecutionBudget(this.reductions, betaSteps, this.processes,
+                this.termSize, this.nanos);
+    }
+
+    /**
+     * Construct an ExecutionBudget with the limits of this one and a new
+     * limit on the number of live processes. No reduction is begun while
+     * there are more.
+     * @param processes the most processes to begin a reduction with
+     * @return a new ExecutionBudget with the given limit
+     */
+    public ExecutionBudget withProcesses(long processes) {
+        ExecutionBudget.checkLimit(processes);
+        return new ExecutionBudget(this.reductions, this.betaSteps, processes,
+                this.termSize, this.nanos);
+    }
+
+    /**
+     * Construct an ExecutionBudget with the limits of this one and a new
+     * limit on the total size of the live processes. No reduction is begun
+     * while they are larger.
+     * @param termSize the largest size, in nodes, to begin a reduction with
+     * @return a new ExecutionBudget with the given limit
+     */
+    public ExecutionBudget withTermSize(long termSize) {
+        ExecutionBudget.checkLimit(termSize);
+        return new ExecutionBudget(this.reductions, this.betaSteps,
+                this.processes, termSize, this.nanos);
+    }
+
+    /**
+     * Construct an ExecutionBudget with the limits of this one and a new
+     * limit on the time taken. The clock is read between reductions, and
+     * every so many beta-steps while evaluating a message.
+     * @param duration the longest time to take, in the given unit
+     * @param unit the unit of duration
+     * @return a new ExecutionBudget with the given limit
+     */
+    public ExecutionBudget withTime(long duration, TimeUnit unit) {
+        ExecutionBudget.checkLimit(duration);
+        return new ExecutionBudget(this.reductions, this.betaSteps,
+                this.processes, this.termSize, unit.toNanos(duration));
+    }
+
+    /**
+     * Construct an ExecutionBudget with what is left of this one after a run
+     * that was given it: the limits on reductions, beta-steps and time less
+     * what the run used, and the other limits as they are.
+     * @param result the result of the run
+     * @return a new ExecutionBudget with what is left of this one
+     */
+    public ExecutionBudget after(RunResult result) {
+        return new ExecutionBudget(
+                ExecutionBudget.less(this.reductions, result.reductions()),
+                ExecutionBudget.less(this.betaSteps, result.betaSteps()),
+                this.processes, this.termSize,
+                ExecutionBudget.less(this.nanos, result.nanos()));
+    }
+
+    /**
+     * Access the limit on the number of reductions performed.
+     * @return the most reductions to perform
+     */
+    public long reductions() { return this.reductions; }
+
+    /**
+     * Access the limit on the number of beta-steps taken.
+     * @return the most beta-steps to take
+     */
+    public long betaSteps() { return this.betaSteps; }
+
+    /**
+     * Access the limit on the number of live processes.
+     * @return the most processes to begin a reduction with
+     */
+    public long processes() { return this.processes; }
+
+    /**
+     * Access the limit on the total size of the live processes.
+     * @return the largest size, in nodes, to begin a reduction with
+     */
+    public long termSize() { return this.termSize; }
+
+    /**
+     * Access the limit on the time taken.
+     * @return the longest time to take, in nanoseconds
+     */
+    public long nanos() { return this.nanos; }
+
+    private static void checkLimit(long limit) {
+        if(limit < 0) {
+            throw new IllegalArgumentException("A limit of an " +
+                    "ExecutionBudget cannot be negative");
+        }
+    }
+
+    /*
+     * Subtract what was used from a limit, leaving an unlimited one as it is.
+     */
+    private static long less(long limit, long used) {
+        return limit == Long.MAX_VALUE ? limit : Math.max(limit - used, 0);
+    }
+}
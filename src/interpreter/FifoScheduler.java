@@ -0,0 +1,43 @@
+package interpreter;
+
+import syntax.PiTerm;
+import java.util.Random;
+
+/**
+ * Serves processes in the order in which they became top-level, so that the
+ * reduction performed is always one involving the process that has waited
+ * longest. A process that can take part in a reduction is therefore only
+ * overtaken by processes that were waiting before it, which bounds the number
+ * of reductions it waits for.
+ */
+public final class FifoScheduler extends Scheduler {
+
+    // The key of the next process to become top-level
+    private long arrivals;
+
+    /**
+     * Construct a new FifoScheduler that makes its remaining choices
+     * differently on every run.
+     */
+    public FifoScheduler() { super(new Random()); }
+
+    /**
+     * Construct a new FifoScheduler that makes the same choices on every run
+     * of the same program.
+     * @param seed the seed for the choices not decided by arrival order
+     */
+    public FifoScheduler(long seed) { super(new Random(seed)); }
+
+    /**
+     * Processes are keyed by their order of arrival.
+     * @param term the process
+     * @return the number of processes that arrived before it
+     */
+    public long key(PiTerm term) { return this.arrivals++; }
+
+    /**
+     * A FifoScheduler serves processes by key.
+     * @return true
+     */
+    public boolean isOrdered() { return true; }
+}
@@ -2,12 +2,17 @@ package interpreter;
 
 import syntax.*;
 import utils.*;
+import static interpreter.PoolKind.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
 
 /**
  * Represents n-ary parallel composition, and contains methods to handle
@@ -15,64 +20,201 @@ import java.util.Optional;
  */
 public class Interpreter {
 
-    private HashMap<Integer, String> nameMap;
-    private HashSet<String> usedNames;
-    private int nextAvailableName;
+    // Number of communications handled by each task of a parallel reduction
+    private static final int COMMUNICATIONS_PER_TASK = 16;
 
-    private ArrayList<Send> senders;
-    private ArrayList<Receive> receivers;
-    private ArrayList<Restrict> restricts;
-    private ArrayList<NDSum> sums;
-    private ArrayList<Tau> taus;
+    // The names below this are kept for the user's names of a program whose
+    // components are added as they are parsed (see add()), and leased names
+    // are above it
+    private static final int STREAMED_NAMES = 1 << 30;
 
-    private ArrayList<Send> replSenders;
-    private ArrayList<Receive> replReceivers;
-    private ArrayList<Restrict> replRestricts;
-    private ArrayList<NDSum> replSums;
-    private ArrayList<Tau> replTaus;
+    // The kinds of reduction tried when no Send and Receive can communicate:
+    // pairs of pools whose members can interact, in either order, and pools
+    // whose members can perform internal actions
+    private static final ArrayList<Either<Pair<PoolKind, PoolKind>, PoolKind>>
+            REDUCTIONS = Interpreter.reductions();
 
-    private HashSet<Integer> boundNames;
+    // Leases fresh names, and determines how every name is printed
+    private NameSupply names;
+
+    // Sends and Receives, replicated or otherwise, are indexed by channel
+    private ChannelIndex channels;
+
+    // Tracks which of the other processes can take part in each kind of
+    // reduction, as processes come and go
+    private RedexIndex redexes;
+
+    private Pool<Restrict> restricts;
+    private Pool<NDSum> sums;
+    private Pool<Tau> taus;
+
+    private Pool<Restrict> replRestricts;
+    private Pool<NDSum> replSums;
+    private Pool<Tau> replTaus;
+
+    private IntSet boundNames;
+
+    // The processes added and removed since changes were last appended, each
+    // with whether it is replicated, or null if changes are not tracked
+    private ArrayList<Pair<PiTerm, Boolean>> added;
+    private ArrayList<Pair<PiTerm, Boolean>> removed;
+
+    // The actingTerms and the number of boundNames when changes were last
+    // appended
+    private ArrayList<PiTerm> shownActing;
+    private int shownNames;
+
+    // Evaluates the expressions in messages before they are passed
+    private LambdaEvaluator evaluator;
+
+    // Chooses the reduction to perform next
+    private Scheduler scheduler;
+
+    // Counts what the Interpreter does, or null if nothing is counted
+    private Metrics metrics;
+
+    // Counts the beta-steps taken during a call to run(), or null outside of
+    // one
+    private StepCounter counter;
+
+    // The number of processes in the pools, and their total size in nodes if
+    // it is being kept up to date (see run()), or -1 otherwise
+    private int processes;
+    private long termSize;
+
+    // Indices into REDUCTIONS, shuffled in place to try them in random order
+    private int[] reductionOrder;
 
     // This PiTerm(s) should not belong to a PiTerm list. Replicated terms
     // should have the Replicate wrapper, Parallels can be present, etc.
     private Optional<Either<Pair<PiTerm, PiTerm>, PiTerm>> actingTerms;
 
     /**
-     * Construct a new Interpreter.
+     * Construct a new Interpreter that chooses reductions at random.
      * @param term the PiTerm to interpret
-     * @param nameMap a mapping from the user's String names to integer names
-     * used for interpretation
+     * @param symbols the user's names, numbered by the integer names used for
+     * them in term
      * @param nextAvailableName the value to use next time a fresh name is
      * required
      */
-    public Interpreter(PiTerm term, HashMap<String, Integer> nameMap,
+    public Interpreter(PiTerm term, SymbolTable symbols,
             int nextAvailableName) {
 
-        // Convert the String to Integer name map generated by the lexer, to an
-        // Integer to String map, useful for printing terms during or after
-        // interpretation.
-        this.nameMap = Utils.flipMap(nameMap);
-        this.usedNames = Utils.keys(nameMap);
+        this(term, symbols, nextAvailableName, new UniformScheduler());
+    }
 
-        this.nextAvailableName = nextAvailableName;
+    /**
+     * Construct a new Interpreter.
+     * @param term the PiTerm to interpret
+     * @param symbols the user's names, numbered by the integer names used for
+     * them in term
+     * @param nextAvailableName the value to use next time a fresh name is
+     * required
+     * @param scheduler the Scheduler that chooses the reduction to perform
+     * next, which must not be used by any other Interpreter
+     */
+    public Interpreter(PiTerm term, SymbolTable symbols,
+            int nextAvailableName, Scheduler scheduler) {
 
-        this.senders = new ArrayList<>();
-        this.receivers = new ArrayList<>();
-        this.restricts = new ArrayList<>();
-        this.sums = new ArrayList<>();
-        this.taus = new ArrayList<>();
+        this(new NameSupply(symbols, nextAvailableName), scheduler);
+        this.integrateNewlyExposedTerm(term);
+    }
 
-        this.replSenders = new ArrayList<>();
-        this.replReceivers = new ArrayList<>();
-        this.replRestricts = new ArrayList<>();
-        this.replSums = new ArrayList<>();
-        this.replTaus = new ArrayList<>();
+    /*
+     * Construct a new Interpreter with no processes, leasing names from the
+     * given NameSupply.
+     */
+    private Interpreter(NameSupply names, Scheduler scheduler) {
+        this.names = names;
+
+        this.scheduler = scheduler;
+        this.reductionOrder = new int[REDUCTIONS.size()];
+        for(int i = 0; i < this.reductionOrder.length; i++) {
+            this.reductionOrder[i] = i;
+        }
+
+        this.channels = new ChannelIndex(scheduler);
+
+        ArrayList<Pair<PoolKind, PoolKind>> pairings = new ArrayList<>();
+        for(Either<Pair<PoolKind, PoolKind>, PoolKind> reduction :
+                REDUCTIONS) {
+            reduction.frst.ifPresent(pairing -> {
+                if(!(pairing.frst.isIndexed() && pairing.scnd.isIndexed())) {
+                    pairings.add(pairing);
+                }
+            });
+        }
+        this.redexes = new RedexIndex(this.channels, scheduler, pairings);
+
+        this.restricts = new Pool<>();
+        this.sums = new Pool<>();
+        this.taus = new Pool<>();
+
+        this.replRestricts = new Pool<>();
+        this.replSums = new Pool<>();
+        this.replTaus = new Pool<>();
+
+        this.boundNames = new IntSet();
 
-        this.boundNames = new HashSet<>();
+        this.evaluator = LambdaReducer.EVALUATOR;
+        this.metrics = null;
+        this.counter = null;
+        this.processes = 0;
+        this.termSize = -1;
 
         this.actingTerms = Optional.empty();
+    }
 
-        this.integrateNewlyExposedTerm(term);
+    /*
+     * Construct a new Interpreter in the state recorded by a Checkpoint.
+     */
+    private Interpreter(Checkpoint checkpoint, Scheduler scheduler) {
+        this(checkpoint.names, scheduler);
+        for(int name : checkpoint.boundNames) { this.boundNames.add(name); }
+        for(PiTerm process : checkpoint.processes) {
+            this.integrateNewlyExposedTerm(process);
+        }
+        for(PiTerm body : checkpoint.replicated) {
+            this.integrateNewlyExposedTerm(new Replicate(body));
+        }
+        ArrayList<PiTerm> acting = checkpoint.acting;
+        if(acting.size() == 2) {
+            this.actingTerms = Optional.of(
+                    Either.frst(Pair.make(acting.get(0), acting.get(1))));
+        }
+        else if(acting.size() == 1) {
+            this.actingTerms = Optional.of(Either.scnd(acting.get(0)));
+        }
+    }
+
+    /**
+     * Construct a new Interpreter with no processes, to which the components
+     * of a program are added as they are parsed (see add()).
+     * @param symbols the user's names, numbered by the integer names used for
+     * them in the components, which may go on growing
+     * @param scheduler the Scheduler that chooses the reduction to perform
+     * next, which must not be used by any other Interpreter
+     */
+    public Interpreter(SymbolTable symbols, Scheduler scheduler) {
+        this(new Parallel(new ArrayList<PiTerm>()), symbols, STREAMED_NAMES,
+                scheduler);
+    }
+
+    /**
+     * Construct a new Interpreter that carries on from the state saved in a
+     * checkpoint file (see checkpoint()). The Interpreter prints the same
+     * state, and leases names that are printed as they would have been, but
+     * chooses reductions afresh with the given Scheduler.
+     * @param path the path of the checkpoint file
+     * @param scheduler the Scheduler that chooses the reduction to perform
+     * next, which must not be used by any other Interpreter
+     * @return the new Interpreter
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    public static Interpreter resume(Path path, Scheduler scheduler)
+            throws IOException {
+
+        return new Interpreter(Checkpoint.read(path), scheduler);
     }
 
     /**
@@ -81,15 +223,205 @@ public class Interpreter {
      * into an interpretable program.
      */
     public static Interpreter fromTranslation(
-            Triple<PiTerm, HashMap<String, Integer>, Integer> result) {
+            Triple<PiTerm, SymbolTable, Integer> result) {
 
         return new Interpreter(result.frst, result.scnd, result.thrd);
     }
 
+    /**
+     * Construct a new Interpreter from the given SyntaxTranslationResult.
+     * @param SyntaxTranslationResult the result of translating a source program
+     * into an interpretable program.
+     * @param scheduler the Scheduler that chooses the reduction to perform
+     * next
+     */
+    public static Interpreter fromTranslation(
+            Triple<PiTerm, SymbolTable, Integer> result,
+            Scheduler scheduler) {
+
+        return new Interpreter(result.frst, result.scnd, result.thrd,
+                scheduler);
+    }
+
+    /**
+     * Choose how the expressions in messages are evaluated. By default, they
+     * are reduced by substitution with LambdaReducer.EVALUATOR.
+     * @param evaluator the LambdaEvaluator to use
+     */
+    public void setEvaluator(LambdaEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Count what this Interpreter does from now on in the given Metrics,
+     * starting with the processes already in its pools. Metrics may be shared
+     * between Interpreters, to count for all of them.
+     * @param metrics the Metrics to count in
+     */
+    public void setMetrics(Metrics metrics) {
+        if(this.metrics != null) {
+            throw new IllegalStateException("The Interpreter already has " +
+                    "Metrics");
+        }
+        for(PoolKind kind : PoolKind.values()) {
+            metrics.added(kind, kind.isIndexed() ?
+                    this.channels.all(kind).size() : this.pool(kind).size());
+        }
+        this.metrics = metrics;
+    }
+
+    /**
+     * Perform reductions until none is possible or a limit of the given
+     * ExecutionBudget is reached. The limits on the live processes are checked
+     * before each reduction, and the limits on beta-steps and time also while
+     * evaluating messages. A reduction whose messages would take more than is
+     * left of either is cut short before it changes any process, to be tried
+     * again, so run() can be called again with a new ExecutionBudget to carry
+     * on from where it stopped. A run that reaches a limit just as no
+     * reduction is left has finished rather than stopped.
+     * @param budget the limits on the run
+     * @return the reason the run ended, and the work done in it
+     */
+    public RunResult run(ExecutionBudget budget) {
+        if(this.counter != null) {
+            throw new IllegalStateException("The Interpreter is already " +
+                    "running");
+        }
+        long start = System.nanoTime();
+        boolean timed = budget.nanos() != Long.MAX_VALUE;
+        long deadline = start + budget.nanos();
+        if(budget.termSize() != Long.MAX_VALUE) { this.trackTermSize(); }
+
+        StepCounter counter =
+                new StepCounter(budget.betaSteps(), timed, deadline);
+        this.counter = counter;
+        long reductions = 0;
+        ExecutionBudget.Limit limit = null;
+        try {
+            while(true) {
+                if(reductions >= budget.reductions()) {
+                    limit = ExecutionBudget.Limit.REDUCTIONS;
+                }
+                else if(this.processes > budget.processes()) {
+                    limit = ExecutionBudget.Limit.PROCESSES;
+                }
+                else if(this.termSize > budget.termSize()) {
+                    limit = ExecutionBudget.Limit.TERM_SIZE;
+                }
+                else if(timed && System.nanoTime() - deadline >= 0) {
+                    limit = ExecutionBudget.Limit.TIME;
+                }
+
+                // A run that has nothing left to do has finished, whatever
+                // is left of its budget
+                if(limit != null) {
+                    if(!this.canReduce()) { limit = null; }
+                    break;
+                }
+                if(!this.doReduction()) { break; }
+                reductions++;
+            }
+        }
+        catch(StepCounter.Exhausted e) {
+            limit = e.limit;
+        }
+        finally {
+            this.counter = null;
+        }
+        return new RunResult(limit, reductions, counter.steps(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Add a process to those being interpreted, in parallel with them, as
+     * when the next component of a program has been parsed. Its free names
+     * must be numbered by the SymbolTable this Interpreter was constructed
+     * with.
+     * @param term the process to add
+     */
+    public void add(PiTerm term) {
+        if(this.counter != null) {
+            throw new IllegalStateException("Cannot add a process while the " +
+                    "Interpreter is running");
+        }
+        this.names.checkUserNames();
+        this.integrateNewlyExposedTerm(term);
+    }
+
+    /**
+     * Take a Checkpoint of the current state, to be written to a file and
+     * resumed from later. Taking it only copies references to the processes,
+     * so the Checkpoint can be written on another thread while this goes on
+     * reducing (see Checkpoint.write()).
+     * @return a Checkpoint of the current state
+     */
+    public Checkpoint checkpoint() {
+        if(this.counter != null) {
+            throw new IllegalStateException("Cannot checkpoint while the " +
+                    "Interpreter is running");
+        }
+        ArrayList<PiTerm> processes = new ArrayList<>();
+        ArrayList<PiTerm> replicated = new ArrayList<>();
+        for(PoolKind kind : PoolKind.values()) {
+            for(PiTerm member : this.members(kind)) {
+                (kind.isReplicated() ? replicated : processes).add(member);
+            }
+        }
+        int[] boundNames = new int[this.boundNames.size()];
+        for(int i = 0; i < boundNames.length; i++) {
+            boundNames[i] = this.boundNames.get(i);
+        }
+        return new Checkpoint(this.names, boundNames, processes, replicated,
+                this.actingList());
+    }
+
     /** * Try to do a reduction.
      * @return true if a reduction was performed, false otherwise
      */
     public boolean doReduction() {
+        if(this.metrics == null) { return this.reduce(); }
+        long start = System.nanoTime();
+        boolean reduced = this.reduce();
+        this.metrics.timed(System.nanoTime() - start);
+        return reduced;
+    }
+
+    /**
+     * Determine if a reduction is possible, without performing one or making
+     * any choice of the Scheduler.
+     * @return true if doReduction() would perform a reduction
+     */
+    public boolean canReduce() {
+        if(this.actingTerms.isPresent() ||
+                this.channels.canMatch(SENDERS, RECEIVERS) ||
+                !this.taus.isEmpty() || this.redexes.hasInternalAction()) {
+
+            return true;
+        }
+        for(Either<Pair<PoolKind, PoolKind>, PoolKind> reduction :
+                REDUCTIONS) {
+
+            if(!reduction.frst.isPresent()) { continue; }
+            PoolKind kind1 = reduction.frst.get().frst;
+            PoolKind kind2 = reduction.frst.get().scnd;
+            if(kind1.isIndexed() && kind2.isIndexed()) {
+                if(this.channels.canMatch(kind1, kind2)) { return true; }
+                continue;
+            }
+            PoolKind anchor = RedexIndex.anchor(kind1, kind2);
+            if(this.redexes.canReduce(anchor,
+                    anchor == kind1 ? kind2 : kind1)) {
+
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Try to do a reduction, as doReduction() does.
+     */
+    private boolean reduce() {
 
         // If we're in the middle of an indivisible action, we must default to
         // continuing this, to prevent illegal interference
@@ -98,224 +430,373 @@ public class Interpreter {
             return true;
         }
 
-        // Always send messages if possible. If not, do another kind of
-        // reduction in arbitrary order
-        boolean doneReduction = tryRandomReductionBetweenLists(
-                Pair.make(this.senders, this.receivers));
-        if(doneReduction) { return true; }
-
-        // The lists of terms that can interact. The order of the pair does not
-        // matter.
-        ArrayList<Either<
-                Pair<ArrayList<? extends PiTerm>, ArrayList<? extends PiTerm>>,
-                ArrayList<? extends PiTerm>
-                >> reductions = new ArrayList<>();
-        reductions.add(Either.frst(Pair.make(this.senders  , this.replReceivers)));
-        reductions.add(Either.frst(Pair.make(this.receivers, this.replSenders  )));
-        reductions.add(Either.frst(Pair.make(this.senders  , this.restricts    )));
-        reductions.add(Either.frst(Pair.make(this.receivers, this.restricts    )));
-        reductions.add(Either.frst(Pair.make(this.restricts, this.replSenders  )));
-        reductions.add(Either.frst(Pair.make(this.restricts, this.replReceivers)));
-        reductions.add(Either.frst(Pair.make(this.senders  , this.replRestricts)));
-        reductions.add(Either.frst(Pair.make(this.receivers, this.replRestricts)));
-        reductions.add(Either.frst(Pair.make(this.restricts, this.restricts    )));
-        reductions.add(Either.frst(Pair.make(this.restricts, this.replRestricts)));
-        reductions.add(Either.frst(Pair.make(this.sums     , this.sums         )));
-        reductions.add(Either.frst(Pair.make(this.sums     , this.senders      )));
-        reductions.add(Either.frst(Pair.make(this.sums     , this.receivers    )));
-        reductions.add(Either.frst(Pair.make(this.sums     , this.restricts    )));
-        reductions.add(Either.frst(Pair.make(this.sums     , this.replSenders  )));
-        reductions.add(Either.frst(Pair.make(this.sums     , this.replReceivers)));
-        reductions.add(Either.frst(Pair.make(this.sums     , this.replRestricts)));
-        reductions.add(Either.frst(Pair.make(this.sums     , this.replSums     )));
-        reductions.add(Either.frst(Pair.make(this.senders  , this.replSums     )));
-        reductions.add(Either.frst(Pair.make(this.receivers, this.replSums     )));
-        reductions.add(Either.frst(Pair.make(this.restricts, this.replSums     )));
-        reductions.add(Either.scnd(this.sums));
-        reductions.add(Either.scnd(this.taus));
-
-        // Keep trying the possible reductions in random order until one works
-        while(!(reductions.isEmpty() || doneReduction)) {
-            Either<Pair<ArrayList<? extends PiTerm>,
-                    ArrayList<? extends PiTerm>>,
-                    ArrayList<? extends PiTerm>>
-                    reduction = Utils.arbitraryElement(reductions);
-            reductions.remove(reduction);
+        // An ordered Scheduler serves the process that has waited longest,
+        // whatever the kind of reduction it can take part in
+        if(this.scheduler.isOrdered()) { return this.doLowestReduction(); }
+
+        // Otherwise always send messages if possible. If not, do another kind
+        // of reduction, as the Scheduler decides
+        Optional<Pair<PiTerm, PiTerm>> match =
+                this.chooseMatch(SENDERS, RECEIVERS);
+        if(match.isPresent()) {
+            return this.handleChosenReduction(SENDERS, RECEIVERS, match.get());
+        }
+
+        // Draw no choices when there is nothing to choose, so that a run
+        // makes the same choices however often it is asked to carry on
+        if(!this.canReduce()) { return false; }
+        return this.doRandomReduction();
+    }
+
+    /*
+     * Build the list of kinds of reduction other than communication between a
+     * Send and a Receive.
+     */
+    private static ArrayList<Either<Pair<PoolKind, PoolKind>, PoolKind>>
+            reductions() {
+
+        ArrayList<Either<Pair<PoolKind, PoolKind>, PoolKind>> reductions =
+                new ArrayList<>();
+        reductions.add(Either.frst(Pair.make(SENDERS  , REPL_RECEIVERS)));
+        reductions.add(Either.frst(Pair.make(RECEIVERS, REPL_SENDERS  )));
+        reductions.add(Either.frst(Pair.make(SENDERS  , RESTRICTS     )));
+        reductions.add(Either.frst(Pair.make(RECEIVERS, RESTRICTS     )));
+        reductions.add(Either.frst(Pair.make(RESTRICTS, REPL_SENDERS  )));
+        reductions.add(Either.frst(Pair.make(RESTRICTS, REPL_RECEIVERS)));
+        reductions.add(Either.frst(Pair.make(SENDERS  , REPL_RESTRICTS)));
+        reductions.add(Either.frst(Pair.make(RECEIVERS, REPL_RESTRICTS)));
+        reductions.add(Either.frst(Pair.make(RESTRICTS, RESTRICTS     )));
+        reductions.add(Either.frst(Pair.make(RESTRICTS, REPL_RESTRICTS)));
+        reductions.add(Either.frst(Pair.make(SUMS     , SUMS          )));
+        reductions.add(Either.frst(Pair.make(SUMS     , SENDERS       )));
+        reductions.add(Either.frst(Pair.make(SUMS     , RECEIVERS     )));
+        reductions.add(Either.frst(Pair.make(SUMS     , RESTRICTS     )));
+        reductions.add(Either.frst(Pair.make(SUMS     , REPL_SENDERS  )));
+        reductions.add(Either.frst(Pair.make(SUMS     , REPL_RECEIVERS)));
+        reductions.add(Either.frst(Pair.make(SUMS     , REPL_RESTRICTS)));
+        reductions.add(Either.frst(Pair.make(SUMS     , REPL_SUMS     )));
+        reductions.add(Either.frst(Pair.make(SENDERS  , REPL_SUMS     )));
+        reductions.add(Either.frst(Pair.make(RECEIVERS, REPL_SUMS     )));
+        reductions.add(Either.frst(Pair.make(RESTRICTS, REPL_SUMS     )));
+        reductions.add(Either.scnd(SUMS));
+        reductions.add(Either.scnd(TAUS));
+        return reductions;
+    }
+
+    /*
+     * Try the kinds of reduction in REDUCTIONS in random order until one
+     * works. The order is drawn by shuffling reductionOrder in place, one
+     * position at a time, so that no more of it is drawn than is tried.
+     */
+    private boolean doRandomReduction() {
+        int[] order = this.reductionOrder;
+        for(int i = 0; i < order.length; i++) {
+            int j = i + this.scheduler.choose(order.length - i);
+            int chosen = order[j];
+            order[j] = order[i];
+            order[i] = chosen;
+
+            Either<Pair<PoolKind, PoolKind>, PoolKind> reduction =
+                    REDUCTIONS.get(chosen);
             if(reduction.frst.isPresent()) {
-                doneReduction =
-                        tryRandomReductionBetweenLists(reduction.frst.get());
-            }
-            else if(reduction.scnd.isPresent()) {
-                doneReduction =
-                    tryInternalActionReduction(reduction.scnd.get());
+                PoolKind kind1 = reduction.frst.get().frst;
+                PoolKind kind2 = reduction.frst.get().scnd;
+                Optional<Pair<PiTerm, PiTerm>> match =
+                        this.chooseMatch(kind1, kind2);
+                if(match.isPresent()) {
+                    return this.handleChosenReduction(kind1, kind2,
+                            match.get());
+                }
             }
             else {
-                throw new IllegalStateException("Logic is no more.");
+                Optional<PiTerm> actor =
+                        this.chooseInternalAction(reduction.scnd.get());
+                if(actor.isPresent()) {
+                    this.doInternalAction(actor.get());
+                    return true;
+                }
             }
         }
-        return doneReduction;
+        return false;
     }
 
     /*
-     * Attempt to find and perform an internal action on a term within the given
-     * list.
+     * Perform the reduction whose non-replicated terms have the lowest key,
+     * trying communication between a Send and a Receive and every kind in
+     * REDUCTIONS. Communication wins a tie.
      */
-    private boolean tryInternalActionReduction(
-            ArrayList<? extends PiTerm> list) {
-
-        if(list.isEmpty()) { return false; }
-        else {
+    private boolean doLowestReduction() {
+        Either<Pair<PoolKind, PoolKind>, PoolKind> best = null;
+        Pair<PiTerm, PiTerm> bestMatch = null;
+        PiTerm bestActor = null;
+        long bestKey = Long.MAX_VALUE;
 
-            // Get the elements of the list that have internal actions
-            ArrayList<? extends PiTerm> haveInternal = Utils.filter(
-                    tm -> PiTerm.hasInternalAction(tm), list);
-
-            // If none have internal actions, we can't do anything here
-            if(haveInternal.isEmpty()) { return false; }
+        Optional<Pair<PiTerm, PiTerm>> communication =
+                this.chooseMatch(SENDERS, RECEIVERS);
+        if(communication.isPresent()) {
+            best = Either.frst(Pair.make(SENDERS, RECEIVERS));
+            bestMatch = communication.get();
+            bestKey = this.key(bestMatch, SENDERS, RECEIVERS);
+        }
 
-            // Else do an internal action
-            PiTerm internalActor = Utils.arbitraryElement(haveInternal);
+        for(Either<Pair<PoolKind, PoolKind>, PoolKind> reduction :
+                REDUCTIONS) {
 
-            if(internalActor instanceof NDSum) {
-                doInternalAction((NDSum) internalActor);
-            }
-            else if(internalActor instanceof Tau) {
-                doInternalAction((Tau) internalActor);
+            if(reduction.frst.isPresent()) {
+                PoolKind kind1 = reduction.frst.get().frst;
+                PoolKind kind2 = reduction.frst.get().scnd;
+                Optional<Pair<PiTerm, PiTerm>> match =
+                        this.chooseMatch(kind1, kind2);
+                if(match.isPresent()) {
+                    long key = this.key(match.get(), kind1, kind2);
+                    if(best == null || key < bestKey) {
+                        best = reduction;
+                        bestMatch = match.get();
+                        bestKey = key;
+                    }
+                }
             }
             else {
-                throw new IllegalStateException(
-                        "Interpreter.tryInternalActionReduction() was passed " +
-                        "a list containing elements of types other than " +
-                        "NDSum or Tau");
+                PoolKind kind = reduction.scnd.get();
+                Optional<PiTerm> actor = this.chooseInternalAction(kind);
+                if(actor.isPresent()) {
+                    long key = this.pool(kind).key(actor.get());
+                    if(best == null || key < bestKey) {
+                        best = reduction;
+                        bestActor = actor.get();
+                        bestKey = key;
+                    }
+                }
             }
-            return true;
         }
+
+        if(best == null) { return false; }
+        if(best.frst.isPresent()) {
+            return this.handleChosenReduction(best.frst.get().frst,
+                    best.frst.get().scnd, bestMatch);
+        }
+        this.doInternalAction(bestActor);
+        return true;
     }
 
     /*
-     * Attempt to find a reduction possibility accross members of the two given
-     * lists. If one is found, perform it and return true. Otherwise, return
-     * false.
+     * Choose a term within the given pool that can perform an internal
+     * action, if there is one. Every Tau can, and the RedexIndex keeps track
+     * of which sums can.
      */
-    private boolean tryRandomReductionBetweenLists(
-            Pair<ArrayList<? extends PiTerm>,
-            ArrayList<? extends PiTerm>> lists) {
+    private Optional<PiTerm> chooseInternalAction(PoolKind kind) {
+        if(kind == SUMS) {
+            return Optional.ofNullable(this.redexes.chooseInternalAction());
+        }
+        if(kind != TAUS) {
+            throw new IllegalArgumentException("Internal actions are only " +
+                    "chosen from the sums and taus pools");
+        }
+        if(this.taus.isEmpty()) { return Optional.empty(); }
+        return Optional.of(this.scheduler.isOrdered() ?
+                this.taus.first() : this.taus.arbitraryMember(this.scheduler));
+    }
 
-        ArrayList<? extends PiTerm> list1 = lists.frst;
-        ArrayList<? extends PiTerm> list2 = lists.scnd;
+    /*
+     * Perform an internal action with a term that can perform one.
+     */
+    private void doInternalAction(PiTerm internalActor) {
+        if(internalActor instanceof NDSum) {
+            this.doInternalAction((NDSum) internalActor);
+        }
+        else if(internalActor instanceof Tau) {
+            this.doInternalAction((Tau) internalActor);
+        }
+        else {
+            throw new IllegalStateException("Interpreter.doInternalAction() " +
+                    "was passed a term of a type other than NDSum or Tau");
+        }
+    }
 
-        // Enumerate all matches between the given lists
-        ArrayList<Pair<PiTerm, PiTerm>> matches =
-                Interpreter.findMatches(list1, list2);
+    /*
+     * Find a reduction possibility across members of the two given pools, as
+     * the Scheduler decides, if there is one.
+     */
+    private Optional<Pair<PiTerm, PiTerm>> chooseMatch(PoolKind kind1,
+            PoolKind kind2) {
+
+        // Pairs of Sends and Receives are chosen directly from the channel
+        // index
+        if(kind1.isIndexed() && kind2.isIndexed()) {
+            return this.channels.chooseMatch(kind1, kind2);
+        }
+
+        // Otherwise choose a member of the anchor pool and a member of the
+        // other that can reduce together
+        PoolKind anchor = RedexIndex.anchor(kind1, kind2);
+        PoolKind other = anchor == kind1 ? kind2 : kind1;
+        Pair<PiTerm, PiTerm> redex = this.redexes.chooseRedex(anchor, other);
+        if(redex == null) { return Optional.empty(); }
+        return Optional.of(anchor == kind1 ?
+                redex : Pair.make(redex.scnd, redex.frst));
+    }
 
-        // If there are no matches, we were unsuccessful, so return false
-        if(matches.isEmpty()) { return false; }
+    /*
+     * Determine the key of a match between members of the given pools: the
+     * lowest key of its members that are not replicated.
+     */
+    private long key(Pair<PiTerm, PiTerm> match, PoolKind kind1,
+            PoolKind kind2) {
 
-        // Handle the chosen reduction and forward the returned status
-        return this.handleChosenReduction(list1, list2,
-                Utils.arbitraryElement(matches));
+        long key = Long.MAX_VALUE;
+        if(!kind1.isReplicated()) { key = this.key(match.frst, kind1); }
+        if(!kind2.isReplicated()) {
+            key = Math.min(key, this.key(match.scnd, kind2));
+        }
+        return key;
     }
 
     /*
-     * Given two lists and a match between them, perform a reduction on that
-     * matching pair. It is not checked that the match contains terms from the
-     * given lists.
+     * Determine the key of a member of the given pool.
      */
-    private boolean handleChosenReduction(ArrayList<? extends PiTerm> list1,
-            ArrayList<? extends PiTerm> list2, Pair<PiTerm, PiTerm> reduction) {
+    private long key(PiTerm term, PoolKind kind) {
+        return kind.isIndexed() ?
+                this.channels.key(term, kind) : this.pool(kind).key(term);
+    }
 
-        if (pairMatch(this.senders, this.receivers, list1, list2)) {
-            this.doCommunicate((Send) reduction.frst, (Receive) reduction.scnd);
-        }
-        else if(pairMatch(this.senders, this.replReceivers, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
-        }
-        else if(pairMatch(this.receivers, this.replSenders, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
-        }
-        else if(pairMatch(this.senders, this.restricts, list1, list2)) {
+    /*
+     * Choose an element of a non-empty list at random.
+     */
+    private <E> E choose(ArrayList<E> list) {
+        return list.get(this.scheduler.choose(list.size()));
+    }
+
+    /*
+     * Given two pools and a match between them, perform a reduction on that
+     * matching pair. It is not checked that the match contains terms from the
+     * given pools.
+     */
+    private boolean handleChosenReduction(PoolKind kind1, PoolKind kind2,
+            Pair<PiTerm, PiTerm> reduction) {
+
+        if (pairMatch(SENDERS, RECEIVERS, kind1, kind2)) {
+            Send send = (Send) reduction.frst;
+            Receive rece = (Receive) reduction.scnd;
+            this.doCommunicate(send, rece, this.exchange(send, rece));
+        }
+        else if(pairMatch(SENDERS, REPL_RECEIVERS, kind1, kind2) ||
+                pairMatch(RECEIVERS, REPL_SENDERS, kind1, kind2)) {
+            boolean sendFirst = reduction.frst instanceof Send;
+            this.doReplicatedCommunicate(
+                    (Send) (sendFirst ? reduction.frst : reduction.scnd),
+                    (Receive) (sendFirst ? reduction.scnd : reduction.frst));
+        }
+        else if(pairMatch(SENDERS, RESTRICTS, kind1, kind2)) {
             this.integrateNewlyExposedTerm(
                     this.doScopeExtrusion((Restrict) reduction.scnd));
         }
-        else if(pairMatch(this.receivers, this.restricts, list1, list2)) {
+        else if(pairMatch(RECEIVERS, RESTRICTS, kind1, kind2)) {
             this.integrateNewlyExposedTerm(
                     this.doScopeExtrusion((Restrict) reduction.scnd));
         }
-        else if(pairMatch(this.restricts, this.replSenders, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(RESTRICTS, REPL_SENDERS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.restricts, this.replReceivers, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(RESTRICTS, REPL_RECEIVERS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.senders, this.replRestricts, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(SENDERS, REPL_RESTRICTS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.receivers, this.replRestricts, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(RECEIVERS, REPL_RESTRICTS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.restricts, this.restricts, list1, list2)) {
+        else if(pairMatch(RESTRICTS, RESTRICTS, kind1, kind2)) {
             this.integrateNewlyExposedTerm(
                     this.doScopeExtrusion((Restrict) reduction.scnd));
         }
-        else if(pairMatch(this.restricts, this.replRestricts, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(RESTRICTS, REPL_RESTRICTS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.sums, this.sums, list1, list2)) {
+        else if(pairMatch(SUMS, SUMS, kind1, kind2)) {
             this.doSumSelection((NDSum) reduction.frst, reduction.scnd);
         }
-        else if(pairMatch(this.sums, this.senders, list1, list2)) {
+        else if(pairMatch(SUMS, SENDERS, kind1, kind2)) {
             this.doSumSelection((NDSum) reduction.frst, reduction.scnd);
         }
-        else if(pairMatch(this.sums, this.receivers, list1, list2)) {
+        else if(pairMatch(SUMS, RECEIVERS, kind1, kind2)) {
             this.doSumSelection((NDSum) reduction.frst, reduction.scnd);
         }
-        else if(pairMatch(this.sums, this.restricts, list1, list2)) {
+        else if(pairMatch(SUMS, RESTRICTS, kind1, kind2)) {
             this.integrateNewlyExposedTerm(
                     this.doScopeExtrusion((Restrict) reduction.scnd));
         }
-        else if(pairMatch(this.sums, this.replSenders, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(SUMS, REPL_SENDERS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.sums, this.replReceivers, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(SUMS, REPL_RECEIVERS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.sums, this.replRestricts, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(SUMS, REPL_RESTRICTS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.sums, this.replSums, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(SUMS, REPL_SUMS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.senders, this.replSums, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(SENDERS, REPL_SUMS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.receivers, this.replSums, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(RECEIVERS, REPL_SUMS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
-        else if(pairMatch(this.restricts, this.replSums, list1, list2)) {
-            this.integrateNewlyExposedTerm(reduction.scnd.copy());
+        else if(pairMatch(RESTRICTS, REPL_SUMS, kind1, kind2)) {
+            this.unfold(reduction.scnd);
         }
         else {
-            throw new IllegalArgumentException("Given lists not allowed to " +
+            throw new IllegalArgumentException("Given pools not allowed to " +
                     "communicate");
         }
 
         return true;
     }
-    // Determine if two lists are the same lists as the two other lists.
-    private static boolean pairMatch(
-            ArrayList<? extends PiTerm> e1,
-            ArrayList<? extends PiTerm> e2,
-            ArrayList<? extends PiTerm> t1,
-            ArrayList<? extends PiTerm> t2) {
+    /*
+     * Bring a copy of the body of a replicated term to the top level.
+     */
+    private void unfold(PiTerm replicated) {
+        if(this.metrics != null) {
+            this.metrics.reduced(ReductionKind.REPLICATION);
+        }
+        this.integrateNewlyExposedTerm(replicated.copy());
+    }
+
+    // Determine if two pool kinds are the same as the two other pool kinds.
+    private static boolean pairMatch(PoolKind e1, PoolKind e2, PoolKind t1,
+            PoolKind t2) {
 
         return (e1 == t1 && e2 == t2) || (e1 == t2 && e2 == t1);
     }
 
+    /*
+     * Access a pool that is not indexed by channel.
+     */
+    private Pool<? extends PiTerm> pool(PoolKind kind) {
+        switch(kind) {
+            case RESTRICTS:      return this.restricts;
+            case SUMS:           return this.sums;
+            case TAUS:           return this.taus;
+            case REPL_RESTRICTS: return this.replRestricts;
+            case REPL_SUMS:      return this.replSums;
+            case REPL_TAUS:      return this.replTaus;
+            default:
+                throw new IllegalArgumentException("Pool " + kind + " is " +
+                        "held in the ChannelIndex");
+        }
+    }
+
     /*
      * Reduce the given Send and Receive that are members of senders and
-     * receivers respectively, by exchanging a message.
+     * receivers respectively, by exchanging a message. The continuation of
+     * the Receive is given by exchange(), which is called before anything is
+     * changed, so that a reduction cut short by a StepCounter can be tried
+     * again.
      */
-    private void doCommunicate(Send send, Receive rece) {
+    private void doCommunicate(Send send, Receive rece,
+            PiTerm continuation) {
 
         if(!send.chnl().equals(rece.chnl())) {
             throw new IllegalArgumentException("Tried to pass a message " +
@@ -327,43 +808,238 @@ public class Interpreter {
                     "between terms of unequal arity");
         }
 
-        if(!(this.senders.contains(send) && this.receivers.contains(rece))) {
+        if(!(this.channels.contains(send) && this.channels.contains(rece))) {
             throw new IllegalArgumentException("Send send and Receive " +
-                    "rece parameters must be members of the senders and " +
-                    "receivers ArrayLists, respectively");
+                    "rece parameters must be top-level members of the " +
+                    "ChannelIndex");
         }
 
-        this.senders.remove(send);
-        this.receivers.remove(rece);
+        this.removeFrom(SENDERS, send);
+        this.removeFrom(RECEIVERS, rece);
+        if(this.metrics != null) {
+            this.metrics.reduced(ReductionKind.COMMUNICATION);
+        }
         this.integrateNewlyExposedTerm(send.subterm());
-        PiTerm receiverSub = rece.subterm();
+        this.integrateNewlyExposedTerm(continuation);
+    }
+
+    /*
+     * Reduce the given Send and Receive, one of which is a top-level member
+     * of the channel index and the other the body of a replicated term in it.
+     * The replicated term fires in place: the message is exchanged with its
+     * body directly, which stays in the index, and only the continuations are
+     * integrated.
+     */
+    private void doReplicatedCommunicate(Send send, Receive rece) {
+
+        if(!send.chnl().equals(rece.chnl())) {
+            throw new IllegalArgumentException("Tried to pass a message " +
+                    "between terms on different channels");
+        }
+
+        if(!(send.arity() == rece.arity())) {
+            throw new IllegalArgumentException("Tried to pass a message " +
+                    "between terms of unequal arity");
+        }
+
+        boolean replicatedReceive = this.channels.contains(send) &&
+                this.channels.containsReplicated(rece);
+        if(!replicatedReceive && !(this.channels.contains(rece) &&
+                this.channels.containsReplicated(send))) {
+            throw new IllegalArgumentException("One of Send send and " +
+                    "Receive rece must be a top-level member of the " +
+                    "ChannelIndex, and the other a replicated member");
+        }
+
+        // Evaluate the message before changing anything, as in
+        // doCommunicate()
+        PiTerm continuation = this.exchange(send, rece);
+        if(replicatedReceive) { this.removeFrom(SENDERS, send); }
+        else { this.removeFrom(RECEIVERS, rece); }
+
+        if(this.metrics != null) {
+            this.metrics.reduced(ReductionKind.COMMUNICATION);
+        }
+        this.integrateNewlyExposedTerm(send.subterm());
+        this.integrateNewlyExposedTerm(continuation);
+    }
+
+    /*
+     * Exchange a message between the given Send and Receive with the
+     * Interpreter's LambdaEvaluator, counting beta-steps with the StepCounter
+     * of the current run, if there is one, and in the Metrics, if there are
+     * any.
+     */
+    private PiTerm exchange(Send send, Receive rece) {
+        StepCounter counter = this.counter;
+        if(counter == null && this.metrics != null) {
+            counter = new StepCounter();
+        }
+        if(counter == null) {
+            return Interpreter.exchange(send, rece, this.evaluator, null);
+        }
+        long before = counter.steps();
+        try {
+            return Interpreter.exchange(send, rece, this.evaluator, counter);
+        }
+        finally {
+            if(this.metrics != null) {
+                this.metrics.betaSteps(counter.steps() - before);
+            }
+        }
+    }
+
+    /**
+     * Evaluate the message of the given Send and substitute it into the
+     * continuation of the given Receive, returning that continuation. Changes
+     * neither term, so exchanges between distinct pairs may run concurrently.
+     * @param send the sending term, whose expressions are evaluated
+     * @param rece the receiving term, whose continuation is substituted into
+     * @param evaluator the LambdaEvaluator to evaluate the expressions with
+     * @return the continuation of rece, with the message substituted in
+     */
+    static PiTerm exchange(Send send, Receive rece,
+            LambdaEvaluator evaluator) {
+
+        return Interpreter.exchange(send, rece, evaluator, null);
+    }
+
+    /**
+     * Exchange a message as exchange(Send, Receive, LambdaEvaluator) does,
+     * counting the beta-steps taken to evaluate it with a StepCounter, which
+     * may cut evaluation short.
+     * @param send the sending term, whose expressions are evaluated
+     * @param rece the receiving term, whose continuation is substituted into
+     * @param evaluator the LambdaEvaluator to evaluate the expressions with
+     * @param counter the StepCounter to count beta-steps with, or null not to
+     * count them
+     * @return the continuation of rece, with the message substituted in
+     */
+    static PiTerm exchange(Send send, Receive rece, LambdaEvaluator evaluator,
+            StepCounter counter) {
 
         // Evaluate the expressions contained in the sender
+        ArrayList<LambdaTerm> message = new ArrayList<>(send.arity());
         for(int i = 0; i < send.arity(); i++) {
-            send.setExp(i, LambdaReducer.reduce(send.exp(i),
-                    (Integer name) -> this.leaseNewName(name),
-                    () -> this.getNextAvailableName()));
+            message.add(counter == null ? evaluator.evaluate(send.exp(i)) :
+                    evaluator.evaluate(send.exp(i), counter));
         }
 
-        // To avoid clashes, first rename all sent names to a fresh name, and
-        // then rename those fresh names with the sent ones.
-        for(int i = 0, firstIntermediateName = this.nextAvailableName;
-                i < rece.arity(); i++, firstIntermediateName++) {
+        return PiReducer.msgPass(message, rece);
+    }
+
+    /**
+     * Perform, at once, a maximal set of communications between top-level
+     * Sends and Receives that share no process. The messages of the chosen
+     * pairs are evaluated and substituted in parallel on the given pool. The
+     * result is the same as
+     * that of performing these communications one after another with
+     * doReduction(). If no such communication is possible, or another
+     * reduction is in progress, a single doReduction() is performed instead.
+     * @param pool the pool on which to run the communications
+     * @return the number of reductions performed
+     */
+    public int doParallelReduction(ForkJoinPool pool) {
+        if(this.metrics == null) { return this.reduceInParallel(pool); }
+        long start = System.nanoTime();
+        int reductions = this.reduceInParallel(pool);
+        this.metrics.timed(System.nanoTime() - start);
+        return reductions;
+    }
+
+    /*
+     * Perform communications in parallel, as doParallelReduction() does.
+     */
+    private int reduceInParallel(ForkJoinPool pool) {
 
-            PiReducer.msgPass(rece.name(i),
-                    new Variable(firstIntermediateName), receiverSub,
-                    (Integer name) -> this.leaseNewName(name),
-                    () -> this.getNextAvailableName());
+        if(this.actingTerms.isPresent()) {
+            return this.reduce() ? 1 : 0;
         }
-        for(int i = 0, firstIntermediateName = this.nextAvailableName;
-                i < rece.arity(); i++, firstIntermediateName++) {
 
-            PiReducer.msgPass(firstIntermediateName, send.exp(i), receiverSub,
-                    (Integer name) -> this.leaseNewName(name),
-                    () -> this.getNextAvailableName());
+        ArrayList<Pair<Send, Receive>> pairs =
+                this.channels.removeDisjointCommunications();
+        if(pairs.isEmpty()) {
+            return this.reduce() ? 1 : 0;
+        }
+        for(Pair<Send, Receive> pair : pairs) {
+            this.redexes.remove(pair.frst, SENDERS);
+            this.redexes.remove(pair.scnd, RECEIVERS);
+            this.changed(SENDERS, pair.frst, false);
+            this.changed(RECEIVERS, pair.scnd, false);
         }
+        if(this.metrics != null) {
+            this.metrics.reduced(ReductionKind.COMMUNICATION, pairs.size());
+        }
+
+        int numTasks = (pairs.size() + COMMUNICATIONS_PER_TASK - 1) /
+                COMMUNICATIONS_PER_TASK;
+        PiTerm[] receiverSubs = new PiTerm[pairs.size()];
+
+        pool.invoke(new ExchangeTask(pairs, receiverSubs, this.evaluator,
+                this.metrics, 0, numTasks));
 
-        this.integrateNewlyExposedTerm(receiverSub);
+        for(int i = 0; i < pairs.size(); i++) {
+            this.integrateNewlyExposedTerm(pairs.get(i).frst.subterm());
+            this.integrateNewlyExposedTerm(receiverSubs[i]);
+        }
+        return pairs.size();
+    }
+
+    /*
+     * Runs exchange() on a range of tasks' worth of communicating pairs,
+     * splitting the range in half until it covers a single task. The
+     * beta-steps taken are counted in the Metrics, if there are any.
+     */
+    private static final class ExchangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<Pair<Send, Receive>> pairs;
+        private final PiTerm[] receiverSubs;
+        private final LambdaEvaluator evaluator;
+        private final Metrics metrics;
+        private final int firstTask;
+        private final int endTask;
+
+        ExchangeTask(ArrayList<Pair<Send, Receive>> pairs,
+                PiTerm[] receiverSubs, LambdaEvaluator evaluator,
+                Metrics metrics, int firstTask, int endTask) {
+
+            this.pairs = pairs;
+            this.receiverSubs = receiverSubs;
+            this.evaluator = evaluator;
+            this.metrics = metrics;
+            this.firstTask = firstTask;
+            this.endTask = endTask;
+        }
+
+        @Override
+        protected void compute() {
+            if(this.endTask - this.firstTask > 1) {
+                int mid = (this.firstTask + this.endTask) >>> 1;
+                RecursiveAction.invokeAll(
+                        new ExchangeTask(this.pairs, this.receiverSubs,
+                                this.evaluator, this.metrics, this.firstTask,
+                                mid),
+                        new ExchangeTask(this.pairs, this.receiverSubs,
+                                this.evaluator, this.metrics, mid,
+                                this.endTask));
+                return;
+            }
+
+            StepCounter counter =
+                    this.metrics == null ? null : new StepCounter();
+            int end = Math.min(this.pairs.size(),
+                    (this.firstTask + 1) * COMMUNICATIONS_PER_TASK);
+            for(int i = this.firstTask * COMMUNICATIONS_PER_TASK; i < end;
+                    i++) {
+
+                Pair<Send, Receive> pair = this.pairs.get(i);
+                this.receiverSubs[i] = Interpreter.exchange(pair.frst,
+                        pair.scnd, this.evaluator, counter);
+            }
+            if(counter != null) { this.metrics.betaSteps(counter.steps()); }
+        }
     }
 
     /*
@@ -373,11 +1049,12 @@ public class Interpreter {
 
         if(!(this.taus.contains(tau) || this.replTaus.contains(tau))) {
             throw new IllegalArgumentException("Tau tau parameter must be a " +
-                    "member of the taus or replTaus ArrayLists");
+                    "member of the taus or replTaus pools");
         }
 
+        if(this.metrics != null) { this.metrics.reduced(ReductionKind.TAU); }
         if(this.taus.contains(tau)) {
-            this.taus.remove(tau);
+            this.removeFrom(TAUS, tau);
             this.integrateNewlyExposedTerm(tau.subterm());
         }
         else if(this.replTaus.contains(tau)) {
@@ -392,15 +1069,18 @@ public class Interpreter {
 
         if(!(this.sums.contains(sum) || this.replSums.contains(sum))) {
             throw new IllegalArgumentException("NDSum sum parameter must be " +
-                    "a member of the sums or replSums ArrayLists");
+                    "a member of the sums or replSums pools");
         }
 
-        PiTerm chosen = Utils.arbitraryElement(Utils.filter(
+        PiTerm chosen = this.choose(Utils.filter(
                 (PiTerm tm) -> PiTerm.hasInternalAction(tm),
                 sum.subterms()));
 
+        if(this.metrics != null) {
+            this.metrics.reduced(ReductionKind.SUM_SELECTION);
+        }
         if(this.sums.contains(sum)) {
-            this.sums.remove(sum);
+            this.removeFrom(SUMS, sum);
             this.integrateNewlyExposedTerm(chosen);
         }
         else if(this.replSums.contains(sum)) {
@@ -409,96 +1089,32 @@ public class Interpreter {
     }
 
     /*
-     * Perform scope extrusion to the given member of the restricts ArrayList.
+     * Perform scope extrusion to the given member of the restricts pool.
      * Return a pointer to the newly exposed term, but do not reintegrate it.
      */
     private PiTerm doScopeExtrusion(Restrict rest) {
 
         if(!this.restricts.contains(rest)) {
             throw new IllegalArgumentException("Restrict rest parameter " +
-                    "must be a member of the restricts ArrayList");
+                    "must be a member of the restricts pool");
         }
 
-        this.restricts.remove(rest);
-
-        // Alpha convert
-        int newName = this.leaseNewName(rest.boundName());
-        rest.blindRename(rest.boundName(), newName);
+        this.removeFrom(RESTRICTS, rest);
 
-        // Extrude the scope
-        this.boundNames.add(rest.boundName());
-
-        // Return the newly exposed term
-        return rest.subterm();
-    }
-
-    /**
-     * Given an existing name non-printable (Integer) name, generate a new
-     * non-printable name for use as an alpha converted version of the given
-     * name, such that the printable version of the new name is based on the
-     * printable version of the given name. nameMap, usedNames and
-     * nextAvailableName are updated appropriately.
-     * @param existingName a name already in use
-     * @return a name to use for alpha-converted versions of existingName
-     */
-    Integer leaseNewName(Integer existingName) {
-        String printableVersion;
-        try {
-            printableVersion = this.getPrintableVersion(existingName);
-        }
-        catch(IllegalArgumentException iae) {
-            throw new IllegalArgumentException("Tried to lease a new integer " +
-                    "name from one that does not already exist in the " +
-                    "program.");
-        }
-        String newPrintable = this.nextStringName(printableVersion);
-        Integer newNonPrintable = this.nextAvailableName;
-        this.nameMap.put(newNonPrintable, newPrintable);
-        this.usedNames.add(newPrintable);
-        this.nextAvailableName++;
-        return newNonPrintable;
-    }
-
-    /**
-     * Access the next available name that can be used externally for
-     * intermediate substitutions.
-     * @return the next available name
-     */
-    Integer getNextAvailableName() {
-        return this.nextAvailableName;
-    }
-
-    /**
-     * Given a printable name present in the program, obtain a new string name
-     * to be used with alpha-converted versions of that name.
-     * @param baseName the original name
-     * @return the name that can be alpha-converted to
-     */
-    private String nextStringName(String baseName) {
-        while(this.usedNames.contains(baseName)) {
-            baseName += "'";
+        // Give the restricted name a fresh free name, and extrude the scope
+        int newName = this.names.lease(rest.boundName());
+        this.boundNames.add(newName);
+        if(this.metrics != null) {
+            this.metrics.reduced(ReductionKind.SCOPE_EXTRUSION);
+            this.metrics.leased();
         }
-        return baseName;
-    }
 
-    /**
-     * Lookup the nameMap to determine what String should be printed to
-     * represent a particular Integer name.
-     * @param name the Integer name
-     * @return the String version of the given name, for printing
-     */
-    private String getPrintableVersion(Integer name) {
-        if(!this.nameMap.containsKey(name)) {
-            throw new IllegalArgumentException("Tried to lookup the " +
-                    "printable name for an Integer name that does not have a " +
-                    "corresponding printable name - perhaps a String version " +
-                    "was not leased.");
-        }
-        return this.nameMap.get(name);
+        // Return the newly exposed term
+        return PiReducer.open(rest, newName);
     }
 
     /*
-     * Reduce an NDSum PiTerm found in the sums ArrayList. This is done by
+     * Reduce an NDSum PiTerm found in the sums pool. This is done by
      * identifing all the possibilities of the sum that communicate with the
      * other given PiTerm, removing the whole sum from its list, and
      * reintegrating one of the identified possiblities (randomly chosen).
@@ -508,7 +1124,7 @@ public class Interpreter {
 
         if(!this.sums.contains(sum)) {
             throw new IllegalArgumentException("NDSum sum parameter must be " +
-                    "a member of the sums ArrayList");
+                    "a member of the sums pool");
         }
 
         // Obtain a list of all the subterms of sum that talk to other.
@@ -526,17 +1142,20 @@ public class Interpreter {
         }
 
         // Remove the sum and choose the possibility
-        this.sums.remove(sum);
-        PiTerm chosen = Utils.arbitraryElement(commSubs);
+        this.removeFrom(SUMS, sum);
+        if(this.metrics != null) {
+            this.metrics.reduced(ReductionKind.SUM_SELECTION);
+        }
+        PiTerm chosen = this.choose(commSubs);
 
         if(other instanceof Send) {
-            this.senders.remove(other);
+            this.removeFrom(SENDERS, other);
         }
         else if(other instanceof Receive) {
-            this.receivers.remove(other);
+            this.removeFrom(RECEIVERS, other);
         }
         else if(other instanceof NDSum) {
-            this.sums.remove(other);
+            this.removeFrom(SUMS, other);
         }
         else {
             throw new IllegalArgumentException("Sum selection can only be " +
@@ -563,9 +1182,13 @@ public class Interpreter {
 
             if(t1 instanceof Send) {
                 if(t2 instanceof Receive) {
+                    PiTerm continuation =
+                            this.exchange((Send) t1, (Receive) t2);
+                    t1 = Pool.own(t1);
+                    t2 = Pool.own(t2);
                     this.integrateNewlyExposedTerm(t1);
                     this.integrateNewlyExposedTerm(t2);
-                    this.doCommunicate((Send) t1, (Receive) t2);
+                    this.doCommunicate((Send) t1, (Receive) t2, continuation);
                     this.actingTerms = Optional.empty();
                 }
                 else {
@@ -576,9 +1199,13 @@ public class Interpreter {
             }
             else if(t1 instanceof Receive) {
                 if(t2 instanceof Send) {
+                    PiTerm continuation =
+                            this.exchange((Send) t2, (Receive) t1);
+                    t1 = Pool.own(t1);
+                    t2 = Pool.own(t2);
                     this.integrateNewlyExposedTerm(t1);
                     this.integrateNewlyExposedTerm(t2);
-                    this.doCommunicate((Send) t2, (Receive) t1);
+                    this.doCommunicate((Send) t2, (Receive) t1, continuation);
                     this.actingTerms = Optional.empty();
                 }
                 else {
@@ -600,7 +1227,7 @@ public class Interpreter {
                 }
 
                 // Pick one to use
-                PiTerm chosen = Utils.arbitraryElement(commSubs);
+                PiTerm chosen = this.choose(commSubs);
 
                 // Either discard the others (for a sum) or integrate them (for
                 // a parallel composition)
@@ -624,6 +1251,9 @@ public class Interpreter {
             }
             else if(t1 instanceof Replicate) {
                 PiTerm t1SubCopy = ((Replicate) t1).subterm().copy();
+                if(this.metrics != null) {
+                    this.metrics.reduced(ReductionKind.REPLICATION);
+                }
                 this.integrateNewlyExposedTerm(t1);
                 this.actingTerms = Optional.of(
                         Either.frst(Pair.make(t1SubCopy, t2)));
@@ -657,7 +1287,7 @@ public class Interpreter {
                 }
 
                 Pair<PiTerm, PiTerm> chosenMatch =
-                        Utils.arbitraryElement(matches);
+                        this.choose(matches);
 
                 ArrayList<PiTerm> subterms = new ArrayList<>(para.subterms());
 
@@ -682,78 +1312,184 @@ public class Interpreter {
         }
     }
 
-    // Add a newly exposed term to the appropriate arraylist
+    // Add a newly exposed term to the appropriate arraylist, taking apart
+    // Parallels and Replicates with a stack rather than by recursion, however
+    // deeply they are nested. Components are added from left to right.
     private void integrateNewlyExposedTerm(PiTerm term) {
-        if(term instanceof Send) {
-            this.senders.add((Send) term);
-        }
-        else if(term instanceof Receive) {
-            this.receivers.add((Receive) term);
-        }
-        else if(term instanceof Replicate) {
+        ArrayDeque<PiTerm> toAdd = new ArrayDeque<>();
+        toAdd.push(term);
 
-            PiTerm subterm = ((Replicate) term).subterm();
+        while(!toAdd.isEmpty()) {
+            PiTerm next = Pool.own(toAdd.pop());
 
-            if(subterm instanceof Send) {
-                if(!(this.replSenders.contains(subterm))) {
-                    this.replSenders.add((Send) subterm);
-                }
+            if(next instanceof Send) {
+                this.addTo(SENDERS, next);
             }
-            else if(subterm instanceof Receive) {
-                if(!(this.replReceivers.contains(subterm))) {
-                    this.replReceivers.add((Receive) subterm);
-                }
+            else if(next instanceof Receive) {
+                this.addTo(RECEIVERS, next);
             }
-            else if(subterm instanceof Restrict) {
-                if(!(this.replRestricts.contains(subterm))) {
-                    this.replRestricts.add((Restrict) subterm);
+            else if(next instanceof Replicate) {
+
+                PiTerm subterm = ((Replicate) next).subterm();
+
+                if(subterm instanceof Send) {
+                    this.addTo(REPL_SENDERS, subterm);
                 }
-            }
-            else if(subterm instanceof Parallel) {
-                Parallel para = (Parallel) subterm;
-                for(int i = 0; i < para.arity(); i++) {
-                    this.integrateNewlyExposedTerm(
-                            new Replicate(para.subterm(i)));
+                else if(subterm instanceof Receive) {
+                    this.addTo(REPL_RECEIVERS, subterm);
+                }
+                else if(subterm instanceof Restrict) {
+                    this.addTo(REPL_RESTRICTS, subterm);
+                }
+                else if(subterm instanceof Parallel) {
+                    Parallel para = (Parallel) subterm;
+                    for(int i = para.arity() - 1; i >= 0; i--) {
+                        toAdd.push(new Replicate(para.subterm(i)));
+                    }
+                }
+                else if(subterm instanceof Replicate) {
+                    toAdd.push(subterm);
+                }
+                else if(subterm instanceof Tau) {
+                    this.addTo(REPL_TAUS, subterm);
+                }
+                else if(subterm instanceof NDSum) {
+                    this.addTo(REPL_SUMS, subterm);
                 }
+                else {
+                    throw new IllegalArgumentException("Non-standard PiTerm " +
+                            "found in program");
+                }
+
             }
-            else if(subterm instanceof Replicate) {
-                this.integrateNewlyExposedTerm(subterm);
+            else if(next instanceof Tau) {
+                this.addTo(TAUS, next);
             }
-            else if(subterm instanceof Tau) {
-                if(!(this.replTaus.contains(subterm))) {
-                    this.replTaus.add((Tau) subterm);
+            else if(next instanceof Parallel) {
+                Parallel para = (Parallel) next;
+                for(int i = para.arity() - 1; i >= 0; i--) {
+                    toAdd.push(para.subterm(i));
                 }
             }
-            else if(subterm instanceof NDSum) {
-                if(!(this.replSums.contains(subterm))) {
-                    this.replSums.add((NDSum) subterm);
-                }
+            else if(next instanceof Restrict) {
+                this.addTo(RESTRICTS, next);
+            }
+            else if(next instanceof NDSum) {
+                this.addTo(SUMS, next);
             }
             else {
-                throw new IllegalArgumentException("Non-standard PiTerm " + 
+                throw new IllegalArgumentException("Non-standard PiTerm " +
                         "found in program");
             }
-
         }
-        else if(term instanceof Tau) {
-            this.taus.add((Tau) term);
-        }
-        else if(term instanceof Parallel) {
-            Parallel para = (Parallel) term;
-            for(int i = 0; i < para.arity(); i++) {
-                this.integrateNewlyExposedTerm(para.subterm(i));
+    }
+
+    /*
+     * Add a term to the given pool, and tell the RedexIndex. A replicated
+     * pool takes the body of a Replicate, and is left as it is if it already
+     * holds that body.
+     */
+    @SuppressWarnings("unchecked")
+    private void addTo(PoolKind kind, PiTerm term) {
+        switch(kind) {
+            case SENDERS:
+                this.channels.add((Send) term);
+                break;
+            case RECEIVERS:
+                this.channels.add((Receive) term);
+                break;
+            case REPL_SENDERS:
+                if(!this.channels.addReplicated((Send) term)) { return; }
+                break;
+            case REPL_RECEIVERS:
+                if(!this.channels.addReplicated((Receive) term)) { return; }
+                break;
+            default:
+                Pool<PiTerm> pool = (Pool<PiTerm>) this.pool(kind);
+                if(kind.isReplicated()) {
+                    if(pool.contains(term)) { return; }
+                    term = Pool.own(term);
+                }
+                long key = this.scheduler.key(term);
+                pool.add(term, key);
+                this.redexes.add(term, kind, key);
+                this.changed(kind, term, true);
+                return;
+        }
+        this.redexes.add((PiTermComm) term, kind);
+        this.changed(kind, term, true);
+    }
+
+    /*
+     * Remove a term from the given pool, and tell the RedexIndex. The term
+     * must be a member of the pool.
+     */
+    private void removeFrom(PoolKind kind, PiTerm term) {
+        switch(kind) {
+            case SENDERS:
+                this.channels.remove((Send) term);
+                break;
+            case RECEIVERS:
+                this.channels.remove((Receive) term);
+                break;
+            default:
+                this.pool(kind).remove(term);
+        }
+        this.redexes.remove(term, kind);
+        this.changed(kind, term, false);
+    }
+
+    /*
+     * Account for a process added to or removed from a pool, in the number
+     * and size of the live processes, the Metrics and the record of changes.
+     */
+    private void changed(PoolKind kind, PiTerm term, boolean addition) {
+        int sign = addition ? 1 : -1;
+        this.processes += sign;
+        if(this.termSize >= 0) {
+            this.termSize += sign * Interpreter.size(term);
+        }
+        if(this.metrics != null) { this.metrics.added(kind, sign); }
+        this.recordChange(term, kind.isReplicated(), addition);
+    }
+
+    /*
+     * Count the nodes of a term, including those of the LambdaTerms in it.
+     */
+    private static long size(Term term) {
+        ArrayDeque<Term> stack = new ArrayDeque<>();
+        stack.push(term);
+        long size = 0;
+        while(!stack.isEmpty()) {
+            Term next = stack.pop();
+            size++;
+            for(int i = 0; i < next.childCount(); i++) {
+                stack.push(next.child(i));
             }
         }
-        else if(term instanceof Restrict) {
-            this.restricts.add((Restrict) term);
-        }
-        else if(term instanceof NDSum) {
-            this.sums.add((NDSum) term);
-        }
-        else {
-            throw new IllegalArgumentException("Non-standard PiTerm found " +
-                    "in program");
+        return size;
+    }
+
+    /*
+     * Begin keeping the total size of the live processes up to date, starting
+     * from their current size.
+     */
+    private void trackTermSize() {
+        if(this.termSize >= 0) { return; }
+        long size = 0;
+        for(PoolKind kind : PoolKind.values()) {
+            for(PiTerm member : this.members(kind)) {
+                size += Interpreter.size(member);
+            }
         }
+        this.termSize = size;
+    }
+
+    /*
+     * Access the members of a pool, whether or not it is indexed by channel.
+     */
+    private Iterable<? extends PiTerm> members(PoolKind kind) {
+        return kind.isIndexed() ? this.channels.all(kind) : this.pool(kind);
     }
 
     /**
@@ -761,58 +1497,174 @@ public class Interpreter {
      * @return a String representation of the 'term' in its current state
      */
     public String toString() {
-        ArrayList<String> termStrings = new ArrayList<>();
+        StringBuilder str = new StringBuilder();
+        this.appendTo(str);
+        return str.toString();
+    }
+
+    /**
+     * Append the representation given by toString() to a StringBuilder,
+     * without building a String of it first, so that a StringBuilder can be
+     * reused from one state to the next.
+     * @param str the StringBuilder to append to
+     */
+    public void appendTo(StringBuilder str) {
+        Function<Integer, String> nameMap = this.names::printable;
+        for(int i = 0; i < this.boundNames.size(); i++) {
+            str.append("new ").append(nameMap.apply(this.boundNames.get(i)))
+                    .append(" in ");
+        }
+
+        int open = str.length();
+        str.append("[ ");
+        int first = str.length();
         if(this.actingTerms.isPresent()) {
             if(this.actingTerms.get().frst.isPresent()) {
-                termStrings.add(this.actingTerms.get().frst.get().frst
-                        .toStringWithNameMap(this.nameMap));
-                termStrings.add(this.actingTerms.get().frst.get().scnd
-                        .toStringWithNameMap(this.nameMap));
+                Interpreter.appendProcess(str, first, nameMap,
+                        this.actingTerms.get().frst.get().frst, false);
+                Interpreter.appendProcess(str, first, nameMap,
+                        this.actingTerms.get().frst.get().scnd, false);
             }
             else {
-                termStrings.add(this.actingTerms.get().scnd.get()
-                        .toStringWithNameMap(this.nameMap));
+                Interpreter.appendProcess(str, first, nameMap,
+                        this.actingTerms.get().scnd.get(), false);
             }
         }
-        for(Send send : this.senders) {
-            termStrings.add(send.toStringWithNameMap(this.nameMap));
+        for(PoolKind kind : PoolKind.values()) {
+            for(PiTerm member : this.members(kind)) {
+                Interpreter.appendProcess(str, first, nameMap, member,
+                        kind.isReplicated());
+            }
         }
-        for(Receive rece : this.receivers) {
-            termStrings.add(rece.toStringWithNameMap(this.nameMap));
+
+        if(str.length() == first) {
+            str.setLength(open);
+            str.append("0");
         }
-        for(Restrict rest : this.restricts) {
-            termStrings.add(rest.toStringWithNameMap(this.nameMap));
+        else { str.append(" ]"); }
+    }
+
+    /**
+     * Begin keeping track of the processes added to and removed from the
+     * pools, to be printed by appendChanges().
+     */
+    public void trackChanges() {
+        if(this.added == null) {
+            this.added = new ArrayList<>();
+            this.removed = new ArrayList<>();
+            this.shownActing = this.actingList();
+            this.shownNames = this.boundNames.size();
         }
-        for(NDSum sum : this.sums) {
-            termStrings.add(sum.toStringWithNameMap(this.nameMap));
+    }
+
+    /**
+     * Append the changes to the processes given by toString() since changes
+     * were last appended, or began to be tracked, and forget them. Each change
+     * is on a line of its own: "+ new " and a name for each name brought into
+     * scope, then "- " and each process removed, then "+ " and each process
+     * added. A process that was both added and removed in that time is left
+     * out.
+     * @param str the StringBuilder to append to
+     */
+    public void appendChanges(StringBuilder str) {
+        if(this.added == null) {
+            throw new IllegalStateException("Changes are not being tracked");
         }
-        for(Tau tau : this.taus) {
-            termStrings.add(tau.toStringWithNameMap(this.nameMap));
+
+        // The terms in the middle of a reduction are shown too, so count them
+        // in and out as they come and go
+        ArrayList<PiTerm> acting = this.actingList();
+        for(PiTerm term : this.shownActing) {
+            if(!Interpreter.containsIdentical(acting, term)) {
+                this.recordChange(term, false, false);
+            }
         }
-        for(Send send : this.replSenders) {
-            termStrings.add("! " + send.toStringWithNameMap(this.nameMap));
+        for(PiTerm term : acting) {
+            if(!Interpreter.containsIdentical(this.shownActing, term)) {
+                this.recordChange(term, false, true);
+            }
         }
-        for(Receive rece : this.replReceivers) {
-            termStrings.add("! " + rece.toStringWithNameMap(this.nameMap));
+        this.shownActing = acting;
+
+        Function<Integer, String> nameMap = this.names::printable;
+        for(; this.shownNames < this.boundNames.size(); this.shownNames++) {
+            int name = this.boundNames.get(this.shownNames);
+            str.append("+ new ").append(nameMap.apply(name)).append('\n');
         }
-        for(Restrict rest : this.replRestricts) {
-            termStrings.add("! " + rest.toStringWithNameMap(this.nameMap));
+        for(Pair<PiTerm, Boolean> change : this.removed) {
+            str.append("- ");
+            if(change.scnd) { str.append("! "); }
+            change.frst.appendWithNameMap(nameMap, str);
+            str.append('\n');
         }
-        for(NDSum sum : this.replSums) {
-            termStrings.add("! " + sum.toStringWithNameMap(this.nameMap));
+        for(Pair<PiTerm, Boolean> change : this.added) {
+            str.append("+ ");
+            if(change.scnd) { str.append("! "); }
+            change.frst.appendWithNameMap(nameMap, str);
+            str.append('\n');
         }
-        for(Tau tau : this.replTaus) {
-            termStrings.add("! " + tau.toStringWithNameMap(this.nameMap));
+        this.added.clear();
+        this.removed.clear();
+    }
+
+    /*
+     * Append a process to the list of processes that begins at position
+     * first, separating it from any before it.
+     */
+    private static void appendProcess(StringBuilder str, int first,
+            Function<Integer, String> nameMap, PiTerm term,
+            boolean replicated) {
+
+        if(str.length() > first) { str.append(" | "); }
+        if(replicated) { str.append("! "); }
+        term.appendWithNameMap(nameMap, str);
+    }
+
+    /*
+     * Note that a process was added or removed, if changes are being tracked.
+     * Adding a process cancels out removing the same one, and vice versa.
+     */
+    private void recordChange(PiTerm term, boolean replicated,
+            boolean addition) {
+
+        if(this.added == null) { return; }
+        ArrayList<Pair<PiTerm, Boolean>> opposite =
+                addition ? this.removed : this.added;
+        for(int i = opposite.size() - 1; i >= 0; i--) {
+            if(opposite.get(i).frst == term) {
+                opposite.remove(i);
+                return;
+            }
         }
-        String procs = termStrings.isEmpty() ? "" : termStrings.remove(0);
-        while(!termStrings.isEmpty()) {
-            procs += " | " + termStrings.remove(0);
+        (addition ? this.added : this.removed).add(
+                Pair.make(term, replicated));
+    }
+
+    /*
+     * List the actingTerms, if any.
+     */
+    private ArrayList<PiTerm> actingList() {
+        ArrayList<PiTerm> acting = new ArrayList<>(2);
+        if(this.actingTerms.isPresent()) {
+            if(this.actingTerms.get().frst.isPresent()) {
+                acting.add(this.actingTerms.get().frst.get().frst);
+                acting.add(this.actingTerms.get().frst.get().scnd);
+            }
+            else { acting.add(this.actingTerms.get().scnd.get()); }
         }
-        String scope = "";
-        for(Integer i : this.boundNames) {
-            scope += "new " + this.nameMap.get(i) + " in ";
+        return acting;
+    }
+
+    /*
+     * Determine if the given term (not merely an equal one) is in a list.
+     */
+    private static boolean containsIdentical(ArrayList<PiTerm> terms,
+            PiTerm term) {
+
+        for(PiTerm member : terms) {
+            if(member == term) { return true; }
         }
-        return scope + (procs.equals("") ? "0" : "[ " + procs + " ]");
+        return false;
     }
 
     /**
@@ -823,8 +1675,8 @@ public class Interpreter {
      * between the given lists
      */
     public static ArrayList<Pair<PiTerm, PiTerm>> findMatches(
-            ArrayList<? extends PiTerm> list1,
-            ArrayList<? extends PiTerm> list2) {
+            Iterable<? extends PiTerm> list1,
+            Iterable<? extends PiTerm> list2) {
 
         ArrayList<Pair<PiTerm, PiTerm>> matches =
                 new ArrayList<Pair<PiTerm, PiTerm>>();
@@ -0,0 +1,368 @@
+package interpreter;
+
+import syntax.*;
+import java.util.ArrayDeque;
+
+/**
+ * Evaluates LambdaTerms with a lazy Krivine machine, rather than by
+ * substitution as LambdaReducer does. Arguments are not copied into the terms
+ * they are passed to. Instead, each is wrapped in a Thunk together with the
+ * environment its bound names refer to, and the Thunk is shared by every
+ * occurrence of the bound name. A Thunk is evaluated at most once, when its
+ * value is first needed (call-by-need), so the memory used while evaluating a
+ * term that duplicates its arguments grows with the number of reductions
+ * rather than with the size of the terms that substitution would build.
+ *
+ * Only the result is turned back into a LambdaTerm. It is the same term that
+ * LambdaReducer gives, but each Thunk is read back (or evaluated to normal
+ * form) only once, and the node built for it is shared by every occurrence,
+ * so the result is a graph no larger than the work done to build it.
+ */
+public final class KrivineMachine implements LambdaEvaluator {
+
+    /*
+     * A term together with the environment its bound names refer to. Its
+     * value is filled in the first time it is evaluated.
+     */
+    private static final class Thunk {
+
+        final LambdaTerm term;
+        final Env env;
+        Value value;
+
+        // The term read back from this, and its normal form, once they have
+        // begun to be built, to be shared by every occurrence
+        LambdaTerm readBack;
+        LambdaTerm normal;
+
+        Thunk(LambdaTerm term, Env env) {
+            this.term = term;
+            this.env = env;
+            this.value = null;
+            this.readBack = null;
+            this.normal = null;
+        }
+    }
+
+    /*
+     * A list of the Thunks that bound names refer to, the innermost binder
+     * first, so that a bound name's index is its position in the list.
+     */
+    private static final class Env {
+
+        final Thunk head;
+        final Env tail;
+
+        Env(Thunk head, Env tail) {
+            this.head = head;
+            this.tail = tail;
+        }
+
+        static Thunk lookup(Env env, int index) {
+            for(int i = 0; i < index && env != null; i++) { env = env.tail; }
+            if(env == null) {
+                throw new IllegalArgumentException("Tried to evaluate a " +
+                        "LambdaTerm that contains unbound indices");
+            }
+            return env.head;
+        }
+    }
+
+    /*
+     * The weak-head normal form of a Thunk - either a Closure or a Neutral.
+     */
+    private static abstract class Value {}
+
+    /*
+     * An Abstraction together with the environment of its body.
+     */
+    private static final class Closure extends Value {
+
+        final Abstraction abs;
+        final Env env;
+
+        Closure(Abstraction abs, Env env) {
+            this.abs = abs;
+            this.env = env;
+        }
+    }
+
+    /*
+     * A free name applied to zero or more arguments. A free name on its own
+     * has a null func, and otherwise func is the Neutral being applied to arg.
+     */
+    private static final class Neutral extends Value {
+
+        final Integer name;
+        final Neutral func;
+        final Thunk arg;
+
+        Neutral(Integer name, Neutral func, Thunk arg) {
+            this.name = name;
+            this.func = func;
+            this.arg = arg;
+        }
+    }
+
+    /*
+     * An entry on the machine's stack - either an argument waiting to be
+     * passed to the value being computed, or a Thunk to update with it.
+     */
+    private static final class Frame {
+
+        final Thunk thunk;
+        final boolean update;
+
+        Frame(Thunk thunk, boolean update) {
+            this.thunk = thunk;
+            this.update = update;
+        }
+    }
+
+    /*
+     * A part of the result still to be built: the child of parent at index,
+     * which is either the normal form of thunk or, if thunk is null, term read
+     * back in env beneath depth binders of its own. If term is that of a
+     * Thunk, owner is the Thunk, to remember the node built for it.
+     */
+    private static final class Task {
+
+        final Term parent;
+        final int index;
+        final Thunk thunk;
+        final LambdaTerm term;
+        final Env env;
+        final int depth;
+        final Thunk owner;
+
+        Task(Term parent, int index, Thunk thunk, LambdaTerm term, Env env,
+                int depth, Thunk owner) {
+
+            this.parent = parent;
+            this.index = index;
+            this.thunk = thunk;
+            this.term = term;
+            this.env = env;
+            this.depth = depth;
+            this.owner = owner;
+        }
+
+        /*
+         * Place the node built for this Task in its parent, remembering it as
+         * the node for the Thunk it was built for, if any.
+         */
+        void place(LambdaTerm node) {
+            this.parent.setChild(this.index, node);
+            if(this.thunk != null) { this.thunk.normal = node; }
+            else if(this.owner != null) { this.owner.readBack = node; }
+        }
+    }
+
+    /**
+     * Evaluate a LambdaTerm to weak-head normal form, evaluating the arguments
+     * of a free name at the head in the same way. The given term is not
+     * mutated, but may share structure with the result.
+     * @param term the term to evaluate, which must contain no bound names
+     * outside of its own abstractions
+     * @return the evaluated term
+     */
+    public LambdaTerm evaluate(LambdaTerm term) {
+        return this.evaluate(term, null);
+    }
+
+    /**
+     * Evaluate a LambdaTerm as evaluate(LambdaTerm) does, counting each
+     * beta-step taken with a StepCounter, which may cut evaluation short.
+     * @param term the term to evaluate, which must contain no bound names
+     * outside of its own abstractions
+     * @param counter the StepCounter to count beta-steps with, or null not to
+     * count them
+     * @return the evaluated term
+     */
+    public LambdaTerm evaluate(LambdaTerm term, StepCounter counter) {
+
+        // The result is built from the top down, so until it is complete it is
+        // held as the body of a placeholder Abstraction
+        Abstraction result = new Abstraction(0, null);
+        ArrayDeque<Task> tasks = new ArrayDeque<>();
+        tasks.push(new Task(result, 0, new Thunk(term, null), null, null, 0,
+                null));
+
+        while(!tasks.isEmpty()) {
+            Task task = tasks.pop();
+            if(task.thunk != null) {
+                KrivineMachine.normalForm(task, tasks, counter);
+            }
+            else {
+                KrivineMachine.readBack(task, tasks);
+            }
+        }
+        return result.body();
+    }
+
+    /*
+     * Evaluate the Thunk of a Task, and turn its value back into a LambdaTerm.
+     * The arguments of a Neutral are evaluated by further Tasks.
+     */
+    private static void normalForm(Task task, ArrayDeque<Task> tasks,
+            StepCounter counter) {
+
+        if(task.thunk.normal != null) {
+            task.parent.setChild(task.index, task.thunk.normal);
+            return;
+        }
+        Value value = KrivineMachine.force(task.thunk, counter);
+        if(value instanceof Closure) {
+            Closure closure = (Closure) value;
+            Abstraction abs = new Abstraction(closure.abs.name(), null);
+            task.place(abs);
+            tasks.push(new Task(abs, 0, null, closure.abs.body(),
+                    closure.env, 1, null));
+            return;
+        }
+
+        Neutral neutral = (Neutral) value;
+        if(neutral.func == null) {
+            task.place(new Variable(neutral.name));
+            return;
+        }
+        Application app = new Application(null, null);
+        task.place(app);
+        while(true) {
+            tasks.push(new Task(app, 1, neutral.arg, null, null, 0, null));
+            neutral = neutral.func;
+            if(neutral.func == null) { break; }
+            Application func = new Application(null, null);
+            app.setChild(0, func);
+            app = func;
+        }
+        app.setChild(0, new Variable(neutral.name));
+    }
+
+    /*
+     * Turn the term of a Task back into a LambdaTerm by substituting the terms
+     * of the Thunks in its environment for the bound names that refer to
+     * them, as LambdaReducer would have done. Names bound by the binders
+     * within the term are left alone. As the term of a Thunk refers to nothing
+     * outside of its environment, what it reads back to is the same wherever
+     * it occurs, so it is built once and shared.
+     */
+    private static void readBack(Task task, ArrayDeque<Task> tasks) {
+        LambdaTerm term = task.term;
+        if(term instanceof Variable) {
+            Integer name = ((Variable) term).name();
+            if(!Term.isBound(name) || Term.indexOf(name) < task.depth) {
+                task.place(new Variable(name));
+                return;
+            }
+
+            // A Thunk whose term is itself a bound name reads back to the
+            // same as the Thunk that name refers to
+            Thunk thunk = Env.lookup(task.env,
+                    Term.indexOf(name) - task.depth);
+            while(thunk.readBack == null && thunk.term instanceof Variable &&
+                    Term.isBound(((Variable) thunk.term).name())) {
+
+                thunk = Env.lookup(thunk.env,
+                        Term.indexOf(((Variable) thunk.term).name()));
+            }
+            if(thunk.readBack != null) {
+                task.place(thunk.readBack);
+            }
+            else {
+                tasks.push(new Task(task.parent, task.index, null, thunk.term,
+                        thunk.env, 0, thunk));
+            }
+        }
+        else if(term instanceof Abstraction) {
+            Abstraction abs = (Abstraction) term;
+            Abstraction copy = new Abstraction(abs.name(), null);
+            task.place(copy);
+            tasks.push(new Task(copy, 0, null, abs.body(), task.env,
+                    task.depth + 1, null));
+        }
+        else if(term instanceof Application) {
+            Application app = (Application) term;
+            Application copy = new Application(null, null);
+            task.place(copy);
+            tasks.push(new Task(copy, 1, null, app.arg(), task.env,
+                    task.depth, null));
+            tasks.push(new Task(copy, 0, null, app.func(), task.env,
+                    task.depth, null));
+        }
+        else {
+            throw new IllegalArgumentException("Unrecognised LambdaTerm type " +
+                    "in KrivineMachine.readBack()");
+        }
+    }
+
+    /*
+     * Run the machine to find the value of a Thunk, updating every Thunk that
+     * is evaluated along the way with its value. Each Closure applied to an
+     * argument is a beta-step, counted with counter unless it is null.
+     */
+    private static Value force(Thunk root, StepCounter counter) {
+        if(root.value != null) { return root.value; }
+
+        ArrayDeque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root, true));
+        LambdaTerm term = root.term;
+        Env env = root.env;
+        Value value = null;
+
+        while(true) {
+
+            // Find the value of term in env
+            if(value == null) {
+                if(term instanceof Application) {
+                    Application app = (Application) term;
+                    stack.push(new Frame(new Thunk(app.arg(), env), false));
+                    term = app.func();
+                }
+                else if(term instanceof Abstraction) {
+                    value = new Closure((Abstraction) term, env);
+                }
+                else if(term instanceof Variable) {
+                    Integer name = ((Variable) term).name();
+                    if(!Term.isBound(name)) {
+                        value = new Neutral(name, null, null);
+                    }
+                    else {
+                        Thunk thunk = Env.lookup(env, Term.indexOf(name));
+                        if(thunk.value != null) {
+                            value = thunk.value;
+                        }
+                        else {
+                            stack.push(new Frame(thunk, true));
+                            term = thunk.term;
+                            env = thunk.env;
+                        }
+                    }
+                }
+                else {
+                    throw new IllegalArgumentException("Unrecognised " +
+                            "LambdaTerm type in KrivineMachine.force()");
+                }
+            }
+
+            // Pass value to the innermost frame
+            else {
+                if(stack.isEmpty()) { return value; }
+                Frame frame = stack.pop();
+                if(frame.update) {
+                    frame.thunk.value = value;
+                }
+                else if(value instanceof Closure) {
+                    if(counter != null) { counter.step(); }
+                    Closure closure = (Closure) value;
+                    term = closure.abs.body();
+                    env = new Env(frame.thunk, closure.env);
+                    value = null;
+                }
+                else {
+                    value = new Neutral(null, (Neutral) value, frame.thunk);
+                }
+            }
+        }
+    }
+}
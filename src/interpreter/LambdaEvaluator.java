@@ -0,0 +1,33 @@
+package interpreter;
+
+import syntax.LambdaTerm;
+
+/**
+ * Evaluates the LambdaTerms that are sent in messages.
+ */
+public interface LambdaEvaluator {
+
+    /**
+     * Evaluate a LambdaTerm to weak-head normal form. If the head of the
+     * result is a free name, the arguments it is applied to are evaluated in
+     * the same way. The given term is left unchanged.
+     * @param term the term to evaluate, which must contain no bound names
+     * outside of its own abstractions
+     * @return the evaluated term
+     */
+    LambdaTerm evaluate(LambdaTerm term);
+
+    /**
+     * Evaluate a LambdaTerm as evaluate(LambdaTerm) does, counting each
+     * beta-step taken with the given StepCounter, which may cut evaluation
+     * short. An evaluator that cannot count its steps need not override this,
+     * but then takes no notice of limits on them.
+     * @param term the term to evaluate, which must contain no bound names
+     * outside of its own abstractions
+     * @param counter the StepCounter to count beta-steps with
+     * @return the evaluated term
+     */
+    default LambdaTerm evaluate(LambdaTerm term, StepCounter counter) {
+        return this.evaluate(term);
+    }
+}
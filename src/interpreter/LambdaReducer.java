@@ -1,14 +1,11 @@
 package interpreter;
 
-import syntax.Term;
 import syntax.LambdaTerm;
 import syntax.Abstraction;
 import syntax.Application;
 import syntax.Variable;
-import java.util.HashSet;
-import java.util.HashMap;
-import java.util.function.UnaryOperator;
-import java.util.function.Supplier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 
 /**
  * Contains static functions for reducing LambdaTerms.
@@ -16,103 +13,113 @@ import java.util.function.Supplier;
 public final class LambdaReducer {
 
     /**
-     * Reduce a LambdaTerm until it is in weak-head normal form. Mutates the
-     * given term - do not keep any pointers to it after calling.
-     * @param term the term to reduce
-     * @param nameGenerator Function to obtain fresh names
-     * @param nextAvailableName Accessor to the nextAvailableName field in the
-     * Interpreter
-     * @return the reduced term
+     * A LambdaEvaluator that reduces terms with reduce(), and counts the
+     * beta-steps it takes when given a StepCounter.
      */
-    public static LambdaTerm reduce(LambdaTerm term,
-            UnaryOperator<Integer> nameGenerator,
-            Supplier<Integer> nextAvailableName) {
+    public static final LambdaEvaluator EVALUATOR = new LambdaEvaluator() {
 
-        if(!(term instanceof Abstraction
-                || term instanceof Application
-                || term instanceof Variable)) {
+        public LambdaTerm evaluate(LambdaTerm term) {
+            return LambdaReducer.reduce(term, null);
+        }
 
-            throw new IllegalArgumentException("Unrecognised LambdaTerm type " +
-                    "in LambdaTerm.reduce()");
+        public LambdaTerm evaluate(LambdaTerm term, StepCounter counter) {
+            return LambdaReducer.reduce(term, counter);
         }
+    };
 
-        // Delve into the term to find reductions if there isn't one at the top
-        if(term instanceof Application
-                && (!(((Application) term).func() instanceof Abstraction))) {
+    /**
+     * Reduce a LambdaTerm until it is in weak-head normal form, reducing the
+     * arguments of a free name at the head in the same way. The given term is
+     * left unchanged, and shares any parts that need no reduction with the
+     * result. The term must contain no bound names outside of its own
+     * abstractions. Can be used as a LambdaEvaluator with
+     * LambdaReducer::reduce, or as EVALUATOR.
+     * @param term the term to reduce
+     * @return the reduced term
+     */
+    public static LambdaTerm reduce(LambdaTerm term) {
+        return LambdaReducer.reduce(term, null);
+    }
 
-            Application app = (Application) term;
-            app.setFunc(LambdaReducer.reduce(app.func(), nameGenerator,
-                    nextAvailableName));
-            app.setArg(LambdaReducer.reduce(app.arg(), nameGenerator,
-                    nextAvailableName));
-        }
+    /**
+     * Reduce a LambdaTerm as reduce(LambdaTerm) does, counting each beta-step
+     * taken with a StepCounter, which may cut the reduction short.
+     * @param term the term to reduce
+     * @param counter the StepCounter to count beta-steps with, or null not to
+     * count them
+     * @return the reduced term
+     */
+    public static LambdaTerm reduce(LambdaTerm term, StepCounter counter) {
 
-        // If there is a redex, reduce it
-        while(term instanceof Application
-                && ((Application) term).func() instanceof Abstraction) {
-
-            /*
-             *           app
-             *          /   \
-             *         /     \
-             *       abs     arg    ->    body{arg/name}
-             *      /   \
-             *     /     \
-             *   name    body
-             */
-            Application app = (Application) term;
-            Abstraction abs = (Abstraction) app.func();
-
-            // Prevent name clashes occuring.
-            PiReducer.preventClashes(app.arg(), abs.body(), nameGenerator,
-                    nextAvailableName);
-
-            // Do the substitution.
-            term = LambdaReducer.substitute(abs.name(), app.arg(), abs.body());
+        // Applications whose function is stuck on a free name, and whose
+        // arguments must be reduced in turn
+        ArrayDeque<Application> stuck = new ArrayDeque<>();
+
+        LambdaTerm reduced = LambdaReducer.reduceHead(term, stuck, counter);
+        while(!stuck.isEmpty()) {
+            Application app = stuck.pop();
+            app.setArg(LambdaReducer.reduceHead(app.arg(), stuck, counter));
         }
-        return term;
+        return reduced;
     }
 
-    /**
-     * Substitute all occurences of the variable replacing with the term with,
-     * within the term in.
-     * @param in the expression to substitute inside
-     * @param replacing the variable to substitue out
-     * @param with the term to substitute in
-     * @return a pointer to the generated term
+    /*
+     * Reduce the head of a term until it is an Abstraction or a free name.
+     * The Applications of a free name at the head are added to stuck, and the
+     * beta-steps taken counted with counter, unless it is null.
      */
-    public static LambdaTerm substitute(Integer replacing, LambdaTerm with,
-            LambdaTerm in) {
+    private static LambdaTerm reduceHead(LambdaTerm term,
+            ArrayDeque<Application> stuck, StepCounter counter) {
 
-        if(in instanceof Abstraction) {
-            Abstraction abs = (Abstraction) in;
-            if(abs.name().equals(replacing)) {
-                return in;
+        // The Applications between the top of the term and its head,
+        // innermost on top
+        ArrayDeque<Application> spine = new ArrayDeque<>();
+
+        while(true) {
+            if(term instanceof Application) {
+                Application app = (Application) term;
+                spine.push(app);
+                term = app.func();
             }
-            else {
-                abs.setBody(LambdaReducer.substitute(replacing, with,
-                        abs.body()));
-                return abs;
+
+            // If there is a redex, reduce it
+            else if(term instanceof Abstraction && !spine.isEmpty()) {
+
+                /*
+                 *           app
+                 *          /   \
+                 *         /     \
+                 *       abs     arg    ->    body{arg/0}
+                 *      /   \
+                 *     /     \
+                 *   name    body
+                 */
+                Application app = spine.pop();
+                Abstraction abs = (Abstraction) term;
+
+                // The argument has no bound names of its own, so it can be
+                // substituted for the abstraction's index without capture
+                ArrayList<LambdaTerm> arg = new ArrayList<>(1);
+                arg.add(app.arg());
+                term = abs.body().instantiate(0, arg);
+                if(counter != null) { counter.step(); }
             }
-        }
-        else if(in instanceof Application) {
-            Application app = (Application) in;
-            app.setFunc(LambdaReducer.substitute(replacing, with, app.func()));
-            app.setArg(LambdaReducer.substitute(replacing, with, app.arg()));
-            return app;
-        }
-        else if(in instanceof Variable) {
-            Variable var = (Variable) in;
-            if(var.name().equals(replacing)) {
-                return with.copy();
+            else if(term instanceof Abstraction || term instanceof Variable) {
+                break;
             }
             else {
-                return var;
+                throw new IllegalArgumentException("Unrecognised LambdaTerm " +
+                        "type in LambdaTerm.reduce()");
             }
         }
-        else {
-            throw new IllegalArgumentException("Unrecognised LambdaTerm type " +
-                    "in LambdaReducer.substitute()");
+
+        // Put the reduced head back beneath new copies of the remaining
+        // Applications, whose arguments are then free to be replaced
+        while(!spine.isEmpty()) {
+            Application app = new Application(term, spine.pop().arg());
+            stuck.push(app);
+            term = app;
         }
+        return term;
     }
 }
@@ -0,0 +1,316 @@
+package interpreter;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts what an Interpreter does: the reductions it performs of each kind,
+ * the sizes of its pools, the fresh names it leases, the beta-steps taken by
+ * LambdaReducer to evaluate messages, and how long each call to doReduction()
+ * or doParallelReduction() takes. An Interpreter only keeps count when given
+ * Metrics (see Interpreter.setMetrics()), and otherwise pays a null check per
+ * event.
+ *
+ * Counts may be updated from several threads, as when messages are evaluated
+ * in parallel or Interpreters share their Metrics, and read from any other,
+ * such as through JMX (see register()) while the Interpreter runs.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    // Latencies are counted in buckets by the position of their highest set
+    // bit, so bucket i holds latencies of less than 2^(i + 1) nanoseconds
+    private static final int BUCKETS = 64;
+
+    // Counts by ReductionKind and PoolKind
+    private final LongAdder[] reductions;
+    private final LongAdder[] poolSizes;
+
+    private final LongAdder freshNames;
+    private final LongAdder betaSteps;
+
+    private final AtomicLongArray latencies;
+    private final LongAdder totalLatency;
+    private final LongAccumulator maxLatency;
+
+    // The name this is registered under with JMX, if it is
+    private ObjectName name;
+
+    /**
+     * Construct a new Metrics with every count zero.
+     */
+    public Metrics() {
+        this.reductions = Metrics.adders(ReductionKind.values().length);
+        this.poolSizes = Metrics.adders(PoolKind.values().length);
+        this.freshNames = new LongAdder();
+        this.betaSteps = new LongAdder();
+        this.latencies = new AtomicLongArray(BUCKETS);
+        this.totalLatency = new LongAdder();
+        this.maxLatency = new LongAccumulator(Math::max, 0);
+        this.name = null;
+    }
+
+    /**
+     * Publish these Metrics through the platform MBean server, under the
+     * name "japi:type=Interpreter,name=" followed by the given name.
+     * @param name the name to distinguish these Metrics from others by
+     */
+    public synchronized void register(String name) {
+        if(this.name != null) {
+            throw new IllegalStateException("Metrics are already registered " +
+                    "as " + this.name);
+        }
+        try {
+            ObjectName objectName = new ObjectName(
+                    "japi:type=Interpreter,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    objectName);
+            this.name = objectName;
+        }
+        catch(JMException e) {
+            throw new IllegalStateException("Metrics could not be registered " +
+                    "as " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Withdraw these Metrics from the platform MBean server, if they were
+     * registered with it.
+     */
+    public synchronized void unregister() {
+        if(this.name == null) { return; }
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .unregisterMBean(this.name);
+        }
+        catch(JMException e) {
+            throw new IllegalStateException("Metrics could not be " +
+                    "unregistered as " + this.name + ": " + e.getMessage(), e);
+        }
+        this.name = null;
+    }
+
+    /**
+     * Count a reduction.
+     * @param kind the kind of reduction
+     */
+    void reduced(ReductionKind kind) {
+        this.reductions[kind.ordinal()].increment();
+    }
+
+    /**
+     * Count a number of reductions of the same kind.
+     * @param kind the kind of reduction
+     * @param count the number of reductions
+     */
+    void reduced(ReductionKind kind, int count) {
+        this.reductions[kind.ordinal()].add(count);
+    }
+
+    /**
+     * Count processes added to a pool, or removed from it if count is
+     * negative.
+     * @param kind the pool
+     * @param count the number of processes added
+     */
+    void added(PoolKind kind, int count) {
+        this.poolSizes[kind.ordinal()].add(count);
+    }
+
+    /**
+     * Count a fresh name leased.
+     */
+    void leased() { this.freshNames.increment(); }
+
+    /**
+     * Count beta-steps taken to evaluate a message.
+     * @param count the number of beta-steps
+     */
+    void betaSteps(long count) { this.betaSteps.add(count); }
+
+    /**
+     * Count a call to doReduction() or doParallelReduction().
+     * @param nanos the time the call took, in nanoseconds
+     */
+    void timed(long nanos) {
+        nanos = Math.max(nanos, 0);
+        this.latencies.incrementAndGet(
+                Math.max(63 - Long.numberOfLeadingZeros(nanos), 0));
+        this.totalLatency.add(nanos);
+        this.maxLatency.accumulate(nanos);
+    }
+
+    /**
+     * Determine the number of reductions of a kind performed so far.
+     * @param kind the kind of reduction
+     * @return the number of reductions of that kind
+     */
+    public long reductions(ReductionKind kind) {
+        return this.reductions[kind.ordinal()].sum();
+    }
+
+    // The attributes published through JMX, as described by MetricsMXBean
+
+    public long getReductions() {
+        long total = 0;
+        for(LongAdder count : this.reductions) { total += count.sum(); }
+        return total;
+    }
+
+    public long getCommunications() {
+        return this.reductions(ReductionKind.COMMUNICATION);
+    }
+
+    public long getReplications() {
+        return this.reductions(ReductionKind.REPLICATION);
+    }
+
+    public long getScopeExtrusions() {
+        return this.reductions(ReductionKind.SCOPE_EXTRUSION);
+    }
+
+    public long getSumSelections() {
+        return this.reductions(ReductionKind.SUM_SELECTION);
+    }
+
+    public long getTauActions() { return this.reductions(ReductionKind.TAU); }
+
+    public long getSenders() { return this.poolSize(PoolKind.SENDERS); }
+
+    public long getReceivers() { return this.poolSize(PoolKind.RECEIVERS); }
+
+    public long getRestricts() { return this.poolSize(PoolKind.RESTRICTS); }
+
+    public long getSums() { return this.poolSize(PoolKind.SUMS); }
+
+    public long getTaus() { return this.poolSize(PoolKind.TAUS); }
+
+    public long getReplicatedSenders() {
+        return this.poolSize(PoolKind.REPL_SENDERS);
+    }
+
+    public long getReplicatedReceivers() {
+        return this.poolSize(PoolKind.REPL_RECEIVERS);
+    }
+
+    public long getReplicatedRestricts() {
+        return this.poolSize(PoolKind.REPL_RESTRICTS);
+    }
+
+    public long getReplicatedSums() {
+        return this.poolSize(PoolKind.REPL_SUMS);
+    }
+
+    public long getReplicatedTaus() {
+        return this.poolSize(PoolKind.REPL_TAUS);
+    }
+
+    public long getFreshNames() { return this.freshNames.sum(); }
+
+    public long getBetaSteps() { return this.betaSteps.sum(); }
+
+    public long getTimedReductions() {
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++) { total += this.latencies.get(i); }
+        return total;
+    }
+
+    public long getMeanLatency() {
+        long count = this.getTimedReductions();
+        return count == 0 ? 0 : this.totalLatency.sum() / count;
+    }
+
+    public long getMedianLatency() { return this.latencyPercentile(50); }
+
+    public long getLatency99thPercentile() {
+        return this.latencyPercentile(99);
+    }
+
+    public long getMaxLatency() { return this.maxLatency.get(); }
+
+    public long[] getLatencyHistogram() {
+        long[] histogram = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++) {
+            histogram[i] = this.latencies.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * Append a summary of these Metrics, on a few lines of text.
+     * @param str the StringBuilder to append to
+     */
+    public void appendSummary(StringBuilder str) {
+        str.append("reductions: ").append(this.getReductions())
+                .append(" (communications ").append(this.getCommunications())
+                .append(", replications ").append(this.getReplications())
+                .append(", scope extrusions ")
+                .append(this.getScopeExtrusions())
+                .append(", sum selections ").append(this.getSumSelections())
+                .append(", taus ").append(this.getTauActions())
+                .append(")\n");
+        str.append("pools:");
+        for(PoolKind kind : PoolKind.values()) {
+            str.append(kind.ordinal() == 0 ? " " : ", ")
+                    .append(kind.name().toLowerCase()).append(' ')
+                    .append(this.poolSize(kind));
+        }
+        str.append('\n');
+        str.append("fresh names: ").append(this.getFreshNames())
+                .append(", beta-steps: ").append(this.getBetaSteps())
+                .append('\n');
+        str.append("step latency (ns): mean ")
+                .append(this.getMeanLatency())
+                .append(", median <= ").append(this.getMedianLatency())
+                .append(", 99th percentile <= ")
+                .append(this.getLatency99thPercentile())
+                .append(", max ").append(this.getMaxLatency())
+                .append(" over ").append(this.getTimedReductions())
+                .append(" calls\n");
+    }
+
+    /**
+     * Obtain a summary of these Metrics, as given by appendSummary().
+     * @return a summary of these Metrics
+     */
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        this.appendSummary(str);
+        return str.toString();
+    }
+
+    /*
+     * Determine the number of processes in a pool.
+     */
+    private long poolSize(PoolKind kind) {
+        return this.poolSizes[kind.ordinal()].sum();
+    }
+
+    /*
+     * Find an upper bound on the given percentile of the latencies, from the
+     * bucket it falls in.
+     */
+    private long latencyPercentile(int percentile) {
+        long[] histogram = this.getLatencyHistogram();
+        long total = 0;
+        for(long count : histogram) { total += count; }
+        if(total == 0) { return 0; }
+        long rank = (total * percentile + 99) / 100;
+        for(int i = 0; i < BUCKETS; i++) {
+            rank -= histogram[i];
+            if(rank <= 0) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : (2L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for(int i = 0; i < count; i++) { adders[i] = new LongAdder(); }
+        return adders;
+    }
+}
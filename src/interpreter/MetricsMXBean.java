@@ -0,0 +1,43 @@
+package interpreter;
+
+/**
+ * The view of Metrics published through JMX (see Metrics.register()).
+ * Latencies are of calls to Interpreter.doReduction() and
+ * doParallelReduction(), in nanoseconds, and percentiles of them are upper
+ * bounds accurate to within a factor of two.
+ */
+public interface MetricsMXBean {
+
+    // Reductions performed, in total and by ReductionKind
+    long getReductions();
+    long getCommunications();
+    long getReplications();
+    long getScopeExtrusions();
+    long getSumSelections();
+    long getTauActions();
+
+    // The number of processes in each pool
+    long getSenders();
+    long getReceivers();
+    long getRestricts();
+    long getSums();
+    long getTaus();
+    long getReplicatedSenders();
+    long getReplicatedReceivers();
+    long getReplicatedRestricts();
+    long getReplicatedSums();
+    long getReplicatedTaus();
+
+    // Names leased by scope extrusion, and beta-steps taken by LambdaReducer
+    long getFreshNames();
+    long getBetaSteps();
+
+    // The number of calls to doReduction() and their latencies, with the
+    // number falling in each power-of-two bucket (see Metrics)
+    long getTimedReductions();
+    long getMeanLatency();
+    long getMedianLatency();
+    long getLatency99thPercentile();
+    long getMaxLatency();
+    long[] getLatencyHistogram();
+}
@@ -0,0 +1,300 @@
+package interpreter;
+
+import utils.IntMap;
+import utils.SymbolTable;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Supplies fresh integer names during interpretation, and the printable
+ * versions of all names in a program.
+ *
+ * Leasing a name is lock-free: each thread takes blocks of integer names from
+ * a shared AtomicInteger and hands them out one at a time, recording for each
+ * the name it was leased from. A printable version is only worked out when
+ * the name is first printed. It is the printable version of the user's name
+ * at the root of the chain of names it was leased from, followed by primes (or
+ * a prime and a number) that are unique among names with the same root.
+ *
+ * Leasing may happen from any number of threads at once. Printing must happen
+ * after the threads that leased the printed names have been joined (or
+ * otherwise synchronized with), so that the records of those leases are
+ * visible.
+ */
+public final class NameSupply {
+
+    // Number of names taken from the shared counter at a time
+    private static final int BLOCK_SIZE = 64;
+
+    // Print at most this many primes before switching to a prime and a number
+    private static final int MAX_PRIMES = 3;
+
+    /*
+     * A run of names taken from the shared counter by a single thread.
+     */
+    private static final class Block {
+
+        final int first;
+        final int[] bases;
+        int next;
+
+        Block(int first) {
+            this.first = first;
+            this.bases = new int[NameSupply.BLOCK_SIZE];
+            this.next = first;
+        }
+
+        boolean isExhausted() {
+            return this.next == this.first + NameSupply.BLOCK_SIZE;
+        }
+    }
+
+    // The lowest name available for leasing
+    private final int firstLeasable;
+
+    // The start of the next block to be handed out
+    private final AtomicInteger nextBlock;
+
+    // Every block handed out, by (first - firstLeasable) / BLOCK_SIZE
+    private final ConcurrentHashMap<Integer, Block> blocks;
+
+    // The block each thread is currently leasing from
+    private final ThreadLocal<Block> currentBlock;
+
+    // The user's names, which are their own printable versions and roots
+    private final SymbolTable userNames;
+
+    // Printable versions of the leased names printed so far
+    private final IntMap<String> printable;
+
+    // The user's name at the root of each leased name whose root has been
+    // found
+    private final IntMap<String> roots;
+
+    // Number of leased names printed so far, by root
+    private final HashMap<String, Integer> printedPerRoot;
+
+    /**
+     * Construct a new NameSupply.
+     * @param userNames the program's names, numbered by the ints that stand
+     * for them, which is shared rather than copied
+     * @param firstLeasable a name greater than every name in userNames
+     */
+    public NameSupply(SymbolTable userNames, int firstLeasable) {
+        this(userNames, firstLeasable, firstLeasable);
+    }
+
+    /**
+     * Construct a new NameSupply that carries on from one whose names have
+     * been saved (see describe()). The names it had leased that are still in
+     * use must be given their roots with restore(), and it leases no name
+     * below upperBound.
+     * @param userNames the program's names, numbered by the ints that stand
+     * for them, which is shared rather than copied
+     * @param firstLeasable the first name the saved NameSupply could lease
+     * @param upperBound the upperBound() of the saved NameSupply
+     */
+    NameSupply(SymbolTable userNames, int firstLeasable, int upperBound) {
+        if(firstLeasable < userNames.size()) {
+            throw new IllegalArgumentException("The first name leased must " +
+                    "be greater than every user's name");
+        }
+        if(upperBound < firstLeasable ||
+                (upperBound - firstLeasable) % NameSupply.BLOCK_SIZE != 0) {
+            throw new IllegalArgumentException("Names are leased in blocks " +
+                    "of " + NameSupply.BLOCK_SIZE + " from the first name " +
+                    "leased");
+        }
+        this.userNames = userNames;
+        this.firstLeasable = firstLeasable;
+        this.nextBlock = new AtomicInteger(upperBound);
+        this.blocks = new ConcurrentHashMap<>();
+        this.currentBlock = new ThreadLocal<>();
+        this.printable = new IntMap<>();
+        this.roots = new IntMap<>();
+        this.printedPerRoot = new HashMap<>();
+    }
+
+    /**
+     * Lease a fresh name, for use as an alpha converted version of the given
+     * name. Safe to call from any thread.
+     * @param existingName a name already in use
+     * @return a name to use for alpha-converted versions of existingName
+     */
+    public Integer lease(Integer existingName) {
+        if(!this.exists(existingName)) {
+            throw new IllegalArgumentException("Tried to lease a new integer " +
+                    "name from one that does not already exist in the " +
+                    "program.");
+        }
+        Block block = this.currentBlock.get();
+        if(block == null || block.isExhausted()) {
+            block = new Block(
+                    this.nextBlock.getAndAdd(NameSupply.BLOCK_SIZE));
+            this.blocks.put(this.blockNumber(block.first), block);
+            this.currentBlock.set(block);
+        }
+        block.bases[block.next - block.first] = existingName;
+        return block.next++;
+    }
+
+    /**
+     * Check that the user's names, which may have grown since this was
+     * constructed, are all still below the first name leased.
+     */
+    public void checkUserNames() {
+        if(this.userNames.size() > this.firstLeasable) {
+            throw new IllegalStateException("The program has more than " +
+                    this.firstLeasable + " names");
+        }
+    }
+
+    /**
+     * Access a name greater than every name leased so far.
+     * @return an upper bound on the names leased so far
+     */
+    public int upperBound() { return this.nextBlock.get(); }
+
+    /**
+     * Access the lowest name that could be leased.
+     * @return the first name leased
+     */
+    int firstLeasable() { return this.firstLeasable; }
+
+    /**
+     * Access the user's names.
+     * @return the SymbolTable numbering the user's names
+     */
+    SymbolTable userNames() { return this.userNames; }
+
+    /**
+     * Describe how some leased names are printed, all at one moment, so that
+     * a NameSupply restored from the description prints them, and the names
+     * it goes on to lease, as this one would. Safe to call from any thread
+     * while names are being leased, so long as the given names were leased
+     * before the call began.
+     * @param names leased names
+     * @param roots an array as long as names, filled in with the user's name
+     * at the root of each
+     * @param printed an array as long as names, filled in with the printable
+     * version of each, or null for those not yet printed
+     * @return the number of leased names printed so far, by root
+     */
+    synchronized HashMap<String, Integer> describe(int[] names,
+            String[] roots, String[] printed) {
+
+        for(int i = 0; i < names.length; i++) {
+            roots[i] = this.root(names[i]);
+            printed[i] = this.printable.get(names[i]);
+        }
+        return new HashMap<>(this.printedPerRoot);
+    }
+
+    /**
+     * Give a leased name of a NameSupply that has been saved its root, and
+     * its printable version if it had been printed.
+     * @param name the leased name, below the upperBound() of the saved
+     * NameSupply
+     * @param root the user's name at its root
+     * @param printed its printable version, or null if it had not been
+     * printed
+     */
+    synchronized void restore(int name, String root, String printed) {
+        if(name < this.firstLeasable || !this.exists(name)) {
+            throw new IllegalArgumentException("Only leased names can be " +
+                    "restored");
+        }
+        this.roots.put(name, root);
+        if(printed != null) { this.printable.put(name, printed); }
+    }
+
+    /**
+     * Set the number of leased names with a given root that a NameSupply
+     * that has been saved had printed.
+     * @param root the user's name
+     * @param count the number of leased names printed with that root
+     */
+    synchronized void restorePrinted(String root, int count) {
+        this.printedPerRoot.put(root, count);
+    }
+
+    /**
+     * Obtain the String that should be printed to represent a particular
+     * name, working it out if this is the first time it has been printed.
+     * @param name the name to print
+     * @return the printable version of the given name
+     */
+    public synchronized String printable(Integer name) {
+        if(this.isUserName(name)) { return this.userNames.name(name); }
+        String known = this.printable.get(name);
+        if(known != null) { return known; }
+
+        String root = this.root(name);
+        int count = this.printedPerRoot.merge(root, 1, Integer::sum);
+        String newPrintable = count <= NameSupply.MAX_PRIMES ?
+                root + "'''".substring(0, count) : root + "'" + count;
+        this.printable.put(name, newPrintable);
+        return newPrintable;
+    }
+
+    /*
+     * Find the user's name that the given name was (perhaps indirectly)
+     * leased from, remembering the answer for every name along the way.
+     */
+    private String root(Integer name) {
+        String root = this.knownRoot(name);
+        if(root != null) { return root; }
+
+        // Walk back to a name whose root is known, then walk the chain again
+        // to fill it in
+        int base = name;
+        while(root == null) {
+            base = this.baseOf(base);
+            root = this.knownRoot(base);
+        }
+        for(int link = name; link != base; link = this.baseOf(link)) {
+            this.roots.put(link, root);
+        }
+        return root;
+    }
+
+    /*
+     * Find the user's name at the root of a name if it is known without
+     * walking the chain of names it was leased from, or null otherwise.
+     */
+    private String knownRoot(int name) {
+        return this.isUserName(name) ?
+                this.userNames.name(name) : this.roots.get(name);
+    }
+
+    private boolean isUserName(int name) {
+        return name >= 0 && name < this.userNames.size();
+    }
+
+    /*
+     * Find the name that a leased name was leased from.
+     */
+    private int baseOf(int name) {
+        Block block = name < this.firstLeasable ? null :
+                this.blocks.get(this.blockNumber(name));
+        if(block == null || name >= block.next) {
+            throw new IllegalArgumentException("Tried to lookup the " +
+                    "printable name for an Integer name that does not have a " +
+                    "corresponding printable name - perhaps a String version " +
+                    "was not leased.");
+        }
+        return block.bases[name - block.first];
+    }
+
+    /*
+     * Determine if a name could be a user's name or a leased name.
+     */
+    private boolean exists(Integer name) {
+        return name != null && name >= 0 && name < this.nextBlock.get();
+    }
+
+    private int blockNumber(int name) {
+        return (name - this.firstLeasable) / NameSupply.BLOCK_SIZE;
+    }
+}
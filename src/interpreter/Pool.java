@@ -0,0 +1,199 @@
+package interpreter;
+
+import syntax.PiTerm;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A pool of PiTerms, compared by identity. Each member records its own
+ * position in the pool (see PiTerm.poolIndex()), so testing membership of and
+ * choosing a random member take constant time. A term should belong to at
+ * most one pool at a time. Since terms share their subterms, a term about to
+ * be added may already be in a pool, and must then be copied first (see
+ * own()).
+ *
+ * Each member is added with a key given by a Scheduler, and the members are
+ * kept in a binary heap on their keys, so that the member with the lowest key
+ * is always first. Adding and removing take logarithmic time, or constant
+ * time when all keys are equal, as they are for a Scheduler that chooses at
+ * random. The iteration order of a pool is not stable.
+ */
+final class Pool<T extends PiTerm> implements Iterable<T> {
+
+    private ArrayList<T> members;
+
+    // The key of each member, by position
+    private long[] keys;
+
+    /**
+     * Construct a new, empty Pool.
+     */
+    Pool() {
+        this.members = new ArrayList<>();
+        this.keys = new long[4];
+    }
+
+    /**
+     * Obtain a version of a term that is in no pool, and so may be added to
+     * one. This is the term itself unless it is already in a pool, in which
+     * case it is a copy that shares its children.
+     * @param term the term to obtain a version of
+     * @return the term, or a copy of it
+     */
+    @SuppressWarnings("unchecked")
+    static <U extends PiTerm> U own(U term) {
+        return term.poolIndex() < 0 ? term : (U) term.copy();
+    }
+
+    /**
+     * Add a term to this pool. The term must not already be a member.
+     * @param term the term to add
+     * @param key the key of the term, lower keys coming first
+     */
+    void add(T term, long key) {
+        int index = this.members.size();
+        if(index == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, 2 * index);
+        }
+        this.members.add(term);
+        this.place(term, key, index);
+        this.siftUp(index);
+    }
+
+    /**
+     * Determine if the given term (not merely an equal one) is a member of
+     * this pool.
+     * @param term the term to look for
+     * @return true if the term is a member, false otherwise
+     */
+    boolean contains(PiTerm term) {
+        int index = term.poolIndex();
+        return index >= 0 && index < this.members.size() &&
+                this.members.get(index) == term;
+    }
+
+    /**
+     * Remove a term from this pool.
+     * @param term the term to remove
+     * @return true if the term was a member, false otherwise
+     */
+    boolean remove(PiTerm term) {
+        if(!this.contains(term)) { return false; }
+        int index = term.poolIndex();
+        int lastIndex = this.members.size() - 1;
+        T last = this.members.remove(lastIndex);
+        if(last != term) {
+            this.place(last, this.keys[lastIndex], index);
+            this.siftDown(index);
+            this.siftUp(last.poolIndex());
+        }
+        term.setPoolIndex(-1);
+        return true;
+    }
+
+    /**
+     * Access the member at the given position.
+     * @param index the position of the member
+     * @return the member at that position
+     */
+    T get(int index) { return this.members.get(index); }
+
+    /**
+     * Access the key of a member of this pool.
+     * @param term the member
+     * @return the key it was added with
+     */
+    long key(PiTerm term) {
+        if(!this.contains(term)) {
+            throw new IllegalArgumentException("Tried to find the key of a " +
+                    "term that is not in the pool");
+        }
+        return this.keys[term.poolIndex()];
+    }
+
+    /**
+     * Access a member with the lowest key. The pool must not be empty.
+     * @return a member with the lowest key
+     */
+    T first() { return this.members.get(0); }
+
+    /**
+     * Access the lowest key of any member. The pool must not be empty.
+     * @return the key of first()
+     */
+    long firstKey() { return this.keys[0]; }
+
+    /**
+     * Choose a member of this pool uniformly at random.
+     * @param scheduler the Scheduler to make the choice with
+     * @return an arbitrary member of this pool
+     */
+    T arbitraryMember(Scheduler scheduler) {
+        return this.members.get(scheduler.choose(this.members.size()));
+    }
+
+    /**
+     * Determine the number of members of this pool.
+     * @return the number of members
+     */
+    int size() { return this.members.size(); }
+
+    /**
+     * Determine if this pool has no members.
+     * @return true if the pool is empty, false otherwise
+     */
+    boolean isEmpty() { return this.members.isEmpty(); }
+
+    /**
+     * Obtain an iterator over the members of this pool. The pool must not be
+     * modified while iterating.
+     * @return an iterator over the members of this pool
+     */
+    public Iterator<T> iterator() { return this.members.iterator(); }
+
+    /*
+     * Put a member and its key at the given position.
+     */
+    private void place(T term, long key, int index) {
+        this.members.set(index, term);
+        this.keys[index] = key;
+        term.setPoolIndex(index);
+    }
+
+    /*
+     * Move the member at the given position towards the root of the heap
+     * until its parent's key is no greater than its own.
+     */
+    private void siftUp(int index) {
+        T term = this.members.get(index);
+        long key = this.keys[index];
+        while(index > 0) {
+            int parent = (index - 1) / 2;
+            if(this.keys[parent] <= key) { break; }
+            this.place(this.members.get(parent), this.keys[parent], index);
+            index = parent;
+        }
+        this.place(term, key, index);
+    }
+
+    /*
+     * Move the member at the given position away from the root of the heap
+     * until neither of its children has a lower key than its own.
+     */
+    private void siftDown(int index) {
+        T term = this.members.get(index);
+        long key = this.keys[index];
+        int size = this.members.size();
+        while(2 * index + 1 < size) {
+            int child = 2 * index + 1;
+            if(child + 1 < size && this.keys[child + 1] < this.keys[child]) {
+                child++;
+            }
+            if(this.keys[child] >= key) { break; }
+            this.place(this.members.get(child), this.keys[child], index);
+            index = child;
+        }
+        this.place(term, key, index);
+    }
+}
@@ -0,0 +1,43 @@
+package interpreter;
+
+/**
+ * Names the pools of top-level processes maintained by an Interpreter. Pairs
+ * of pool kinds describe the kinds of reduction that can occur between the
+ * members of two pools.
+ */
+enum PoolKind {
+
+    SENDERS(true, false),
+    RECEIVERS(true, false),
+    RESTRICTS(false, false),
+    SUMS(false, false),
+    TAUS(false, false),
+    REPL_SENDERS(true, true),
+    REPL_RECEIVERS(true, true),
+    REPL_RESTRICTS(false, true),
+    REPL_SUMS(false, true),
+    REPL_TAUS(false, true);
+
+    private final boolean indexed;
+    private final boolean replicated;
+
+    private PoolKind(boolean indexed, boolean replicated) {
+        this.indexed = indexed;
+        this.replicated = replicated;
+    }
+
+    /**
+     * Determine if the members of this pool are held in a ChannelIndex rather
+     * than a flat list.
+     * @return true if members of this pool are indexed by channel, false
+     * otherwise
+     */
+    boolean isIndexed() { return this.indexed; }
+
+    /**
+     * Determine if the members of this pool are the bodies of replicated
+     * terms, which stay in the pool when they take part in a reduction.
+     * @return true if members of this pool are replicated, false otherwise
+     */
+    boolean isReplicated() { return this.replicated; }
+}
@@ -0,0 +1,87 @@
+package interpreter;
+
+import syntax.PiTerm;
+import syntax.PiTermComm;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Serves Sends and Receives on channels of higher priority first. Processes
+ * of equal priority are served in the order in which they became top-level,
+ * as by a FifoScheduler. Processes other than Sends and Receives, and those
+ * on channels with no given priority, have priority zero.
+ */
+public final class PriorityScheduler extends Scheduler {
+
+    // The low bits of a key hold the arrival order, and the high bits the
+    // negated priority
+    private static final int ARRIVAL_BITS = 40;
+
+    // Priorities must lie strictly between -MAX_PRIORITY and MAX_PRIORITY
+    private static final int MAX_PRIORITY = 1 << (62 - ARRIVAL_BITS);
+
+    private final HashMap<Integer, Integer> priorities;
+
+    // The arrival order of the next process to become top-level
+    private long arrivals;
+
+    /**
+     * Construct a new PriorityScheduler that makes its remaining choices
+     * differently on every run.
+     * @param priorities the priority of each channel, keyed by integer name
+     * as given by the Parser's translation
+     */
+    public PriorityScheduler(HashMap<Integer, Integer> priorities) {
+        this(priorities, new Random());
+    }
+
+    /**
+     * Construct a new PriorityScheduler that makes the same choices on every
+     * run of the same program.
+     * @param priorities the priority of each channel, keyed by integer name
+     * as given by the Parser's translation
+     * @param seed the seed for the choices not decided by priority or arrival
+     * order
+     */
+    public PriorityScheduler(HashMap<Integer, Integer> priorities,
+            long seed) {
+
+        this(priorities, new Random(seed));
+    }
+
+    private PriorityScheduler(HashMap<Integer, Integer> priorities,
+            Random random) {
+
+        super(random);
+        for(Integer priority : priorities.values()) {
+            if(priority <= -MAX_PRIORITY || priority >= MAX_PRIORITY) {
+                throw new IllegalArgumentException("Channel priorities must " +
+                        "lie strictly between " + (-MAX_PRIORITY) + " and " +
+                        MAX_PRIORITY);
+            }
+        }
+        this.priorities = new HashMap<>(priorities);
+    }
+
+    /**
+     * Processes are keyed by priority, highest first, and then by order of
+     * arrival.
+     * @param term the process
+     * @return the key of the process
+     */
+    public long key(PiTerm term) {
+        int priority = 0;
+        if(term instanceof PiTermComm) {
+            priority = this.priorities.getOrDefault(
+                    ((PiTermComm) term).chnl(), 0);
+        }
+        long arrival = this.arrivals++ & ((1L << ARRIVAL_BITS) - 1);
+        return ((long) -priority << ARRIVAL_BITS) + arrival;
+    }
+
+    /**
+     * A PriorityScheduler serves processes by key.
+     * @return true
+     */
+    public boolean isOrdered() { return true; }
+}
@@ -0,0 +1,144 @@
+package interpreter;
+
+import syntax.PiTerm;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Makes the choices of another Scheduler, writing each of them to a trace so
+ * that the run can be repeated exactly by a ReplayScheduler, whatever the
+ * seed. Keys are left to the other Scheduler, as they depend only on the
+ * order in which processes arrive.
+ *
+ * A trace is a short header, giving the version of the format and the kind
+ * of the other Scheduler, followed by the choices in the order they were
+ * made, each as an unsigned integer of seven bits per byte, least significant
+ * first, with the top bit of every byte but the last set. Most choices are
+ * among a few alternatives and take a single byte. The trace is gathered in
+ * a buffer and written out one buffer-full at a time, so recording costs
+ * little more than the choices themselves. It must be closed once the run is
+ * over, to write out what remains.
+ */
+public final class RecordingScheduler extends Scheduler
+        implements Closeable {
+
+    // Begins every trace: "jptr" and the version of the format, followed by
+    // the length of the kind of the other Scheduler and the kind in ASCII
+    static final byte[] HEADER = { 'j', 'p', 't', 'r', 2 };
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // The longest encoding of a choice, in bytes
+    private static final int MAX_CHOICE_SIZE = 10;
+
+    private final Scheduler scheduler;
+    private final WritableByteChannel trace;
+
+    // The choices not yet written out, which are the first size bytes
+    private final byte[] buffer;
+    private int size;
+
+    /**
+     * Construct a new RecordingScheduler.
+     * @param scheduler the Scheduler to make the choices
+     * @param trace the channel to write the trace to, which is closed along
+     * with this RecordingScheduler
+     */
+    public RecordingScheduler(Scheduler scheduler,
+            WritableByteChannel trace) {
+
+        this.scheduler = scheduler;
+        this.trace = trace;
+        this.buffer = new byte[BUFFER_SIZE];
+        System.arraycopy(HEADER, 0, this.buffer, 0, HEADER.length);
+        byte[] kind = scheduler.kind().getBytes(StandardCharsets.US_ASCII);
+        this.buffer[HEADER.length] = (byte) kind.length;
+        System.arraycopy(kind, 0, this.buffer, HEADER.length + 1,
+                kind.length);
+        this.size = HEADER.length + 1 + kind.length;
+    }
+
+    /**
+     * Processes are keyed by the other Scheduler.
+     * @param term the process
+     * @return the key the other Scheduler gives the process
+     */
+    public long key(PiTerm term) { return this.scheduler.key(term); }
+
+    /**
+     * A RecordingScheduler serves processes by key exactly when the other
+     * Scheduler does.
+     * @return true if the other Scheduler is ordered, false otherwise
+     */
+    public boolean isOrdered() { return this.scheduler.isOrdered(); }
+
+    /**
+     * A RecordingScheduler is of the kind of the other Scheduler.
+     * @return the kind of the other Scheduler
+     */
+    @Override
+    public String kind() { return this.scheduler.kind(); }
+
+    /**
+     * Have the other Scheduler choose an int, and record the choice.
+     * @param bound the exclusive upper bound, which must be positive
+     * @return the int chosen by the other Scheduler
+     */
+    @Override
+    public int choose(int bound) {
+        int choice = this.scheduler.choose(bound);
+        this.record(choice);
+        return choice;
+    }
+
+    /**
+     * Have the other Scheduler choose a long, and record the choice.
+     * @param bound the exclusive upper bound, which must be positive
+     * @return the long chosen by the other Scheduler
+     */
+    @Override
+    public long choose(long bound) {
+        long choice = this.scheduler.choose(bound);
+        this.record(choice);
+        return choice;
+    }
+
+    /**
+     * Write out the choices recorded so far.
+     * @throws IOException if the trace cannot be written
+     */
+    public void flush() throws IOException {
+        ByteBuffer written = ByteBuffer.wrap(this.buffer, 0, this.size);
+        while(written.hasRemaining()) { this.trace.write(written); }
+        this.size = 0;
+    }
+
+    /**
+     * Write out the choices recorded so far, and close the trace.
+     * @throws IOException if the trace cannot be written or closed
+     */
+    public void close() throws IOException {
+        this.flush();
+        this.trace.close();
+    }
+
+    /*
+     * Add a choice to the buffer, writing the buffer out first if it might
+     * not fit.
+     */
+    private void record(long choice) {
+        if(this.size > BUFFER_SIZE - MAX_CHOICE_SIZE) {
+            try { this.flush(); }
+            catch(IOException e) { throw new UncheckedIOException(e); }
+        }
+        while((choice & ~0x7FL) != 0) {
+            this.buffer[this.size++] = (byte) ((choice & 0x7F) | 0x80);
+            choice >>>= 7;
+        }
+        this.buffer[this.size++] = (byte) choice;
+    }
+}
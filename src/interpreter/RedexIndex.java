@@ -0,0 +1,637 @@
+package interpreter;
+
+import syntax.*;
+import utils.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Keeps track of which reductions are enabled for the top-level processes of
+ * an Interpreter that are not held in its ChannelIndex: restrictions and
+ * sums, replicated or otherwise.
+ *
+ * Each such process listens on its ports, which are the distinct channels
+ * and arities on which it has top-level Sends and Receives. For every pool,
+ * it keeps the number of pairs of its ports with opposite ports of members of
+ * that pool, and it is enabled against that pool while that number is
+ * positive. A process arriving or leaving changes the numbers of only those
+ * processes that listen on its own channels, so the sets of enabled processes
+ * are kept up to date in time proportional to the processes that are
+ * affected, rather than to all of the processes.
+ *
+ * A reduction between a process that is not indexed (its anchor) and a
+ * member of another pool is chosen from among the anchors enabled against
+ * that pool and their partners there. An ordered Scheduler takes the anchor
+ * and then the partner with the lowest key. Any other chooses uniformly among
+ * the pairs of processes that can reduce: each enabled anchor is weighted by
+ * its number of pairs of opposite ports with the pool, kept in a FenwickTree
+ * as the ChannelIndex does for channels, one of those pairs of ports is taken
+ * at random, and the pair of processes it joins is kept with a probability
+ * of one over the number of pairs of ports they share, or else the choice is
+ * made again.
+ */
+final class RedexIndex {
+
+    private static final int KINDS = PoolKind.values().length;
+
+    /*
+     * A top-level process that is not indexed by channel.
+     */
+    private static final class Listener {
+
+        final PiTerm term;
+        final PoolKind kind;
+        final long key;
+
+        // The ports of this process, with the polarity of each, and the
+        // position of this Listener in the list for each port
+        final Ports[] ports;
+        final boolean[] sends;
+        final int[] portIndex;
+
+        // The number of pairs of opposite ports with members of each pool,
+        // by PoolKind
+        final int[] partners = new int[KINDS];
+
+        // The position of this Listener in the set of processes enabled
+        // against each pool, by PoolKind, and then in the set of processes
+        // with internal actions. -1 where absent.
+        final int[] enabledIndex = new int[KINDS + 1];
+
+        Listener(PiTerm term, PoolKind kind, long key, int portCount) {
+            this.term = term;
+            this.kind = kind;
+            this.key = key;
+            this.ports = new Ports[portCount];
+            this.sends = new boolean[portCount];
+            this.portIndex = new int[portCount];
+            Arrays.fill(this.enabledIndex, -1);
+        }
+    }
+
+    /*
+     * The Listeners with ports on a single channel name with a single arity,
+     * by pool and polarity.
+     */
+    private static final class Ports {
+
+        final Integer name;
+        final int arity;
+        final ArrayList<ArrayList<Listener>> lists;
+        int size;
+
+        Ports(Integer name, int arity) {
+            this.name = name;
+            this.arity = arity;
+            this.lists = new ArrayList<>(2 * KINDS);
+            for(int i = 0; i < 2 * KINDS; i++) { this.lists.add(null); }
+        }
+
+        ArrayList<Listener> list(PoolKind kind, boolean sends) {
+            int index = 2 * kind.ordinal() + (sends ? 1 : 0);
+            ArrayList<Listener> list = this.lists.get(index);
+            if(list == null) {
+                list = new ArrayList<>();
+                this.lists.set(index, list);
+            }
+            return list;
+        }
+    }
+
+    /*
+     * A set of Listeners, kept in a binary heap on their keys, each of which
+     * records its own position in the set at a given index of enabledIndex.
+     * The weight of each position is that of the Listener there: its number
+     * of partners in the pool the set is enabled against, or 1 in the set of
+     * processes with internal actions.
+     */
+    private static final class Enabled {
+
+        final ArrayList<Listener> members = new ArrayList<>();
+        final FenwickTree weights = new FenwickTree(16);
+        final int slot;
+
+        Enabled(int slot) { this.slot = slot; }
+
+        void add(Listener listener) {
+            this.members.add(listener);
+            this.siftUp(listener, this.members.size() - 1);
+        }
+
+        void remove(Listener listener) {
+            int index = listener.enabledIndex[this.slot];
+            Listener last = this.members.remove(this.members.size() - 1);
+            this.weights.set(this.members.size(), 0);
+            if(last != listener) {
+                this.siftDown(last, index);
+                this.siftUp(last, last.enabledIndex[this.slot]);
+            }
+            listener.enabledIndex[this.slot] = -1;
+        }
+
+        void place(Listener listener, int index) {
+            this.members.set(index, listener);
+            listener.enabledIndex[this.slot] = index;
+            this.weights.set(index, this.weight(listener));
+        }
+
+        void reweigh(Listener listener) {
+            int index = listener.enabledIndex[this.slot];
+            if(index >= 0) { this.weights.set(index, this.weight(listener)); }
+        }
+
+        long weight(Listener listener) {
+            return this.slot < KINDS ? listener.partners[this.slot] : 1;
+        }
+
+        void siftUp(Listener listener, int index) {
+            while(index > 0) {
+                Listener parent = this.members.get((index - 1) / 2);
+                if(parent.key <= listener.key) { break; }
+                this.place(parent, index);
+                index = (index - 1) / 2;
+            }
+            this.place(listener, index);
+        }
+
+        void siftDown(Listener listener, int index) {
+            int size = this.members.size();
+            while(2 * index + 1 < size) {
+                int child = 2 * index + 1;
+                if(child + 1 < size && this.members.get(child + 1).key <
+                        this.members.get(child).key) {
+                    child++;
+                }
+                if(this.members.get(child).key >= listener.key) { break; }
+                this.place(this.members.get(child), index);
+                index = child;
+            }
+            this.place(listener, index);
+        }
+    }
+
+    // The Listener for each process that is not indexed
+    private IdentityHashMap<PiTerm, Listener> listeners;
+
+    // Channel name -> arity -> Ports, for the channels with Listeners
+    private HashMap<Integer, HashMap<Integer, Ports>> ports;
+
+    // The processes of each anchor pool enabled against each other pool, by
+    // PoolKind of both, or null if that pairing is not tracked
+    private Enabled[][] enabled;
+
+    // The sums that can perform an internal action
+    private Enabled internal;
+
+    private ChannelIndex channels;
+    private Scheduler scheduler;
+
+    /**
+     * Construct a new, empty RedexIndex.
+     * @param channels the ChannelIndex holding the indexed pools
+     * @param scheduler the Scheduler that chooses between reductions
+     * @param pairings the pairs of pools between which reductions will be
+     * chosen, at least one of each of which is not indexed
+     */
+    RedexIndex(ChannelIndex channels, Scheduler scheduler,
+            Iterable<Pair<PoolKind, PoolKind>> pairings) {
+
+        this.listeners = new IdentityHashMap<>();
+        this.ports = new HashMap<>();
+        this.enabled = new Enabled[KINDS][KINDS];
+        this.internal = new Enabled(KINDS);
+        this.channels = channels;
+        this.scheduler = scheduler;
+
+        for(Pair<PoolKind, PoolKind> pairing : pairings) {
+            PoolKind anchor = RedexIndex.anchor(pairing.frst, pairing.scnd);
+            PoolKind other = anchor == pairing.frst ?
+                    pairing.scnd : pairing.frst;
+            this.enabled[anchor.ordinal()][other.ordinal()] =
+                    new Enabled(other.ordinal());
+        }
+    }
+
+    /**
+     * Determine which of a pair of pools reductions between them are chosen
+     * from: one that is not indexed, and is not replicated if possible.
+     * @param kind1 the first pool
+     * @param kind2 the second pool
+     * @return the anchor pool of the pair
+     */
+    static PoolKind anchor(PoolKind kind1, PoolKind kind2) {
+        if(kind1.isIndexed() && kind2.isIndexed()) {
+            throw new IllegalArgumentException("Reductions between indexed " +
+                    "pools are chosen by the ChannelIndex");
+        }
+        if(kind1.isIndexed()) { return kind2; }
+        if(kind2.isIndexed()) { return kind1; }
+        return kind1.isReplicated() && !kind2.isReplicated() ? kind2 : kind1;
+    }
+
+    /**
+     * Record that a Send or Receive has been added to one of the indexed
+     * pools.
+     * @param comm the Send or Receive
+     * @param kind the pool it was added to
+     */
+    void add(PiTermComm comm, PoolKind kind) {
+        Ports ports = this.lookup(comm.chnl(), RedexIndex.arity(comm));
+        if(ports != null) { this.adjust(ports, kind, comm instanceof Send, 1); }
+    }
+
+    /**
+     * Record that a process has been added to a pool that is not indexed.
+     * @param term the process
+     * @param kind the pool it was added to
+     * @param key the key it was added with
+     */
+    void add(PiTerm term, PoolKind kind, long key) {
+        if(kind == PoolKind.TAUS || kind == PoolKind.REPL_TAUS) { return; }
+
+        // The ports of the process are those in its Summary, which are all
+        // on free channels, as top-level processes are closed
+        Summary summary = term.summary();
+        int sendCount = summary.sendCount();
+        Listener listener = new Listener(term, kind, key,
+                sendCount + summary.receiveCount());
+        this.listeners.put(term, listener);
+
+        // Count the partners of each port, and add one to the partners of the
+        // other Listeners on its channel, before any of the process's own
+        // ports are listed, so that it is not counted as its own partner
+        for(int i = 0; i < listener.ports.length; i++) {
+            boolean sends = i < sendCount;
+            Ports ports = sends ?
+                    this.ports(summary.sendChannel(i), summary.sendArity(i)) :
+                    this.ports(summary.receiveChannel(i - sendCount),
+                            summary.receiveArity(i - sendCount));
+            listener.ports[i] = ports;
+            listener.sends[i] = sends;
+            for(PoolKind other : PoolKind.values()) {
+                listener.partners[other.ordinal()] +=
+                        this.count(ports, other, !sends);
+            }
+            this.adjust(ports, kind, sends, 1);
+        }
+        for(int i = 0; i < listener.ports.length; i++) {
+            ArrayList<Listener> list =
+                    listener.ports[i].list(kind, listener.sends[i]);
+            listener.portIndex[i] = list.size();
+            list.add(listener);
+            listener.ports[i].size++;
+        }
+
+        for(PoolKind other : PoolKind.values()) {
+            if(listener.partners[other.ordinal()] > 0) {
+                this.enable(listener, other);
+            }
+        }
+        if(kind == PoolKind.SUMS && summary.hasInternalAction()) {
+            this.internal.add(listener);
+        }
+    }
+
+    /**
+     * Record that a process has been removed from a pool.
+     * @param term the process
+     * @param kind the pool it was removed from
+     */
+    void remove(PiTerm term, PoolKind kind) {
+        if(kind.isIndexed()) {
+            PiTermComm comm = (PiTermComm) term;
+            Ports ports = this.lookup(comm.chnl(), RedexIndex.arity(comm));
+            if(ports != null) {
+                this.adjust(ports, kind, comm instanceof Send, -1);
+            }
+            return;
+        }
+        if(kind == PoolKind.TAUS || kind == PoolKind.REPL_TAUS) { return; }
+
+        Listener listener = this.listeners.remove(term);
+        if(listener == null) {
+            throw new IllegalArgumentException("Tried to remove a process " +
+                    "that is not in the RedexIndex");
+        }
+
+        // Unlist the ports first, so that the process is not counted as its
+        // own partner
+        for(int i = 0; i < listener.ports.length; i++) {
+            Ports ports = listener.ports[i];
+            ArrayList<Listener> list = ports.list(kind, listener.sends[i]);
+            Listener last = list.remove(list.size() - 1);
+            if(last != listener) {
+                list.set(listener.portIndex[i], last);
+                for(int j = 0; j < last.ports.length; j++) {
+                    if(last.ports[j] == ports &&
+                            last.sends[j] == listener.sends[i]) {
+                        last.portIndex[j] = listener.portIndex[i];
+                    }
+                }
+            }
+            ports.size--;
+        }
+        for(int i = 0; i < listener.ports.length; i++) {
+            Ports ports = listener.ports[i];
+            this.adjust(ports, kind, listener.sends[i], -1);
+            if(ports.size == 0) {
+                HashMap<Integer, Ports> byArity = this.ports.get(ports.name);
+                byArity.remove(ports.arity);
+                if(byArity.isEmpty()) { this.ports.remove(ports.name); }
+            }
+        }
+
+        for(PoolKind other : PoolKind.values()) {
+            if(listener.enabledIndex[other.ordinal()] >= 0) {
+                this.enabled[kind.ordinal()][other.ordinal()].remove(listener);
+            }
+        }
+        if(listener.enabledIndex[KINDS] >= 0) {
+            this.internal.remove(listener);
+        }
+    }
+
+    /**
+     * Choose a process of the anchor pool and a member of the other pool that
+     * can reduce together, as the Scheduler decides.
+     * @param anchor the anchor pool, as given by anchor()
+     * @param other the other pool
+     * @return the chosen process of the anchor pool and its partner, or null
+     * if there are none
+     */
+    Pair<PiTerm, PiTerm> chooseRedex(PoolKind anchor, PoolKind other) {
+        Enabled set = this.enabled[anchor.ordinal()][other.ordinal()];
+        if(set == null) {
+            throw new IllegalArgumentException("Reductions between " + anchor +
+                    " and " + other + " are not tracked");
+        }
+        if(set.members.isEmpty()) { return null; }
+        if(this.scheduler.isOrdered()) {
+            Listener listener = set.members.get(0);
+            return Pair.make(listener.term,
+                    this.lowestPartner(listener, other));
+        }
+        while(true) {
+            Listener listener = set.members.get(set.weights.find(
+                    this.scheduler.choose(set.weights.total())));
+            PiTerm partner = this.partner(listener, other,
+                    this.scheduler.choose(listener.partners[other.ordinal()]));
+            int shared = this.shared(listener, partner, other);
+            if(shared == 1 || this.scheduler.choose(shared) == 0) {
+                return Pair.make(listener.term, partner);
+            }
+        }
+    }
+
+    /**
+     * Determine if a process of the anchor pool can reduce with a member of
+     * the other pool, without making any choice.
+     * @param anchor the anchor pool (see anchor())
+     * @param other the other pool
+     * @return true if there is a pair that can reduce
+     */
+    boolean canReduce(PoolKind anchor, PoolKind other) {
+        Enabled set = this.enabled[anchor.ordinal()][other.ordinal()];
+        return set != null && !set.members.isEmpty();
+    }
+
+    /**
+     * Determine if a sum can perform an internal action.
+     * @return true if there is such a sum
+     */
+    boolean hasInternalAction() { return !this.internal.members.isEmpty(); }
+
+    /**
+     * Choose a sum that can perform an internal action, as the Scheduler
+     * decides.
+     * @return the chosen sum, or null if there is none
+     */
+    PiTerm chooseInternalAction() { return this.choose(this.internal); }
+
+    /**
+     * Access the key with which a process that is not indexed was added.
+     * @param term the process
+     * @return the key of the process
+     */
+    long key(PiTerm term) { return this.listeners.get(term).key; }
+
+    /*
+     * Find the partner in a pool with the lowest key of an enabled Listener.
+     */
+    private PiTerm lowestPartner(Listener listener, PoolKind other) {
+        PiTerm lowest = null;
+        long lowestKey = Long.MAX_VALUE;
+        for(int i = 0; i < listener.ports.length; i++) {
+            Ports ports = listener.ports[i];
+            boolean sends = !listener.sends[i];
+            if(other.isIndexed()) {
+                if(RedexIndex.sends(other) != sends) { continue; }
+                Pool<? extends PiTerm> pool =
+                        this.channels.members(ports.name, ports.arity, other);
+                if(pool == null) { continue; }
+                for(PiTerm partner : pool) {
+                    if(pool.key(partner) < lowestKey || lowest == null) {
+                        lowest = partner;
+                        lowestKey = pool.key(partner);
+                    }
+                }
+            }
+            else {
+                for(Listener partner : ports.list(other, sends)) {
+                    if(partner == listener) { continue; }
+                    if(partner.key < lowestKey || lowest == null) {
+                        lowest = partner.term;
+                        lowestKey = partner.key;
+                    }
+                }
+            }
+        }
+        if(lowest == null) {
+            throw new IllegalStateException("Process enabled against " +
+                    other + " has no partners there");
+        }
+        return lowest;
+    }
+
+    /*
+     * Find the partner in a pool of an enabled Listener at the given position
+     * among its pairs of opposite ports with that pool, taking its ports in
+     * order, as they are counted in its partners.
+     */
+    private PiTerm partner(Listener listener, PoolKind other, int position) {
+        for(int i = 0; i < listener.ports.length; i++) {
+            Ports ports = listener.ports[i];
+            boolean sends = !listener.sends[i];
+            if(other.isIndexed()) {
+                if(RedexIndex.sends(other) != sends) { continue; }
+                Pool<? extends PiTerm> pool =
+                        this.channels.members(ports.name, ports.arity, other);
+                if(pool == null) { continue; }
+                if(position < pool.size()) { return pool.get(position); }
+                position -= pool.size();
+            }
+            else {
+                ArrayList<Listener> list = ports.list(other, sends);
+                int size = list.size() - (listener.kind == other &&
+                        RedexIndex.listens(listener, ports, sends) ? 1 : 0);
+                if(position < size) {
+                    for(Listener partner : list) {
+                        if(partner == listener) { continue; }
+                        if(position-- == 0) { return partner.term; }
+                    }
+                }
+                position -= size;
+            }
+        }
+        throw new IllegalStateException("Process enabled against " + other +
+                " has fewer partners there than counted");
+    }
+
+    /*
+     * Count the pairs of opposite ports that a Listener shares with a member
+     * of a pool.
+     */
+    private int shared(Listener listener, PiTerm partner, PoolKind other) {
+        if(other.isIndexed()) {
+            PiTermComm comm = (PiTermComm) partner;
+            int shared = 0;
+            for(int i = 0; i < listener.ports.length; i++) {
+                if(listener.sends[i] != comm instanceof Send &&
+                        listener.ports[i].name.equals(comm.chnl()) &&
+                        listener.ports[i].arity == RedexIndex.arity(comm)) {
+
+                    shared++;
+                }
+            }
+            return shared;
+        }
+        Listener match = this.listeners.get(partner);
+        int shared = 0;
+        for(int i = 0; i < listener.ports.length; i++) {
+            if(RedexIndex.listens(match, listener.ports[i],
+                    !listener.sends[i])) {
+
+                shared++;
+            }
+        }
+        return shared;
+    }
+
+    /*
+     * Determine if a Listener has a port of the given polarity among the
+     * given Ports.
+     */
+    private static boolean listens(Listener listener, Ports ports,
+            boolean sends) {
+
+        for(int i = 0; i < listener.ports.length; i++) {
+            if(listener.ports[i] == ports && listener.sends[i] == sends) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Add the given amount to the partners in the given pool of each Listener
+     * with a port opposite to one of the given polarity on the given channel,
+     * enabling or disabling them as their counts become positive or zero.
+     */
+    private void adjust(Ports ports, PoolKind kind, boolean sends,
+            int amount) {
+
+        for(PoolKind listening : PoolKind.values()) {
+            if(listening.isIndexed()) { continue; }
+            ArrayList<Listener> list = ports.lists.get(
+                    2 * listening.ordinal() + (sends ? 0 : 1));
+            if(list == null) { continue; }
+            for(Listener listener : list) {
+                int before = listener.partners[kind.ordinal()];
+                listener.partners[kind.ordinal()] += amount;
+                if(before == 0) { this.enable(listener, kind); }
+                else if(before + amount == 0) {
+                    this.disable(listener, kind);
+                }
+                else { this.reweigh(listener, kind); }
+            }
+        }
+    }
+
+    /*
+     * Count the ports of the given polarity that members of a pool have on a
+     * channel.
+     */
+    private int count(Ports ports, PoolKind kind, boolean sends) {
+        if(kind.isIndexed()) {
+            if(RedexIndex.sends(kind) != sends) { return 0; }
+            Pool<? extends PiTerm> pool =
+                    this.channels.members(ports.name, ports.arity, kind);
+            return pool == null ? 0 : pool.size();
+        }
+        ArrayList<Listener> list =
+                ports.lists.get(2 * kind.ordinal() + (sends ? 1 : 0));
+        return list == null ? 0 : list.size();
+    }
+
+    private void enable(Listener listener, PoolKind other) {
+        Enabled set = this.enabled[listener.kind.ordinal()][other.ordinal()];
+        if(set != null) { set.add(listener); }
+    }
+
+    private void reweigh(Listener listener, PoolKind other) {
+        Enabled set = this.enabled[listener.kind.ordinal()][other.ordinal()];
+        if(set != null) { set.reweigh(listener); }
+    }
+
+    private void disable(Listener listener, PoolKind other) {
+        Enabled set = this.enabled[listener.kind.ordinal()][other.ordinal()];
+        if(set != null) { set.remove(listener); }
+    }
+
+    /*
+     * Choose a member of a set of Listeners: the one with the lowest key if
+     * the Scheduler is ordered, or one at random by weight otherwise.
+     */
+    private PiTerm choose(Enabled set) {
+        if(set.members.isEmpty()) { return null; }
+        int index = this.scheduler.isOrdered() ? 0 : set.weights.find(
+                this.scheduler.choose(set.weights.total()));
+        return set.members.get(index).term;
+    }
+
+    /*
+     * Find the Ports for the given name and arity, or null if there are none.
+     */
+    private Ports lookup(Integer name, int arity) {
+        HashMap<Integer, Ports> byArity = this.ports.get(name);
+        return byArity == null ? null : byArity.get(arity);
+    }
+
+    /*
+     * Find the Ports for the given name and arity, creating them if
+     * necessary.
+     */
+    private Ports ports(Integer name, int arity) {
+        Ports ports = this.lookup(name, arity);
+        if(ports == null) {
+            ports = new Ports(name, arity);
+            this.ports.computeIfAbsent(name, n -> new HashMap<>())
+                    .put(arity, ports);
+        }
+        return ports;
+    }
+
+    /*
+     * Determine if the members of an indexed pool are Sends.
+     */
+    private static boolean sends(PoolKind kind) {
+        return kind == PoolKind.SENDERS || kind == PoolKind.REPL_SENDERS;
+    }
+
+    private static int arity(PiTermComm comm) {
+        return comm instanceof Send ?
+                ((Send) comm).arity() : ((Receive) comm).arity();
+    }
+}
@@ -0,0 +1,24 @@
+package interpreter;
+
+/**
+ * Names the kinds of reduction counted by Metrics.
+ */
+public enum ReductionKind {
+
+    // A message passed from a Send to a Receive, either of them replicated
+    COMMUNICATION,
+
+    // A copy of the body of a replicated process brought to the top level to
+    // take part in a reduction with another process, other than by passing a
+    // message
+    REPLICATION,
+
+    // A restricted name given a fresh name at the top level
+    SCOPE_EXTRUSION,
+
+    // A branch of a sum chosen, discarding the others
+    SUM_SELECTION,
+
+    // A Tau action performed
+    TAU
+}
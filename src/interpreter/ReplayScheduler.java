@@ -0,0 +1,166 @@
+package interpreter;
+
+import syntax.PiTerm;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Makes the choices recorded in a trace by a RecordingScheduler, in the order
+ * they were recorded, so that a recorded run is repeated exactly without
+ * drawing any random numbers. The run must be of the same program, with the
+ * same kind of Scheduler and Interpreter options as the recorded run, as
+ * keys are still left to another Scheduler. The kind is checked when the
+ * trace is opened, and a run that turns out to differ from the recorded one
+ * in any other way throws a Mismatch.
+ */
+public final class ReplayScheduler extends Scheduler
+        implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Thrown when the run being replayed makes a choice that the trace does
+     * not have, or has out of bounds, as the trace was not recorded from
+     * the same run.
+     */
+    public static final class Mismatch extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        Mismatch(String message) { super(message); }
+    }
+
+    private final Scheduler scheduler;
+    private final ReadableByteChannel trace;
+    private final ByteBuffer buffer;
+
+    /**
+     * Construct a new ReplayScheduler, reading the header of the trace.
+     * @param scheduler the Scheduler to give processes their keys, of the
+     * same kind as the one the trace was recorded with
+     * @param trace the channel to read the trace from, which is closed along
+     * with this ReplayScheduler
+     * @throws IOException if the trace cannot be read
+     */
+    public ReplayScheduler(Scheduler scheduler, ReadableByteChannel trace)
+            throws IOException {
+
+        this.scheduler = scheduler;
+        this.trace = trace;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip();
+
+        for(byte expected : RecordingScheduler.HEADER) {
+            if(!this.fill() || this.buffer.get() != expected) {
+                throw new IllegalArgumentException("Not a japi trace, or " +
+                        "one of an unsupported version");
+            }
+        }
+        byte[] kind = new byte[this.fill() ? this.buffer.get() & 0xFF : 0];
+        for(int i = 0; i < kind.length; i++) {
+            if(!this.fill()) {
+                throw new IllegalArgumentException("The trace is damaged");
+            }
+            kind[i] = this.buffer.get();
+        }
+        String recorded = new String(kind, StandardCharsets.US_ASCII);
+        if(!recorded.equals(scheduler.kind())) {
+            throw new IllegalArgumentException("The trace was recorded " +
+                    "with a " + recorded + ", not a " + scheduler.kind());
+        }
+    }
+
+    /**
+     * Processes are keyed by the other Scheduler.
+     * @param term the process
+     * @return the key the other Scheduler gives the process
+     */
+    public long key(PiTerm term) { return this.scheduler.key(term); }
+
+    /**
+     * A ReplayScheduler serves processes by key exactly when the other
+     * Scheduler does.
+     * @return true if the other Scheduler is ordered, false otherwise
+     */
+    public boolean isOrdered() { return this.scheduler.isOrdered(); }
+
+    /**
+     * A ReplayScheduler is of the kind of the other Scheduler.
+     * @return the kind of the other Scheduler
+     */
+    @Override
+    public String kind() { return this.scheduler.kind(); }
+
+    /**
+     * Make the next recorded choice.
+     * @param bound the exclusive upper bound, which must be positive
+     * @return the int recorded next in the trace
+     */
+    @Override
+    public int choose(int bound) { return (int) this.next(bound); }
+
+    /**
+     * Make the next recorded choice.
+     * @param bound the exclusive upper bound, which must be positive
+     * @return the long recorded next in the trace
+     */
+    @Override
+    public long choose(long bound) { return this.next(bound); }
+
+    /**
+     * Determine if every recorded choice has been made.
+     * @return true if the trace has no more choices, false otherwise
+     * @throws IOException if the trace cannot be read
+     */
+    public boolean isFinished() throws IOException { return !this.fill(); }
+
+    /**
+     * Close the trace.
+     * @throws IOException if the trace cannot be closed
+     */
+    public void close() throws IOException { this.trace.close(); }
+
+    /*
+     * Read the next choice from the trace, checking that it is below the
+     * bound of the choice being made.
+     */
+    private long next(long bound) {
+        long choice = 0;
+        int shift = 0;
+        byte b;
+        do {
+            try {
+                if(!this.fill()) {
+                    throw new Mismatch("The trace ended before the run did");
+                }
+            }
+            catch(IOException e) { throw new UncheckedIOException(e); }
+            b = this.buffer.get();
+            choice |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+
+        if(choice >= bound) {
+            throw new Mismatch("Recorded choice " + choice + " is out of " +
+                    "bounds for " + bound + " alternatives");
+        }
+        return choice;
+    }
+
+    /*
+     * Make sure the buffer has a byte to read, reading more of the trace if
+     * necessary. Returns false at the end of the trace.
+     */
+    private boolean fill() throws IOException {
+        if(this.buffer.hasRemaining()) { return true; }
+        this.buffer.clear();
+        int read;
+        do { read = this.trace.read(this.buffer); } while(read == 0);
+        this.buffer.flip();
+        return read > 0;
+    }
+}
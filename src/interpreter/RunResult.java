@@ -0,0 +1,65 @@
+package interpreter;
+
+/**
+ * Describes how a call to Interpreter.run() ended: either no reduction was
+ * possible, or a limit of its ExecutionBudget was reached. In the latter case
+ * the Interpreter is left in a state from which run() can be called again to
+ * carry on where it stopped.
+ */
+public final class RunResult {
+
+    private final ExecutionBudget.Limit limit;
+    private final long reductions;
+    private final long betaSteps;
+    private final long nanos;
+
+    /**
+     * Construct a new RunResult.
+     * @param limit the limit that was reached, or null if no reduction was
+     * possible
+     * @param reductions the number of reductions performed
+     * @param betaSteps the number of beta-steps taken
+     * @param nanos the time taken, in nanoseconds
+     */
+    RunResult(ExecutionBudget.Limit limit, long reductions, long betaSteps,
+            long nanos) {
+
+        this.limit = limit;
+        this.reductions = reductions;
+        this.betaSteps = betaSteps;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Determine if the run ended because no reduction was possible.
+     * @return true if the run ended with no reduction possible, false if it
+     * ended on reaching a limit
+     */
+    public boolean isFinished() { return this.limit == null; }
+
+    /**
+     * Access the limit that was reached.
+     * @return the limit that ended the run, or null if no reduction was
+     * possible
+     */
+    public ExecutionBudget.Limit limit() { return this.limit; }
+
+    /**
+     * Access the number of reductions performed by the run.
+     * @return the number of reductions performed
+     */
+    public long reductions() { return this.reductions; }
+
+    /**
+     * Access the number of beta-steps taken to evaluate messages, including
+     * those of any reduction that was cut short.
+     * @return the number of beta-steps taken
+     */
+    public long betaSteps() { return this.betaSteps; }
+
+    /**
+     * Access the time the run took.
+     * @return the time taken, in nanoseconds
+     */
+    public long nanos() { return this.nanos; }
+}
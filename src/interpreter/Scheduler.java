@@ -0,0 +1,73 @@
+package interpreter;
+
+import syntax.PiTerm;
+import utils.Utils;
+import java.util.Random;
+
+/**
+ * Decides which of the enabled reductions an Interpreter performs next.
+ *
+ * Each process is given a key by the Scheduler when it becomes top-level, and
+ * the Interpreter keeps its pools ordered on these keys as processes come and
+ * go. An ordered Scheduler has the reduction involving the waiting process
+ * with the lowest key performed first, whatever its kind. Any other Scheduler
+ * has a communication between a Send and a Receive performed whenever one is
+ * possible, and otherwise a reduction chosen at random. Every other choice,
+ * such as which branch of a sum is taken, is made at random with the
+ * Scheduler's source of random numbers, so a Scheduler given a seed makes the
+ * same choices on every run.
+ */
+public abstract class Scheduler {
+
+    private final Random random;
+
+    /**
+     * Construct a new Scheduler.
+     * @param random the source of random numbers to make choices with
+     */
+    protected Scheduler(Random random) { this.random = random; }
+
+    /**
+     * Construct a new Scheduler that makes its choices some other way than
+     * with a source of random numbers, and so overrides both choose methods.
+     */
+    protected Scheduler() { this.random = null; }
+
+    /**
+     * Determine the key of a process that has just become top-level. Lower
+     * keys are served first by an ordered Scheduler.
+     * @param term the process
+     * @return the key of the process
+     */
+    public abstract long key(PiTerm term);
+
+    /**
+     * Determine if this Scheduler serves waiting processes in order of their
+     * keys, rather than at random.
+     * @return true if reductions are chosen by key, false otherwise
+     */
+    public abstract boolean isOrdered();
+
+    /**
+     * Name the kind of this Scheduler, which a trace records so that it is
+     * only replayed with the same kind (see ReplayScheduler).
+     * @return the name of the kind of Scheduler
+     */
+    public String kind() { return this.getClass().getSimpleName(); }
+
+    /**
+     * Choose an int uniformly at random.
+     * @param bound the exclusive upper bound, which must be positive
+     * @return an int at least zero and less than bound
+     */
+    public int choose(int bound) { return this.random.nextInt(bound); }
+
+    /**
+     * Choose a long uniformly at random.
+     * @param bound the exclusive upper bound, which must be positive
+     * @return a long at least zero and less than bound
+     */
+    public long choose(long bound) {
+        return Utils.arbitraryLong(this.random, bound);
+    }
+}
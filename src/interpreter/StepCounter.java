@@ -0,0 +1,78 @@
+package interpreter;
+
+/**
+ * Counts the beta-steps taken to evaluate messages, and cuts evaluation short
+ * once more than a given number have been taken or a deadline has passed. A
+ * LambdaEvaluator given a StepCounter calls step() once for each beta-step it
+ * takes, and lets the exception that step() may throw propagate, leaving the
+ * term being evaluated unchanged. A StepCounter is used by one thread at a
+ * time.
+ */
+public final class StepCounter {
+
+    // The deadline is checked each time this many more steps have been
+    // taken, as reading the clock is much slower than taking a step
+    private static final long CLOCK_INTERVAL = 1 << 10;
+
+    /*
+     * Thrown by step() when a limit has been reached. Carries no stack trace,
+     * as it is always caught by the Interpreter.
+     */
+    static final class Exhausted extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        final ExecutionBudget.Limit limit;
+
+        Exhausted(ExecutionBudget.Limit limit) {
+            super(null, null, false, false);
+            this.limit = limit;
+        }
+    }
+
+    private final long limit;
+    private final boolean timed;
+    private final long deadline;
+    private long steps;
+
+    /**
+     * Construct a new StepCounter that counts steps without limiting them.
+     */
+    public StepCounter() { this(Long.MAX_VALUE, false, 0); }
+
+    /**
+     * Construct a new StepCounter.
+     * @param limit the most steps that may be taken
+     * @param timed whether there is a deadline
+     * @param deadline the value of System.nanoTime() after which no more
+     * steps may be taken, if timed
+     */
+    StepCounter(long limit, boolean timed, long deadline) {
+        this.limit = limit;
+        this.timed = timed;
+        this.deadline = deadline;
+        this.steps = 0;
+    }
+
+    /**
+     * Count a beta-step, cutting evaluation short with an exception that only
+     * the Interpreter catches if the limit on steps or the deadline has been
+     * passed.
+     */
+    public void step() {
+        this.steps++;
+        if(this.steps > this.limit) {
+            throw new Exhausted(ExecutionBudget.Limit.BETA_STEPS);
+        }
+        if(this.timed && this.steps % CLOCK_INTERVAL == 0 &&
+                System.nanoTime() - this.deadline > 0) {
+            throw new Exhausted(ExecutionBudget.Limit.TIME);
+        }
+    }
+
+    /**
+     * Determine the number of beta-steps counted so far.
+     * @return the number of steps counted
+     */
+    public long steps() { return this.steps; }
+}
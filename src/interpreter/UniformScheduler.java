@@ -0,0 +1,39 @@
+package interpreter;
+
+import syntax.PiTerm;
+import java.util.Random;
+
+/**
+ * Chooses each reduction uniformly at random from those of its kind,
+ * communicating between a Send and a Receive whenever possible and otherwise
+ * trying the other kinds of reduction in a random order. This is the
+ * Interpreter's default policy.
+ */
+public final class UniformScheduler extends Scheduler {
+
+    /**
+     * Construct a new UniformScheduler that makes different choices on every
+     * run.
+     */
+    public UniformScheduler() { super(new Random()); }
+
+    /**
+     * Construct a new UniformScheduler that makes the same choices on every
+     * run of the same program.
+     * @param seed the seed for the choices
+     */
+    public UniformScheduler(long seed) { super(new Random(seed)); }
+
+    /**
+     * All processes are given the same key.
+     * @param term the process
+     * @return 0
+     */
+    public long key(PiTerm term) { return 0; }
+
+    /**
+     * A UniformScheduler chooses at random.
+     * @return false
+     */
+    public boolean isOrdered() { return false; }
+}
@@ -0,0 +1,189 @@
+package main;
+
+import parser.ProgramImage;
+import syntax.PiTerm;
+import utils.SymbolTable;
+import utils.Triple;
+import interpreter.Interpreter;
+import interpreter.LambdaEvaluator;
+import interpreter.Metrics;
+import interpreter.ExecutionBudget;
+import interpreter.RunResult;
+import interpreter.Scheduler;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs many japi programs in one JVM. Each program is loaded or parsed from
+ * its file (see ProgramImage.load()) and run to completion, or until it
+ * reaches the limit of an ExecutionBudget, on a fixed number of threads, and
+ * its final state is written to a single Writer as soon as it is known.
+ * Programs are independent: each has its own Interpreter and Scheduler, and
+ * one that cannot be parsed, or that fails or overflows the stack, does not
+ * stop the rest. Running out of memory stops the whole batch.
+ *
+ * The result of each program is written as a block of lines, in the order the
+ * programs end: a line "== " followed by the path of the program, then its
+ * final state, then a line beginning "-- " saying how it ended. Blocks are
+ * never interleaved.
+ */
+final class Batch {
+
+    private final ExecutionBudget budget;
+    private final Supplier<Scheduler> schedulers;
+    private final LambdaEvaluator evaluator;
+    private final Metrics metrics;
+
+    /**
+     * Construct a new Batch.
+     * @param budget the limits on the work done by each program
+     * @param schedulers gives a new Scheduler for each program
+     * @param evaluator the LambdaEvaluator to evaluate messages with, which
+     * is shared by the programs
+     * @param metrics the Metrics to count what every program does in, or null
+     * to not count. The pool sizes counted are summed over the programs.
+     */
+    Batch(ExecutionBudget budget, Supplier<Scheduler> schedulers,
+            LambdaEvaluator evaluator, Metrics metrics) {
+
+        this.budget = budget;
+        this.schedulers = schedulers;
+        this.evaluator = evaluator;
+        this.metrics = metrics;
+    }
+
+    /**
+     * List the programs in a batch. If the source is a directory, they are the
+     * files in it and in its subdirectories, in order of their paths.
+     * Otherwise, the source is a manifest naming one program on each line,
+     * relative to the directory the manifest is in, and blank lines and lines
+     * beginning with '#' are skipped.
+     * @param source a directory or manifest
+     * @return the paths of the programs
+     * @throws IOException if the source cannot be read
+     */
+    static List<Path> programs(Path source) throws IOException {
+        if(Files.isDirectory(source)) {
+            try(Stream<Path> paths = Files.walk(source)) {
+                return paths.filter(Files::isRegularFile).sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+        Path directory = source.toAbsolutePath().getParent();
+        List<Path> programs = new ArrayList<Path>();
+        for(String line : Files.readAllLines(source)) {
+            line = line.trim();
+            if(line.isEmpty() || line.startsWith("#")) { continue; }
+            programs.add(directory.resolve(line));
+        }
+        return programs;
+    }
+
+    /**
+     * Run programs, a given number at a time, writing the result of each to
+     * a Writer as it ends. Returns once every program has ended.
+     * @param programs the paths of the programs to run
+     * @param jobs the most programs to run at once
+     * @param out the Writer to write results to, which is not flushed
+     * @throws IOException if a result cannot be written, in which case the
+     * programs not yet begun are not run
+     * @throws InterruptedException if interrupted while waiting for the
+     * programs to end
+     */
+    void run(List<Path> programs, int jobs, Writer out)
+            throws IOException, InterruptedException {
+
+        ExecutorService pool = Executors.newFixedThreadPool(jobs);
+        List<Future<Void>> results = new ArrayList<Future<Void>>();
+        try {
+            for(Path program : programs) {
+                results.add(pool.submit(() -> {
+                    this.run(program, out);
+                    return null;
+                }));
+            }
+            for(Future<Void> result : results) {
+                try {
+                    result.get();
+                }
+                catch(ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if(cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if(cause instanceof Error) { throw (Error) cause; }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /*
+     * Parse and run a single program, and write its result.
+     */
+    private void run(Path program, Writer out) throws IOException {
+        StringBuilder str = new StringBuilder();
+        str.append("== ").append(program).append('\n');
+        int header = str.length();
+        Triple<PiTerm, SymbolTable, Integer> res = null;
+        try {
+            res = ProgramImage.load(program);
+        }
+        catch(IOException e) {
+            str.append("-- could not be read:\n").append(e).append('\n');
+        }
+        catch(Exception e) {
+            str.append("-- could not be parsed:\n").append(e.getMessage())
+                    .append('\n');
+        }
+        catch(StackOverflowError e) {
+            str.append("-- could not be parsed:\n").append(e).append('\n');
+        }
+
+        if(res != null) {
+            try {
+                Interpreter interpreter = Interpreter.fromTranslation(res,
+                        this.schedulers.get());
+                interpreter.setEvaluator(this.evaluator);
+                if(this.metrics != null) {
+                    interpreter.setMetrics(this.metrics);
+                }
+                RunResult result = interpreter.run(this.budget);
+                interpreter.appendTo(str);
+                str.append('\n');
+                if(result.isFinished()) {
+                    str.append("-- finished");
+                }
+                else {
+                    str.append("-- stopped on reaching the limit on ")
+                            .append(result.limit().name().toLowerCase()
+                            .replace('_', ' '));
+                }
+                str.append(" after ").append(result.reductions())
+                        .append(" reductions\n");
+            }
+            catch(RuntimeException | StackOverflowError e) {
+                str.setLength(header);
+                str.append("-- failed:\n").append(e).append('\n');
+            }
+        }
+
+        synchronized(out) {
+            out.append(str);
+        }
+    }
+}
@@ -2,15 +2,45 @@ package main;
 
 import parser.*;
 import syntax.PiTerm;
+import utils.SymbolTable;
 import utils.Triple;
 import interpreter.Interpreter;
+import interpreter.Checkpoint;
+import interpreter.ActorRuntime;
+import interpreter.LambdaEvaluator;
+import interpreter.Metrics;
+import interpreter.ExecutionBudget;
+import interpreter.RunResult;
+import interpreter.Scheduler;
+import interpreter.FifoScheduler;
+import interpreter.PriorityScheduler;
+import interpreter.UniformScheduler;
+import interpreter.RecordingScheduler;
+import interpreter.ReplayScheduler;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
@@ -30,43 +60,81 @@ public class Main {
             System.out.println(Main.help);
             return;
         }
+        Options options = Options.parse(args);
+        if(options == null || !options.check()) { return; }
+        LambdaEvaluator evaluator = options.evaluator();
 
-        HashSet<String> options = new HashSet<String>(Arrays.asList(
-                Arrays.copyOfRange(args, 0, args.length - 1)));
+        // If asked to, run every program in a directory or manifest rather
+        // than a single one, several at a time, and write the final state of
+        // each to a single file
+        if(options.batch) {
+            Main.batch(options, evaluator);
+            return;
+        }
 
-        File file = new File(args[args.length - 1]);
+        // If asked to, read the program as a stream of components separated
+        // by '|', from standard input if the file name is '-', and run it as
+        // it is read rather than once it has all been parsed
+        boolean stdin = options.stream && options.source.equals("-");
+        File file = new File(options.source);
 
         // Check the supplied file exists
-        if(!file.exists()) {
+        if(!stdin && !file.exists()) {
             System.out.println("File: \'" + file.getAbsolutePath() +
                     "\' does not exist.");
             return;
         }
 
         // Check the supplied file isn't a directory
-        if(file.isDirectory()) {
+        if(!stdin && file.isDirectory()) {
             System.out.println("File: \'" + file.getAbsolutePath() +
                     "\' is a directory.");
             return;
         }
 
-        // Try to open the file
-        FileInputStream input;
+        if(options.stream) {
+            Main.stream(options, evaluator, file, stdin);
+            return;
+        }
+
+        // Resume from the file if it is a checkpoint
         try {
-            input = new FileInputStream(file);
+            if(Checkpoint.isCheckpoint(file.toPath())) {
+                if(!options.checkResume()) { return; }
+                Main.interpret(options, evaluator, file.getAbsolutePath(),
+                        null, null, scheduler -> {
+                            try {
+                                return Interpreter.resume(file.toPath(),
+                                        scheduler);
+                            }
+                            catch(IOException e) {
+                                System.out.println("File: \'" +
+                                        file.getAbsolutePath() + "\' could " +
+                                        "not be resumed from:\n" +
+                                        e.getMessage());
+                                return null;
+                            }
+                        });
+                return;
+            }
         }
-        catch(FileNotFoundException e) {
+        catch(IOException e) {
             System.out.println("File: \'" + file.getAbsolutePath() +
-                    "\' could not be opened.");
+                    "\' could not be opened:\n" + e.getMessage());
             return;
         }
 
-        // Print either the prettyPrint of the AST or the error message supplied
-        // with the ParseException if parsing fails.
-        Triple<PiTerm, HashMap<String, Integer>, Integer> res;
+        // Otherwise load the file if it is a compiled program, and map it
+        // into memory and parse it if not, printing the error message
+        // supplied with the exception if it cannot be opened or parsed
+        Triple<PiTerm, SymbolTable, Integer> res;
         try {
-            res = Parser.parseStream(input);
-            input.close();
+            res = ProgramImage.load(file.toPath());
+        }
+        catch(IOException e) {
+            System.out.println("File: \'" + file.getAbsolutePath() +
+                    "\' could not be opened:\n" + e.getMessage());
+            return;
         }
         catch(Exception e) {
             System.out.println("File: \'" + file.getAbsolutePath() +
@@ -74,21 +142,652 @@ public class Main {
             return;
         }
 
-        Interpreter interpreter = Interpreter.fromTranslation(res);
-        boolean reductionOccurred = true;
+        // If asked to, compile the program into an image that loads faster
+        // than it parses, and stop
+        if(options.compile != null) {
+            try {
+                ProgramImage.write(res, Paths.get(options.compile));
+            }
+            catch(IOException e) {
+                System.out.println("Compile: \'" + options.compile +
+                        "\' could not be written:\n" + e.getMessage());
+            }
+            return;
+        }
+
+        // If asked to, run the program on the actor runtime instead
+        if(options.actors) {
+            Main.actors(options, evaluator, res);
+            return;
+        }
+
+        Main.interpret(options, evaluator, file.getAbsolutePath(), res.scnd,
+                null, scheduler -> Interpreter.fromTranslation(res, scheduler));
+    }
+
+    /*
+     * Run a program on the actor runtime, and print the state that it
+     * settles in.
+     */
+    private static void actors(Options options, LambdaEvaluator evaluator,
+            Triple<PiTerm, SymbolTable, Integer> res) {
+
+        ActorRuntime runtime = ActorRuntime.fromTranslation(res);
+        runtime.setEvaluator(evaluator);
+        if(options.seed != null) {
+            runtime.setRandom(new Random(options.seed));
+        }
+        runtime.run();
+        System.out.println(runtime);
+    }
+
+    /*
+     * Run a program read as a stream of components on the Interpreter.
+     */
+    private static void stream(Options options, LambdaEvaluator evaluator,
+            File file, boolean stdin) {
+
+        ComponentStream components;
+        try {
+            components = stdin ? new ComponentStream(
+                    new InputStreamReader(System.in)) :
+                    ComponentStream.open(file.toPath());
+        }
+        catch(IOException e) {
+            System.out.println("File: \'" + file.getAbsolutePath() +
+                    "\' could not be opened:\n" + e.getMessage());
+            return;
+        }
+        Main.interpret(options, evaluator, stdin ? "-" :
+                file.getAbsolutePath(), null, components, scheduler ->
+                new Interpreter(components.symbols(), scheduler));
+    }
+
+    /*
+     * Makes the Interpreter for a run, once there is a Scheduler to make it
+     * with, or returns null after printing why it cannot.
+     */
+    private interface Start {
+        Interpreter start(Scheduler scheduler);
+    }
+
+    /*
+     * Run a program on the Interpreter, in the mode asked for: one reduction,
+     * reading a stream, reducing in parallel, or reducing until no reduction
+     * is possible, one step at a time if there are limits. Sets up the
+     * Scheduler, any trace, checkpoints and Metrics beforehand, and finishes
+     * with them afterwards. The names the program uses for channels are
+     * needed only to give them priorities.
+     */
+    private static void interpret(Options options, LambdaEvaluator evaluator,
+            String name, SymbolTable symbols, ComponentStream components,
+            Start start) {
+
+        Scheduler scheduler = Main.scheduler(options, symbols);
+        if(scheduler == null) { return; }
+
+        // If asked to, record the choices made in a trace, or make the choices
+        // recorded in one, so that a run can be repeated exactly
+        String traceName = options.record != null ?
+                options.record : options.replay;
+        Closeable trace = null;
+        ReplayScheduler replayer = null;
+        try {
+            if(options.record != null) {
+                RecordingScheduler recorder = new RecordingScheduler(
+                        scheduler, FileChannel.open(Paths.get(options.record),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING));
+                scheduler = recorder;
+                trace = recorder;
+            }
+            else if(options.replay != null) {
+                replayer = new ReplayScheduler(scheduler,
+                        FileChannel.open(Paths.get(options.replay)));
+                scheduler = replayer;
+                trace = replayer;
+            }
+        }
+        catch(IOException | IllegalArgumentException e) {
+            System.out.println("Trace: \'" + traceName + "\' could not be " +
+                    "opened:\n" + e.getMessage());
+            return;
+        }
+
+        Interpreter interpreter = start.start(scheduler);
+        if(interpreter == null) {
+            Main.close(trace, traceName);
+            return;
+        }
+        interpreter.setEvaluator(evaluator);
+
+        // If asked to, count what the interpreter does, publish the counts
+        // through JMX, and print a summary of them to standard error every so
+        // many seconds and at the end of the run
+        Metrics metrics = null;
+        ScheduledExecutorService reporter = null;
+        if(options.period > 0) {
+            metrics = new Metrics();
+            metrics.register(new File(name).getName());
+            reporter = Main.report(metrics, options.period);
+            interpreter.setMetrics(metrics);
+        }
+
+        // If asked to, save the state to a checkpoint file when the run ends,
+        // and every so many steps along the way, writing in the background
+        Checkpointer checkpointer = options.checkpoint == null ? null :
+                new Checkpointer(Paths.get(options.checkpoint));
+        Run run = new Run(interpreter, options, checkpointer);
+
+        // A run that turns out not to be the one a trace was recorded from,
+        // or that cannot record its trace, is stopped where it is
+        boolean complete = false;
+        try {
+            if(options.once) { Main.once(run); }
+            else if(components != null) {
+                Main.stream(run, components, name);
+            }
+            else if(options.parallel) { Main.parallel(run); }
+            else if(options.budget != ExecutionBudget.UNLIMITED) {
+                Main.budgeted(run, options.budget);
+            }
+            else { Main.reduce(run); }
+
+            // The run is complete if nothing is left to reduce, or if it was
+            // only ever to be one reduction
+            complete = options.once || !interpreter.canReduce();
+        }
+        catch(ReplayScheduler.Mismatch e) {
+            run.output.flush();
+            System.out.println("Trace: \'" + traceName + "\' does not " +
+                    "match this run:\n" + e.getMessage());
+        }
+        catch(UncheckedIOException e) {
+            run.output.flush();
+            System.out.println("Trace: \'" + traceName + "\' could not be " +
+                    "used:\n" + e.getCause().getMessage());
+        }
+        run.output.flush();
+        if(checkpointer != null) { checkpointer.finish(interpreter); }
+
+        if(metrics != null) {
+            reporter.shutdownNow();
+            System.err.print(metrics);
+            metrics.unregister();
+        }
+
+        // A replay that reaches the end of the run must reach the end of the
+        // trace too
+        if(replayer != null && complete && !options.once) {
+            try {
+                if(!replayer.isFinished()) {
+                    System.out.println("Trace: \'" + traceName + "\' does " +
+                            "not match this run:\nThe run ended before the " +
+                            "trace did");
+                }
+            }
+            catch(IOException e) {
+                System.out.println("Trace: \'" + traceName + "\' could not " +
+                        "be read:\n" + e.getMessage());
+            }
+        }
+        Main.close(trace, traceName);
+    }
+
+    /*
+     * Perform a single reduction, and print the state after it.
+     */
+    private static void once(Run run) {
+        run.interpreter.doReduction();
+        run.output.state(run.interpreter);
+    }
+
+    /*
+     * Reduce until no reduction is possible.
+     */
+    private static void reduce(Run run) {
+        run.begin();
+        while(run.interpreter.doReduction()) { run.stepped(); }
+        run.end();
+    }
+
+    /*
+     * Reduce, adding the next component of a stream as soon as it begins to
+     * arrive and waiting for it only when no reduction is possible, until the
+     * stream ends and no reduction is possible.
+     */
+    private static void stream(Run run, ComponentStream components,
+            String name) {
+
+        run.begin();
+        while(true) {
+            if(components.ready() || !run.interpreter.doReduction()) {
+
+                // Show what has happened so far before waiting
+                if(!components.ready()) { run.output.flush(); }
+                PiTerm component = Main.next(components, name);
+                if(component == null) { break; }
+                run.interpreter.add(component);
+            }
+            run.stepped();
+        }
+        while(run.interpreter.doReduction()) { run.stepped(); }
+        run.end();
+    }
+
+    /*
+     * Reduce until no reduction is possible, reducing disjoint communications
+     * in parallel.
+     */
+    private static void parallel(Run run) {
+        ForkJoinPool pool = new ForkJoinPool();
+        run.begin();
+        while(run.interpreter.doParallelReduction(pool) > 0) {
+            run.stepped();
+        }
+        run.end();
+        pool.shutdown();
+    }
+
+    /*
+     * Reduce one step at a time within what is left of a budget, so that every
+     * state can be printed, until no reduction is possible or a limit is
+     * reached.
+     */
+    private static void budgeted(Run run, ExecutionBudget budget) {
+        run.begin();
+        RunResult result;
+        while(true) {
+            result = run.interpreter.run(budget.withReductions(
+                    Math.min(budget.reductions(), 1)));
+            budget = budget.after(result);
+            if(result.reductions() == 0) { break; }
+            run.stepped();
+        }
+        run.end();
+
+        // Stopping at a limit with nothing left to reduce is finishing
+        if(!result.isFinished() && run.interpreter.canReduce()) {
+            System.err.println("Stopped on reaching the limit on " +
+                    result.limit().name().toLowerCase().replace('_', ' ') +
+                    " after " + run.steps + " reductions.");
+        }
+    }
+
+    /*
+     * Close a trace, if there is one.
+     */
+    private static void close(Closeable trace, String name) {
+        if(trace == null) { return; }
+        try {
+            trace.close();
+        }
+        catch(IOException e) {
+            System.out.println("Trace: \'" + name + "\' could not be " +
+                    "closed:\n" + e.getMessage());
+        }
+    }
+
+    /*
+     * The state of a run on the Interpreter that is shared by its modes: the
+     * number of steps taken, and what is printed and saved along the way.
+     */
+    private static final class Run {
+
+        final Interpreter interpreter;
+        final Output output;
+        private final Options options;
+        private final Checkpointer checkpointer;
+        long steps;
+
+        Run(Interpreter interpreter, Options options,
+                Checkpointer checkpointer) {
+
+            this.interpreter = interpreter;
+            this.output = new Output();
+            this.options = options;
+            this.checkpointer = checkpointer;
+            this.steps = 0;
+        }
+
+        /*
+         * Print the first state, or begin tracking changes, as asked.
+         */
+        void begin() {
+            if(this.options.diff) { this.interpreter.trackChanges(); }
+            if(!this.options.finalOnly || this.options.diff) {
+                this.output.state(this.interpreter);
+            }
+        }
+
+        /*
+         * Count a step, and print and save the state after it as asked.
+         */
+        void stepped() {
+            this.steps++;
+            if(this.checkpointer != null && this.options.checkpointEvery > 0 &&
+                    this.steps % this.options.checkpointEvery == 0) {
+
+                this.checkpointer.save(this.interpreter);
+            }
+            if(this.options.diff) {
+                this.output.changes(this.interpreter, this.steps);
+            }
+            else if(!this.options.finalOnly &&
+                    this.steps % this.options.every == 0) {
+
+                this.output.state(this.interpreter);
+            }
+        }
+
+        /*
+         * Print the final state if it has not been printed already.
+         */
+        void end() {
+            if(!this.options.diff && (this.options.finalOnly ||
+                    this.steps % this.options.every != 0)) {
+
+                this.output.state(this.interpreter);
+            }
+            this.output.flush();
+        }
+    }
+
+    /*
+     * Writes to standard output through a single StringBuilder and buffer,
+     * both reused from one state to the next, so that printing a state costs
+     * time in proportion to its length and allocates nothing once they have
+     * grown to fit. Output is flushed when the buffer fills, and when the
+     * program ends, even if it is interrupted.
+     */
+    private static final class Output {
+
+        private final StringBuilder str;
+        private char[] chars;
+        private final PrintWriter writer;
+
+        Output() {
+            this.str = new StringBuilder();
+            this.chars = new char[256];
+            this.writer = new PrintWriter(new BufferedWriter(
+                    new OutputStreamWriter(System.out), 1 << 16));
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(this.writer::flush));
+        }
+
+        /*
+         * Write the current state of an Interpreter on a line of its own.
+         */
+        void state(Interpreter interpreter) {
+            interpreter.appendTo(this.str);
+            this.str.append('\n');
+            this.write();
+        }
+
+        /*
+         * Write the processes added and removed by a step of an Interpreter
+         * that tracks changes, after a line giving the number of the step.
+         */
+        void changes(Interpreter interpreter, long step) {
+            this.str.append("@@ ").append(step).append('\n');
+            interpreter.appendChanges(this.str);
+            this.write();
+        }
+
+        void flush() { this.writer.flush(); }
+
+        private void write() {
+            int length = this.str.length();
+            if(length > this.chars.length) {
+                this.chars = new char[Math.max(length, 2 * this.chars.length)];
+            }
+            this.str.getChars(0, length, this.chars, 0);
+            this.writer.write(this.chars, 0, length);
+            this.str.setLength(0);
+        }
+    }
+
+    /*
+     * Writes Checkpoints of an Interpreter to a file on a daemon thread, so
+     * that reduction goes on while each is written. If the last Checkpoint is
+     * still being written when another is asked for, the new one is skipped
+     * rather than holding up reduction or queueing up the states.
+     */
+    private static final class Checkpointer {
+
+        private final Path path;
+        private final ExecutorService writer;
+        private Future<?> pending;
+
+        Checkpointer(Path path) {
+            this.path = path;
+            this.writer = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.pending = null;
+        }
+
+        /*
+         * Take a Checkpoint of the Interpreter and write it in the background,
+         * unless the last one is still being written.
+         */
+        void save(Interpreter interpreter) {
+            if(this.pending != null && !this.pending.isDone()) { return; }
+            this.collect();
+            Checkpoint checkpoint = interpreter.checkpoint();
+            this.pending = this.writer.submit(() -> {
+                checkpoint.write(this.path);
+                return null;
+            });
+        }
+
+        /*
+         * Wait for the last Checkpoint to be written, then write one of the
+         * final state of the Interpreter, and stop the writing thread.
+         */
+        void finish(Interpreter interpreter) {
+            this.collect();
+            try {
+                interpreter.checkpoint().write(this.path);
+            }
+            catch(IOException e) {
+                this.failed(e);
+            }
+            this.writer.shutdown();
+        }
+
+        /*
+         * Wait for the Checkpoint being written, if any, and report it if it
+         * could not be written.
+         */
+        private void collect() {
+            if(this.pending == null) { return; }
+            try {
+                this.pending.get();
+            }
+            catch(ExecutionException e) {
+                this.failed(e.getCause());
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.pending = null;
+        }
+
+        private void failed(Throwable e) {
+            System.err.println("Checkpoint: \'" + this.path +
+                    "\' could not be written:\n" + e.getMessage());
+        }
+    }
+
+    /*
+     * Run every program listed by a directory or manifest (see
+     * Batch.programs()), each within the budget given, as many at a time as
+     * given by --jobs= or else as there are processors. The final state of
+     * each is written to the file given by --output=, or to standard output.
+     * Counts are kept across the batch if asked for.
+     */
+    private static void batch(Options options, LambdaEvaluator evaluator) {
+        String source = options.source;
+        String outputOption = options.output;
+        List<Path> programs;
+        try {
+            programs = Batch.programs(Paths.get(source));
+        }
+        catch(IOException e) {
+            System.out.println("Batch: \'" + source +
+                    "\' could not be read:\n" + e.getMessage());
+            return;
+        }
+
+        Writer out;
+        try {
+            out = new BufferedWriter(outputOption == null ?
+                    new OutputStreamWriter(System.out) :
+                    new FileWriter(outputOption), 1 << 16);
+        }
+        catch(IOException e) {
+            System.out.println("Output: \'" + outputOption +
+                    "\' could not be opened:\n" + e.getMessage());
+            return;
+        }
+
+        Metrics metrics = null;
+        ScheduledExecutorService reporter = null;
+        if(options.period > 0) {
+            metrics = new Metrics();
+            metrics.register(source);
+            reporter = Main.report(metrics, options.period);
+        }
+
+        Batch batch = new Batch(options.budget,
+                () -> Main.scheduler(options, null), evaluator, metrics);
+        try {
+            batch.run(programs, options.jobs, out);
+            out.close();
+        }
+        catch(IOException e) {
+            System.out.println("Output: \'" + (outputOption != null ?
+                    outputOption : "standard output") +
+                    "\' could not be written:\n" + e.getMessage());
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(metrics != null) {
+            reporter.shutdownNow();
+            System.err.print(metrics);
+            metrics.unregister();
+        }
+    }
+
+    /*
+     * Parse the next component of a stream, returning null at the end of the
+     * stream or, after printing why, if the component cannot be parsed. The
+     * stream is closed once null is returned.
+     */
+    private static PiTerm next(ComponentStream components, String name) {
+        PiTerm component;
+        try {
+            component = components.next();
+        }
+        catch(Exception e) {
+            System.err.println("File: \'" + name +
+                    "\' could not be parsed:\n" + e.getMessage());
+            component = null;
+        }
+        if(component == null) {
+            try {
+                components.close();
+            }
+            catch(IOException e) {
+                System.err.println("File: \'" + name +
+                        "\' could not be closed:\n" + e.getMessage());
+            }
+        }
+        return component;
+    }
 
-        // If we're only doing one reduction, do it and stop
-        if(options.contains("-o") || options.contains("--once")) {
-            interpreter.doReduction();
-            System.out.println(interpreter);
+    /*
+     * Make a new Scheduler that chooses reductions by the priorities given to
+     * the channels of a program if there are any, in the order in which
+     * processes arrive if asked to, or at random otherwise. Either way, a
+     * given seed makes the choices the same on every run. Returns null after
+     * printing why if the priorities cannot be read.
+     */
+    private static Scheduler scheduler(Options options, SymbolTable symbols) {
+        Long seed = options.seed;
+        if(options.priorities != null) {
+            HashMap<Integer, Integer> priorities =
+                    Main.priorities(options.priorities, symbols);
+            if(priorities == null) { return null; }
+            try {
+                return seed == null ? new PriorityScheduler(priorities) :
+                        new PriorityScheduler(priorities, seed);
+            }
+            catch(IllegalArgumentException e) {
+                System.out.println("Priorities: \'" + options.priorities +
+                        "\' are out of range:\n" + e.getMessage());
+                return null;
+            }
+        }
+        if(options.fifo) {
+            return seed == null ?
+                    new FifoScheduler() : new FifoScheduler(seed);
         }
+        return seed == null ?
+                new UniformScheduler() : new UniformScheduler(seed);
+    }
+
+    /*
+     * Read priorities given as a comma-separated list of name:priority pairs,
+     * keyed by the numbers the program gives those names. Print a message and
+     * return null if they cannot be read.
+     */
+    private static HashMap<Integer, Integer> priorities(String option,
+            SymbolTable symbols) {
 
-        // Otherwise, reduce until we can't reduce any more
-        else {
-            while(reductionOccurred) {
-                System.out.println(interpreter);
-                reductionOccurred = interpreter.doReduction();
+        HashMap<Integer, Integer> priorities = new HashMap<>();
+        for(String pair : option.split(",", -1)) {
+            int colon = pair.lastIndexOf(':');
+            int chnl = colon < 0 ? -1 :
+                    symbols.lookup(pair.substring(0, colon));
+            if(chnl < 0) {
+                System.out.println("Priority: \'" + pair + "\' does not " +
+                        "name a channel of the program.");
+                return null;
+            }
+            try {
+                priorities.put(chnl,
+                        Integer.parseInt(pair.substring(colon + 1)));
+            }
+            catch(NumberFormatException e) {
+                System.out.println("Priority: \'" + pair + "\' does not " +
+                        "give a number.");
+                return null;
             }
         }
+        return priorities;
+    }
+
+    /*
+     * Print a summary of Metrics to standard error every so many seconds, on
+     * a daemon thread, until the returned executor is shut down.
+     */
+    private static ScheduledExecutorService report(Metrics metrics,
+            long period) {
+
+        ScheduledExecutorService reporter =
+                Executors.newSingleThreadScheduledExecutor(task -> {
+                    Thread thread = new Thread(task, "metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        reporter.scheduleAtFixedRate(() -> System.err.print(metrics),
+                period, period, TimeUnit.SECONDS);
+        return reporter;
     }
 }
@@ -0,0 +1,341 @@
+package main;
+
+import interpreter.ExecutionBudget;
+import interpreter.KrivineMachine;
+import interpreter.LambdaEvaluator;
+import interpreter.LambdaReducer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The options given to Main on the command line, each read once, and the file
+ * they apply to. Options that take a value are given as prefix + value, and
+ * several have a short form: -l for --lazy, -f for --fifo, -a for --actors,
+ * -p for --parallel and -o for --once.
+ *
+ * Some options select a mode of running the program, and each mode cannot be
+ * used with some other options, including the other modes. These
+ * combinations are all listed in CONFLICTS and checked by check(), and those
+ * that matter only when resuming a checkpoint by checkResume().
+ */
+final class Options {
+
+    // Each mode, followed by the options and other modes it cannot be used
+    // with. "limits" stands for any of the --max- options.
+    private static final String[][] CONFLICTS = {
+        { "--batch", "--stream", "--compile", "--actors", "--parallel",
+                "--once", "--record", "--replay", "--priorities",
+                "--checkpoint" },
+        { "--stream", "--compile", "--actors", "--parallel", "--once",
+                "--checkpoint", "--priorities", "limits" },
+        { "--compile", "--actors", "--parallel", "--once" },
+        { "--actors", "--parallel", "--once", "--fifo", "--record",
+                "--replay", "--metrics", "--checkpoint", "--priorities",
+                "limits" },
+        { "--parallel", "--once", "--record", "--replay", "limits" }
+    };
+
+    // The options a checkpoint cannot be resumed with
+    private static final String[] RESUME_CONFLICTS =
+            { "--compile", "--actors", "--priorities" };
+
+    // The options that limit the work done, in the order they are read
+    private static final String[] LIMITS = { "--max-reductions=",
+            "--max-beta-steps=", "--max-processes=", "--max-term-size=",
+            "--max-time=" };
+
+    // The short forms of options
+    private static final String[][] SHORT_FORMS = { { "-l", "--lazy" },
+            { "-f", "--fifo" }, { "-a", "--actors" }, { "-p", "--parallel" },
+            { "-o", "--once" } };
+
+    // The long forms of the options given, without their values
+    private final HashSet<String> given;
+
+    // The file or directory named last on the command line
+    String source;
+
+    // What to run: a batch, a stream, a program or a checkpoint on the
+    // Interpreter, a program on actors, or nothing but a compiler
+    boolean batch;
+    boolean stream;
+    boolean actors;
+    String compile;
+
+    // How to reduce
+    boolean lazy;
+    boolean fifo;
+    boolean parallel;
+    boolean once;
+    Long seed;
+    String priorities;
+    ExecutionBudget budget;
+
+    // Traces to record or replay
+    String record;
+    String replay;
+
+    // What to print
+    int every;
+    boolean finalOnly;
+    boolean diff;
+
+    // The seconds between summaries of Metrics, or 0 if not counting
+    long period;
+
+    // Where and how often to save checkpoints, or null and 0
+    String checkpoint;
+    long checkpointEvery;
+
+    // How to run a batch
+    int jobs;
+    String output;
+
+    private Options() {
+        this.given = new HashSet<>();
+    }
+
+    /**
+     * Read the options from the command line. The last argument is the file
+     * they apply to, and any argument that is not an option is ignored.
+     * @param args the command line arguments, at least one
+     * @return the options, or null after printing why if a value cannot be
+     * read
+     */
+    static Options parse(String[] args) {
+        Options options = new Options();
+        options.source = args[args.length - 1];
+        HashSet<String> flags = new HashSet<>(Arrays.asList(
+                Arrays.copyOfRange(args, 0, args.length - 1)));
+        for(String flag : flags) {
+            int equals = flag.indexOf('=');
+            options.given.add(equals < 0 ? flag : flag.substring(0, equals));
+        }
+        for(String[] form : SHORT_FORMS) {
+            if(options.given.remove(form[0])) { options.given.add(form[1]); }
+        }
+
+        options.batch = options.given.contains("--batch");
+        options.stream = options.given.contains("--stream");
+        options.actors = options.given.contains("--actors");
+        options.compile = Options.value(flags, "--compile=");
+        options.lazy = options.given.contains("--lazy");
+        options.fifo = options.given.contains("--fifo");
+        options.parallel = options.given.contains("--parallel");
+        options.once = options.given.contains("--once");
+        options.priorities = Options.value(flags, "--priorities=");
+        options.record = Options.value(flags, "--record=");
+        options.replay = Options.value(flags, "--replay=");
+        options.finalOnly = options.given.contains("--final");
+        options.diff = options.given.contains("--diff");
+        options.checkpoint = Options.value(flags, "--checkpoint=");
+        options.output = Options.value(flags, "--output=");
+
+        // If given a seed, make the choices of reductions the same on every
+        // run
+        String seedOption = Options.value(flags, "--seed=");
+        if(seedOption != null) {
+            try {
+                options.seed = Long.parseLong(seedOption);
+            }
+            catch(NumberFormatException e) {
+                System.out.println("Seed: \'" + seedOption +
+                        "\' is not a number.");
+                return null;
+            }
+        }
+
+        // If asked to, count what is done and print a summary of the counts
+        // every so many seconds
+        String metricsOption = Options.value(flags, "--metrics=");
+        options.period = options.given.contains("--metrics") ? 10 : 0;
+        if(metricsOption != null) {
+            options.period = Options.positive(metricsOption);
+            if(options.period < 1) {
+                System.out.println("Metrics: \'" + metricsOption +
+                        "\' is not a positive number of seconds.");
+                return null;
+            }
+        }
+
+        // If asked to, stop once a limit on the work done is reached, even if
+        // more reductions are possible
+        options.budget = ExecutionBudget.UNLIMITED;
+        for(String prefix : LIMITS) {
+            String value = Options.value(flags, prefix);
+            if(value == null) { continue; }
+            long limit;
+            try {
+                limit = Long.parseLong(value);
+            }
+            catch(NumberFormatException e) {
+                limit = -1;
+            }
+            if(limit < 0) {
+                System.out.println("Limit: \'" + prefix + value +
+                        "\' is not a non-negative number.");
+                return null;
+            }
+            options.budget = Options.limit(options.budget, prefix, limit);
+        }
+        if(options.budget != ExecutionBudget.UNLIMITED) {
+            options.given.add("limits");
+        }
+
+        // Print every state by default, or only every so many
+        String everyOption = Options.value(flags, "--every=");
+        options.every = 1;
+        if(everyOption != null) {
+            options.every = (int) Math.min(Options.positive(everyOption),
+                    Integer.MAX_VALUE);
+            if(options.every < 1) {
+                System.out.println("Every: \'" + everyOption +
+                        "\' is not a positive number.");
+                return null;
+            }
+        }
+
+        // Save a checkpoint every so many steps, as well as at the end
+        String checkpointEveryOption =
+                Options.value(flags, "--checkpoint-every=");
+        if(checkpointEveryOption != null) {
+            options.checkpointEvery = Options.positive(checkpointEveryOption);
+            if(options.checkpointEvery < 1 || options.checkpoint == null) {
+                System.out.println("Checkpoint every: \'" +
+                        checkpointEveryOption + "\' is not a positive " +
+                        "number, or is given without --checkpoint=.");
+                return null;
+            }
+        }
+
+        // Run as many programs of a batch at a time as there are processors,
+        // unless told otherwise
+        String jobsOption = Options.value(flags, "--jobs=");
+        options.jobs = Runtime.getRuntime().availableProcessors();
+        if(jobsOption != null) {
+            options.jobs = (int) Math.min(Options.positive(jobsOption),
+                    Integer.MAX_VALUE);
+            if(options.jobs < 1) {
+                System.out.println("Jobs: \'" + jobsOption +
+                        "\' is not a positive number.");
+                return null;
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Check that no mode is given with an option it cannot be used with.
+     * @return true if the options can be used together, or false after
+     * printing why not
+     */
+    boolean check() {
+        for(String[] conflicts : CONFLICTS) {
+            if(!this.given.contains(conflicts[0])) { continue; }
+            ArrayList<String> found = this.found(conflicts, 1);
+            if(!found.isEmpty()) {
+                System.out.println(Options.list(found) + " cannot be used " +
+                        "with " + conflicts[0] + ".");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check that no option is given that a checkpoint cannot be resumed
+     * with.
+     * @return true if a checkpoint can be resumed with these options, or
+     * false after printing why not
+     */
+    boolean checkResume() {
+        ArrayList<String> found = this.found(RESUME_CONFLICTS, 0);
+        if(!found.isEmpty()) {
+            System.out.println(Options.list(found) + " cannot be used when " +
+                    "resuming a checkpoint.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Make the LambdaEvaluator asked for: a Krivine machine if evaluating
+     * lazily, or reduction by substitution otherwise.
+     * @return a LambdaEvaluator
+     */
+    LambdaEvaluator evaluator() {
+        return this.lazy ? new KrivineMachine() : LambdaReducer.EVALUATOR;
+    }
+
+    /*
+     * Collect the options from the given position of an array on that were
+     * given.
+     */
+    private ArrayList<String> found(String[] options, int from) {
+        ArrayList<String> found = new ArrayList<>();
+        for(int i = from; i < options.length; i++) {
+            if(this.given.contains(options[i])) { found.add(options[i]); }
+        }
+        return found;
+    }
+
+    /*
+     * Join names into a list of the form "A, b and c", to begin a sentence.
+     */
+    private static String list(ArrayList<String> names) {
+        StringBuilder str = new StringBuilder(names.get(0));
+        str.setCharAt(0, Character.toUpperCase(str.charAt(0)));
+        for(int i = 1; i < names.size(); i++) {
+            str.append(i == names.size() - 1 ? " and " : ", ")
+                    .append(names.get(i));
+        }
+        return str.toString();
+    }
+
+    /*
+     * Apply the limit given by an option to a budget.
+     */
+    private static ExecutionBudget limit(ExecutionBudget budget,
+            String prefix, long limit) {
+
+        switch(prefix) {
+            case "--max-reductions=":
+                return budget.withReductions(limit);
+            case "--max-beta-steps=":
+                return budget.withBetaSteps(limit);
+            case "--max-processes=":
+                return budget.withProcesses(limit);
+            case "--max-term-size=":
+                return budget.withTermSize(limit);
+            default:
+                return budget.withTime(limit, TimeUnit.SECONDS);
+        }
+    }
+
+    /*
+     * Read a positive number, or return 0 if the value is not one.
+     */
+    private static long positive(String value) {
+        try {
+            return Math.max(Long.parseLong(value), 0);
+        }
+        catch(NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /*
+     * Find the value given for an option of the form prefix + value, or null
+     * if the option was not given.
+     */
+    private static String value(HashSet<String> flags, String prefix) {
+        for(String flag : flags) {
+            if(flag.startsWith(prefix)) {
+                return flag.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+package parser;
+
+import syntax.PiTerm;
+import utils.SymbolTable;
+import java_cup.runtime.ComplexSymbolFactory;
+import java_cup.runtime.Scanner;
+import java_cup.runtime.Symbol;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Parses a program one component at a time, so that it can be run before it
+ * has all been read. The program is a stream of processes separated by '|',
+ * as if they were the processes of a Parallel whose brackets have been left
+ * off. A '|' may also begin or end the stream, and each component is parsed
+ * as soon as the '|' after it has been read. Only the component being parsed
+ * is held in memory.
+ *
+ * The free names of every component are numbered by the same SymbolTable,
+ * which grows as new names are read. An Interpreter that the components are
+ * added to must be constructed with it (see Interpreter.add()).
+ */
+public final class ComponentStream implements Closeable {
+
+    private final Reader input;
+    private final Lexer lexer;
+    private final ComplexSymbolFactory csf;
+
+    // The symbol to give the parser before reading any more
+    private Symbol pending;
+
+    /**
+     * Construct a new ComponentStream.
+     * @param input the Reader to read the program from, such as one reading
+     * standard input
+     */
+    public ComponentStream(Reader input) {
+        this.input = new InteractiveReader(input);
+        this.csf = new ComplexSymbolFactory();
+        this.lexer = new Lexer(this.input, this.csf);
+        this.lexer.separateComponents();
+        this.pending = null;
+    }
+
+    /**
+     * Construct a new ComponentStream reading from a file, which is mapped
+     * into memory (see Parser.parseFile()).
+     * @param path the path of the file
+     * @return a new ComponentStream reading the file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public static ComponentStream open(Path path) throws IOException {
+        return new ComponentStream(
+                new MappedFileReader(FileChannel.open(path)));
+    }
+
+    /**
+     * Access the table of the names read so far.
+     * @return the SymbolTable numbering the names of every component
+     */
+    public SymbolTable symbols() { return this.lexer.getSymbols(); }
+
+    /**
+     * Parse the next component, waiting for it to be read.
+     * @return the next component, or null if the end of the stream has been
+     * reached
+     * @throws Exception if the next component cannot be read or parsed
+     */
+    public PiTerm next() throws Exception {
+
+        // Skip empty components, and stop at the end of the input
+        Symbol first = this.lexer.next_token();
+        while(first.sym == sym.EOF) {
+            if(this.lexer.atEnd()) { return null; }
+            first = this.lexer.next_token();
+        }
+        this.pending = first;
+
+        // The parser reads a symbol after the EOF symbol that ends the
+        // component before accepting it, so give it another EOF symbol rather
+        // than reading into the next component
+        Scanner scanner = () -> {
+            Symbol next = this.pending;
+            this.pending = null;
+            if(next == null) { next = this.lexer.next_token(); }
+            if(next.sym == sym.EOF) {
+                this.pending = this.lexer.symbol(sym.EOF);
+            }
+            return next;
+        };
+        PiTerm component =
+                (PiTerm) new Parser(scanner, this.csf).parse().value;
+        component.bindNames(new ArrayList<Integer>());
+        return component;
+    }
+
+    /**
+     * Determine if the next component has begun to arrive, or the end of the
+     * stream has been reached, so that next() is unlikely to wait long. If
+     * the input cannot be checked, next() is left to report why.
+     * @return true if more of the stream has been read or can be read
+     * without waiting, false otherwise
+     */
+    public boolean ready() {
+        if(this.lexer.atEnd() || this.lexer.hasBufferedInput()) { return true; }
+        try {
+            return this.input.ready();
+        }
+        catch(IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Close the input.
+     * @throws IOException if the input cannot be closed
+     */
+    @Override
+    public void close() throws IOException { this.input.close(); }
+}
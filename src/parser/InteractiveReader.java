@@ -0,0 +1,67 @@
+package parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A Reader that passes on what another Reader gives as soon as it gives it.
+ * The Lexer keeps reading until its buffer is full or the input ends, which
+ * for a pipe or a terminal means waiting for input that may never come before
+ * lexing what has already arrived. After a read that does not fill the
+ * buffer, this reports the end of the input once, which the Lexer takes as
+ * the end of that refill rather than of the input, as it has already read
+ * something. A read that fills the buffer ends the refill by itself.
+ */
+final class InteractiveReader extends Reader {
+
+    private final Reader input;
+
+    // Whether the last read returned some characters without filling the
+    // buffer, so that the next read comes from the same refill
+    private boolean partial;
+
+    /**
+     * Construct a new InteractiveReader.
+     * @param input the Reader to read from
+     */
+    InteractiveReader(Reader input) {
+        this.input = input;
+        this.partial = false;
+    }
+
+    /**
+     * Read characters into part of an array, waiting only if none have been
+     * read since the last time this waited.
+     * @param chars the array to read into
+     * @param offset the index to read the first character into
+     * @param length the most characters to read
+     * @return the number of characters read, or -1 if the end of the input
+     * or of a refill has been reached
+     * @throws IOException if the underlying Reader cannot be read
+     */
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if(this.partial) {
+            this.partial = false;
+            return -1;
+        }
+        int count = this.input.read(chars, offset, length);
+        this.partial = count > 0 && count < length;
+        return count;
+    }
+
+    /**
+     * Determine if the underlying Reader can be read without waiting.
+     * @return true if a read will not wait, false if it might
+     * @throws IOException if the underlying Reader cannot be checked
+     */
+    @Override
+    public boolean ready() throws IOException { return this.input.ready(); }
+
+    /**
+     * Close the underlying Reader.
+     * @throws IOException if the underlying Reader cannot be closed
+     */
+    @Override
+    public void close() throws IOException { this.input.close(); }
+}
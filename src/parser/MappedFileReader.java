@@ -0,0 +1,99 @@
+package parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A Reader over a file that is mapped into memory rather than read through a
+ * stream, for lexing large sources. As japi source is ASCII, each byte is
+ * taken to be the character with the same value (as in ISO-8859-1), and
+ * copied straight from the mapping into the buffer the Lexer reads into, with
+ * no decoding and no other buffers in between. Bytes outside ASCII can only
+ * appear in comments, where their value does not matter.
+ *
+ * The file is mapped a region at a time, so that files too large to map at
+ * once can be read. A region stays mapped until it is garbage collected,
+ * even after this is closed.
+ */
+final class MappedFileReader extends Reader {
+
+    // The most bytes mapped at once
+    private static final long REGION = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+
+    // The mapping of the current region, and the position of its start in
+    // the file
+    private MappedByteBuffer buffer;
+    private long start;
+
+    /**
+     * Construct a new MappedFileReader, reading from the start of a file.
+     * @param channel the FileChannel to map the file through, which must be
+     * open for reading, and which is closed by close()
+     * @throws IOException if the file cannot be mapped
+     */
+    MappedFileReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.start = 0;
+        this.buffer = this.map();
+    }
+
+    /**
+     * Read characters into part of an array.
+     * @param chars the array to read into
+     * @param offset the index to read the first character into
+     * @param length the most characters to read
+     * @return the number of characters read, or -1 if the end of the file
+     * has been reached
+     * @throws IOException if the next region of the file cannot be mapped
+     */
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if(length == 0) { return 0; }
+        if(!this.buffer.hasRemaining()) {
+            if(this.start + this.buffer.capacity() >= this.size) { return -1; }
+            this.start += this.buffer.capacity();
+            this.buffer = this.map();
+        }
+        MappedByteBuffer buffer = this.buffer;
+        int position = buffer.position();
+        int count = Math.min(length, buffer.remaining());
+        for(int i = 0; i < count; i++) {
+            chars[offset + i] = (char) (buffer.get(position + i) & 0xff);
+        }
+        buffer.position(position + count);
+        return count;
+    }
+
+    /**
+     * Determine if any of the file is left to read, as reading it never
+     * waits.
+     * @return true if the end of the file has not been reached, false
+     * otherwise
+     */
+    @Override
+    public boolean ready() {
+        return this.buffer.hasRemaining() ||
+                this.start + this.buffer.capacity() < this.size;
+    }
+
+    /**
+     * Close the FileChannel the file is mapped through.
+     * @throws IOException if the FileChannel cannot be closed
+     */
+    @Override
+    public void close() throws IOException { this.channel.close(); }
+
+    /*
+     * Map the region of the file beginning at start.
+     */
+    private MappedByteBuffer map() throws IOException {
+        return this.channel.map(FileChannel.MapMode.READ_ONLY, this.start,
+                Math.min(REGION, this.size - this.start));
+    }
+}
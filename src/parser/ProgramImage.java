@@ -0,0 +1,193 @@
+package parser;
+
+import syntax.*;
+import utils.SymbolTable;
+import utils.Triple;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes compiled programs: images of a parsed PiTerm and the
+ * SymbolTable of its names, which load much faster than the source they were
+ * compiled from can be parsed. An image is read with a single bulk read into
+ * int and byte arrays, and the term is rebuilt from them by constructing each
+ * node directly, with no lexing, parsing or binding of names.
+ *
+ * An image is made up of a header of five ints - a magic number, a version,
+ * the number of names, their total length in bytes and the number of ints
+ * encoding the term - followed by the length of each name, the names
+ * themselves in ASCII padded to a whole number of ints, and the code of the
+ * term (see TermCode). All ints are big-endian.
+ *
+ * An image begins with the bytes "JAPI", which cannot begin a source file, so
+ * images and sources can be told apart (see load()).
+ */
+public final class ProgramImage {
+
+    private static final int MAGIC = 0x4A415049;
+    private static final int VERSION = 1;
+    private static final int HEADER = 5;
+
+    private ProgramImage() {}
+
+    /**
+     * Load a program from a file, reading it as an image if it is one, and
+     * parsing it as source (see Parser.parseFile()) otherwise.
+     * @param path the path of the file
+     * @return the term, the table of the names in it, and the next int not
+     * used as a name
+     * @throws IOException if the file cannot be read, or is a damaged image
+     * @throws Exception if the file is source that cannot be parsed
+     */
+    public static Triple<PiTerm, SymbolTable, Integer> load(Path path)
+            throws Exception {
+
+        return ProgramImage.isImage(path) ?
+                ProgramImage.read(path) : Parser.parseFile(path);
+    }
+
+    /**
+     * Determine if a file is an image.
+     * @param path the path of the file
+     * @return true if the file begins as an image does, false otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isImage(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path)) {
+            ByteBuffer start = ByteBuffer.allocate(4);
+            while(start.hasRemaining() && channel.read(start) >= 0) {}
+            return !start.hasRemaining() && start.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Write an image of a program to a file, replacing anything in it.
+     * @param program the term, the table of the names in it, and the next int
+     * not used as a name, as given by the parser
+     * @param path the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Triple<PiTerm, SymbolTable, Integer> program,
+            Path path) throws IOException {
+
+        SymbolTable symbols = program.scnd;
+        if(program.thrd != symbols.size()) {
+            throw new IllegalArgumentException("Only programs whose names " +
+                    "are all in their SymbolTable can be compiled");
+        }
+        byte[][] names = new byte[symbols.size()][];
+        int nameBytes = 0;
+        for(int i = 0; i < names.length; i++) {
+            names[i] = symbols.name(i).getBytes(StandardCharsets.US_ASCII);
+            nameBytes += names[i].length;
+        }
+        IntBuffer code = TermCode.encode(program.frst);
+        int length = code.remaining();
+
+        ByteBuffer image = ByteBuffer.allocate(4 * (HEADER + names.length +
+                ProgramImage.words(nameBytes) + length));
+        image.putInt(MAGIC).putInt(VERSION).putInt(names.length)
+                .putInt(nameBytes).putInt(length);
+        for(byte[] name : names) { image.putInt(name.length); }
+        for(byte[] name : names) { image.put(name); }
+        image.position(4 * (HEADER + names.length +
+                ProgramImage.words(nameBytes)));
+        image.asIntBuffer().put(code);
+        image.position(0);
+
+        try(FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            while(image.hasRemaining()) { channel.write(image); }
+        }
+    }
+
+    /**
+     * Read an image of a program from a file.
+     * @param path the path of the file
+     * @return the term, the table of the names in it, and the next int not
+     * used as a name
+     * @throws IOException if the file cannot be read or is not an image
+     */
+    public static Triple<PiTerm, SymbolTable, Integer> read(Path path)
+            throws IOException {
+
+        ByteBuffer image;
+        try(FileChannel channel = FileChannel.open(path)) {
+            long size = channel.size();
+            if(size < 4 * HEADER || size > Integer.MAX_VALUE ||
+                    size % 4 != 0) {
+                throw ProgramImage.damaged(path);
+            }
+            image = ByteBuffer.allocate((int) size);
+            while(image.hasRemaining() && channel.read(image) >= 0) {}
+            if(image.hasRemaining()) { throw ProgramImage.damaged(path); }
+            image.flip();
+        }
+
+        IntBuffer ints = image.asIntBuffer();
+        int[] header = new int[HEADER];
+        ints.get(header);
+        if(header[0] != MAGIC) {
+            throw new IOException(path + " is not a compiled japi program");
+        }
+        if(header[1] != VERSION) {
+            throw new IOException(path + " was compiled by a different " +
+                    "version of japi");
+        }
+        int nameCount = header[2];
+        int nameBytes = header[3];
+        int length = header[4];
+        if(nameCount < 0 || nameBytes < 0 || length < 0 ||
+                (long) HEADER + nameCount + ProgramImage.words(nameBytes) +
+                length != ints.capacity()) {
+
+            throw ProgramImage.damaged(path);
+        }
+
+        int[] nameLengths = new int[nameCount];
+        ints.get(nameLengths);
+        byte[] chars = new byte[nameBytes];
+        image.position(4 * (HEADER + nameCount));
+        image.get(chars);
+        int[] code = new int[length];
+        ints.position(HEADER + nameCount + ProgramImage.words(nameBytes));
+        ints.get(code);
+
+        SymbolTable symbols = new SymbolTable();
+        int offset = 0;
+        for(int nameLength : nameLengths) {
+            if(nameLength < 0 || nameLength > nameBytes - offset ||
+                    symbols.intern(new String(chars, offset, nameLength,
+                    StandardCharsets.US_ASCII)) != symbols.size() - 1) {
+
+                throw ProgramImage.damaged(path);
+            }
+            offset += nameLength;
+        }
+
+        PiTerm term;
+        try {
+            term = TermCode.decode(code);
+        }
+        catch(RuntimeException e) {
+            throw ProgramImage.damaged(path);
+        }
+        return Triple.make(term, symbols, symbols.size());
+    }
+
+    /*
+     * Determine the number of ints that hold the given number of bytes.
+     */
+    private static int words(int bytes) { return (bytes + 3) / 4; }
+
+    private static IOException damaged(Path path) {
+        return new IOException(path + " is a damaged compiled japi program");
+    }
+}
@@ -1,7 +1,7 @@
 package syntax;
 
-import java.util.HashSet;
-import java.util.HashMap;
+import utils.IntSet;
+import java.util.ArrayList;
 
 /**
  * Represents a lambda calculus abstraction.
@@ -22,7 +22,9 @@ public final class Abstraction extends LambdaTerm {
     }
 
     /**
-     * Access the name bound by the Abstraction.
+     * Access the name bound by the Abstraction. This is only used for
+     * printing - occurrences of the bound name in the body refer to the
+     * Abstraction by index.
      * @return the name bound by the Abstraction
      */
     public Integer name() { return this.name; }
@@ -34,97 +36,91 @@ public final class Abstraction extends LambdaTerm {
     public LambdaTerm body() { return this.body; }
 
     /**
-     * Reassign the body of the Abstraction.
-     * @param body the body of the Abstraction
+     * An Abstraction has its body as its only child.
+     * @return 1
      */
-    public void setBody(LambdaTerm body) { this.body = body; }
+    public int childCount() { return 1; }
 
     /**
-     * Enumerate the free variables of this Abstraction.
-     * @return a HashSet of the free variables of this Abstraction
+     * Access the body of the Abstraction.
+     * @param index 0
+     * @return the body of the Abstraction
      */
-    public HashSet<Integer> freeVars() {
-        HashSet<Integer> fv = this.body.freeVars();
-        fv.remove(this.name);
-        return fv;
-    }
+    public Term child(int index) { return this.body; }
 
     /**
-     * Enumerate all binders contained in this term including the name bound in
-     * this Abstraction.
-     * @return a HashSet of all binders contained in this term including the
-     * name bound in this Abstraction.
+     * Reassign the body of the Abstraction.
+     * @param index 0
+     * @param child the new body, which must be a LambdaTerm
      */
-    public HashSet<Integer> binders() {
-        HashSet<Integer> binders = this.body.binders();
-        binders.add(this.name);
-        return binders;
+    public void setChild(int index, Term child) {
+        this.body = (LambdaTerm) child;
     }
 
     /**
-     * Generate a string representation of this Abstraction.
-     * @return a string representation of this Abstraction
+     * An Abstraction binds one name over its body.
+     * @param index 0
+     * @return 1
      */
-    public String toString() {
-        return "(" + LambdaTerm.LAM + this.name.toString() + " " +
-                LambdaTerm.DOT + " " + this.body.toString() + ")";
-    }
+    @Override
+    public int bindersOver(int index) { return 1; }
 
     /**
-     * Obtain a string representation of this Abstraction, using a different
-     * name type.
-     * @return a string representing the Abstraction, printing names of a
-     * different type, the values of which are mapped to by the contained names
+     * Access the name bound by the Abstraction.
+     * @param index 0
+     * @return the name bound by the Abstraction
      */
-    public String toStringWithNameMap(HashMap<Integer, String> nameMap) {
-        return "(" + LambdaTerm.LAM + nameMap.get(this.name).toString() + " " +
-                LambdaTerm.DOT + " " + this.body.toStringWithNameMap(nameMap) +
-                ")";
-    }
+    @Override
+    Integer binder(int index) { return this.name; }
 
     /**
-     * Copy this Abstraction.
-     * @return a copy of this Abstraction
+     * Add the parts printed for this Abstraction to parts, bringing its name
+     * into scope for its body.
+     * @param names the NameScope in which this Abstraction is printed
+     * @param parts the list to add to
      */
-    public Abstraction copy() {
-        return new Abstraction(this.name, this.body.copy());
+    void addParts(NameScope names, ArrayList<Object> parts) {
+        parts.add("(" + LambdaTerm.LAM + names.bind(this.name, this.body) +
+                " " + LambdaTerm.DOT + " ");
+        parts.add(this.body);
+        parts.add(")");
+        parts.add(1);
     }
 
     /**
-     * Rename all occurrences of 'from' with 'to' in this Abstraction.
-     * @param from all occurrences of this name are changed
-     * @param to names being changed are replaced with this value
+     * Copy this Abstraction, sharing its body.
+     * @return a copy of this Abstraction
      */
-    public void blindRename(Integer from, Integer to) {
-        if(this.name.equals(from)) {
-            this.name = to;
-        }
-        this.body.blindRename(from, to);
-    }
+    public Abstraction copy() { return new Abstraction(this.name, this.body); }
 
     /**
-     * Rename all free occurrences of 'from' with 'to' in this Abstraction.
-     * @param from all free occurrences of this name are changed
-     * @param to names being changed are replaced with this value
+     * Instantiate the given binders within this Abstraction.
+     * @param depth the number of binders between this Abstraction and the body
+     * of the innermost instantiated binder
+     * @param values the values to instantiate the binders with
+     * @param level the depth of this Abstraction within the Term being
+     * instantiated
+     * @return the instantiated Abstraction
      */
-    public void renameFree(Integer from, Integer to) {
-        if(!this.name.equals(from)) {
-            this.body.renameFree(from, to);
+    LambdaTerm instantiate(int depth, ArrayList<LambdaTerm> values,
+            int level) {
+
+        if(this.looseBinders() <= depth) { return this; }
+        if(level == Term.MAX_RECURSION_DEPTH) {
+            return (LambdaTerm) Term.instantiateWithin(this, depth, values);
         }
+        return new Abstraction(this.name,
+                this.body.instantiate(depth + 1, values, level + 1));
     }
 
     /**
-     * Rename all bound names in this term, including the binders.
-     * @param from the name to change from
-     * @param to the name to change to
+     * Add the free names of this Abstraction to the given set.
+     * @param names the set to add to
+     * @param depth the depth of this Abstraction within the Term being
+     * searched
      */
-    public void renameNonFree(Integer from, Integer to) {
-        if(this.name.equals(from)) {
-            this.name = to;
-            this.body.blindRename(from, to);
-        }
-        else {
-            this.body.renameNonFree(from, to);
-        }
+    void addFreeNames(IntSet names, int depth) {
+        Term.addChildFreeNames(this.body, names, depth);
     }
+
 }
@@ -1,7 +1,7 @@
 package syntax;
 
-import java.util.HashSet;
-import java.util.HashMap;
+import utils.IntSet;
+import java.util.ArrayList;
 
 /**
  * Represents lambda calculus function application.
@@ -35,97 +35,82 @@ public final class Application extends LambdaTerm {
     public LambdaTerm arg() { return this.arg; }
 
     /**
-     * Set the func field of this Application.
-     * @param func the new function
-     */
-    public void setFunc(LambdaTerm func) { this.func = func; }
-
-    /**
-     * Set the arg field of this Application.
+     * Set the arg field of this Application, which must not yet be shared.
      * @param arg the new argument
      */
     public void setArg(LambdaTerm arg) { this.arg = arg; }
 
     /**
-     * Enumerate the free variables of this Application.
-     * @return a HashSet of the free variables of this Application
+     * An Application has its function and its argument as children.
+     * @return 2
      */
-    public HashSet<Integer> freeVars() {
-        HashSet<Integer> fvFunc = this.func.freeVars();
-        HashSet<Integer> fvArg = this.arg.freeVars();
-        for(Integer name : fvFunc) { fvArg.add(name); }
-        return fvArg;
-    }
+    public int childCount() { return 2; }
 
     /**
-     * Enumerate the binders and bound variable names of this Application.
-     * @return a HashSet of the binders and bound variable names of this
-     * Application
+     * Access the function (index 0) or the argument (index 1).
+     * @param index the index of the child
+     * @return the child at the given index
      */
-    public HashSet<Integer> binders() {
-        HashSet<Integer> bindersFunc = this.func.binders();
-        HashSet<Integer> bindersArg = this.arg.binders();
-        for(Integer name : bindersFunc) { bindersArg.add(name); }
-        return bindersArg;
-    }
+    public Term child(int index) { return index == 0 ? this.func : this.arg; }
 
     /**
-     * Replace every occurrence of the name {@code from} with {@code to} in this
-     * Application.
-     * @param from the name to be replaced
-     * @param to the name to replace with
+     * Set the function (index 0) or the argument (index 1).
+     * @param index the index of the child
+     * @param child the new child, which must be a LambdaTerm
      */
-    public void blindRename(Integer from, Integer to) {
-        this.func.blindRename(from, to);
-        this.arg.blindRename(from, to);
+    public void setChild(int index, Term child) {
+        if(index == 0) { this.func = (LambdaTerm) child; }
+        else { this.arg = (LambdaTerm) child; }
     }
 
     /**
-     * Replace every free occurrence of the name {@code from} with {@code to} in
-     * this Application.
-     * @param from the name to be replaced
-     * @param to the name to replace with
+     * Add the parts printed for this Application to parts.
+     * @param names the NameScope in which this Application is printed
+     * @param parts the list to add to
      */
-    public void renameFree(Integer from, Integer to) {
-        this.func.renameFree(from, to);
-        this.arg.renameFree(from, to);
+    void addParts(NameScope names, ArrayList<Object> parts) {
+        parts.add("(");
+        parts.add(this.func);
+        parts.add(" ");
+        parts.add(this.arg);
+        parts.add(")");
     }
 
     /**
-     * Replace every bound or binding occurrence of the name {@code from} with
-     * {@code to} in this Application.
-     * @param from the name to be replaced
-     * @param to the name to replace with
+     * Copy this Application, sharing its function and argument.
+     * @return a copy of this Application.
      */
-    public void renameNonFree(Integer from, Integer to) {
-        this.func.renameNonFree(from, to);
-        this.arg.renameNonFree(from, to);
-    }
+    public Application copy() { return new Application(this.func, this.arg); }
 
     /**
-     * Obtain a String representation of this Application, using the integer
-     * names generated during lexical analysis.
-     * @return a String representation of this Application
+     * Instantiate the given binders within this Application.
+     * @param depth the number of binders between this Application and the body
+     * of the innermost instantiated binder
+     * @param values the values to instantiate the binders with
+     * @param level the depth of this Application within the Term being
+     * instantiated
+     * @return the instantiated Application
      */
-    public String toString() {
-        return "(" + this.func + " " + this.arg + ")";
+    LambdaTerm instantiate(int depth, ArrayList<LambdaTerm> values,
+            int level) {
+
+        if(this.looseBinders() <= depth) { return this; }
+        if(level == Term.MAX_RECURSION_DEPTH) {
+            return (LambdaTerm) Term.instantiateWithin(this, depth, values);
+        }
+        return new Application(this.func.instantiate(depth, values, level + 1),
+                this.arg.instantiate(depth, values, level + 1));
     }
 
     /**
-     * Obtain a String representation of this Application, using the user's
-     * identifier Strings
-     * @return a String representation of this Application
+     * Add the free names of this Application to the given set.
+     * @param names the set to add to
+     * @param depth the depth of this Application within the Term being
+     * searched
      */
-    public String toStringWithNameMap(HashMap<Integer, String> nameMap) {
-        return "(" + this.func.toStringWithNameMap(nameMap) + " " +
-                this.arg.toStringWithNameMap(nameMap) + ")";
+    void addFreeNames(IntSet names, int depth) {
+        Term.addChildFreeNames(this.func, names, depth);
+        Term.addChildFreeNames(this.arg, names, depth);
     }
 
-    /**
-     * Deep-copy this Application.
-     * @return a deep-copy of this Application.
-     */
-    public Application copy() {
-        return new Application(this.func.copy(), this.arg.copy());
-    }
 }
@@ -1,6 +1,6 @@
 package syntax;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 
 /**
  * LambdaTerms are terms in the lambda calculus.
@@ -11,7 +11,35 @@ public abstract class LambdaTerm extends Term {
     public static final String DOT = ".";
 
     /**
-     * Copy a LambdaTerm. Contained name objects need not be deeply copied.
+     * Replace the names that refer to the given number of binders, which are
+     * depth binders above this LambdaTerm, with the given values. The values
+     * must not contain bound names. This LambdaTerm is left unchanged, and
+     * the result shares with it every subterm that does not change.
+     * @param depth the number of binders between this LambdaTerm and the body
+     * of the innermost instantiated binder
+     * @param values the values, the first of which replaces references to the
+     * innermost instantiated binder
+     * @return the instantiated LambdaTerm
+     */
+    public LambdaTerm instantiate(int depth, ArrayList<LambdaTerm> values) {
+        return this.instantiate(depth, values, 0);
+    }
+
+    /**
+     * Instantiate the given binders within this LambdaTerm, recursing until
+     * MAX_RECURSION_DEPTH and using instantiateWithin below that.
+     * @param depth the number of binders between this LambdaTerm and the body
+     * of the innermost instantiated binder
+     * @param values the values to instantiate the binders with
+     * @param level the depth of this LambdaTerm within the Term being
+     * instantiated
+     * @return the instantiated LambdaTerm
+     */
+    abstract LambdaTerm instantiate(int depth, ArrayList<LambdaTerm> values,
+            int level);
+
+    /**
+     * Copy a LambdaTerm, sharing its children.
      * @return a copy of this LambdaTerm.
      */
     public abstract LambdaTerm copy();
@@ -1,8 +1,6 @@
 package syntax;
 
-import utils.Utils;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * The NDSum class represents n-ary nondeterministic sums. An NDSum PiTerm can
@@ -23,33 +21,19 @@ public final class NDSum extends PiTermManySub {
     }
 
     /**
-     * Obtain a string representation of this NDSum.
-     * @return a string representation of this NDSum
+     * Add the parts printed for this NDSum to parts.
+     * @param names the NameScope in which this NDSum is printed
+     * @param parts the list to add to
      */
-    @Override
-    public String toString() {
-        return Utils.stringifyList("{ ", " }", " + ", this.subterms);
+    void addParts(NameScope names, ArrayList<Object> parts) {
+        this.addSubtermParts("{ ", " }", " + ", parts);
     }
 
     /**
-     * Obtain a string representation of this NDSum, using a different name
-     * type.
-     * @return a string representing the NDSum, printing names of a different
-     * type, the values of which are mapped to by the contained names.
-     */
-    public String toStringWithNameMap(HashMap<Integer, String> nameMap) {
-        ArrayList<String> strSubs = new ArrayList<String>();
-        for(PiTerm subterm : this.subterms) {
-            strSubs.add(subterm.toStringWithNameMap(nameMap));
-        }
-        return Utils.stringifyList("{ ", " }", " + ", strSubs);
-    }
-
-    /**
-     * Copy this NDSum.
+     * Copy this NDSum, sharing its subterms.
      * @return a copy of this NDSum
      */
     public NDSum copy() {
-        return new NDSum(this.copySubs());
+        return new NDSum(new ArrayList<PiTerm>(this.subterms));
     }
 }
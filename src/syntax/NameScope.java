@@ -0,0 +1,90 @@
+package syntax;
+
+import utils.IntSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.function.Function;
+
+/**
+ * Determines the Strings printed for the names in a Term. Free names are
+ * printed as a given function maps them, and bound names as the Strings chosen
+ * for their binders, which are kept on a stack while the binders' bodies are
+ * printed.
+ */
+final class NameScope {
+
+    private final Function<Integer, String> nameMap;
+
+    // The Strings chosen for the enclosing binders, innermost last
+    private final ArrayList<String> binders;
+
+    // The Strings printed for the free names of the whole term being printed.
+    // A binder's own name only needs checking against its body when it is
+    // one of these.
+    private final HashSet<String> freeStrings;
+
+    /**
+     * Construct a new NameScope for printing a Term.
+     * @param nameMap function from free names to the Strings to print for them
+     * @param printed the Term that will be printed
+     */
+    NameScope(Function<Integer, String> nameMap, Term printed) {
+        this.nameMap = nameMap;
+        this.binders = new ArrayList<>();
+        this.freeStrings = this.freeStrings(printed);
+    }
+
+    /**
+     * Obtain the String to print for a name.
+     * @param name the stored name, bound or free
+     * @return the String to print
+     */
+    String name(Integer name) {
+        if(!Term.isBound(name)) { return this.nameMap.apply(name); }
+
+        // A name bound outside of the printed Term is printed as it is stored
+        int binder = this.binders.size() - 1 - Term.indexOf(name);
+        return binder >= 0 ? this.binders.get(binder) : name.toString();
+    }
+
+    /**
+     * Choose the String to print for a binder, and bring it into scope. The
+     * binder's own name is used unless a free name in its body would then be
+     * printed the same way, in which case primes are added.
+     * @param hint the name the binder was written with
+     * @param body the body of the binder
+     * @return the String chosen for the binder
+     */
+    String bind(Integer hint, Term body) {
+        String chosen = this.nameMap.apply(hint);
+        if(this.freeStrings.contains(chosen)) {
+            HashSet<String> bodyStrings = this.freeStrings(body);
+            while(bodyStrings.contains(chosen)) { chosen += "'"; }
+        }
+        this.binders.add(chosen);
+        return chosen;
+    }
+
+    /**
+     * Remove the given number of innermost binders from scope.
+     * @param count the number of binders to remove
+     */
+    void unbind(int count) {
+        for(int i = 0; i < count; i++) {
+            this.binders.remove(this.binders.size() - 1);
+        }
+    }
+
+    /*
+     * Obtain the Strings printed for the free names of a term.
+     */
+    private HashSet<String> freeStrings(Term term) {
+        IntSet free = new IntSet();
+        term.addFreeNames(free);
+        HashSet<String> strings = new HashSet<>();
+        for(int i = 0; i < free.size(); i++) {
+            strings.add(this.nameMap.apply(free.get(i)));
+        }
+        return strings;
+    }
+}
@@ -1,8 +1,6 @@
 package syntax;
 
-import utils.Utils;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * The Parallel class represents parallel composition - it contains two
@@ -17,37 +15,20 @@ public final class Parallel extends PiTermManySub {
     public Parallel(ArrayList<PiTerm> subterms) { super(subterms); }
 
     /**
-     * Obtain a string representation of this Parallel, using a different name
-     * type.
-     * @return a string representing the Parallel, printing names of a different
-     * type, the values of which are mapped to by the contained names.
+     * Add the parts printed for this Parallel to parts.
+     * @param names the NameScope in which this Parallel is printed
+     * @param parts the list to add to
      */
-    public String toStringWithNameMap(HashMap<Integer, String> nameMap) {
-        if(this.arity() < 1) { return "0"; }
-        else {
-            ArrayList<String> strSubs = new ArrayList<String>();
-            for(PiTerm subterm : this.subterms) {
-                strSubs.add(subterm.toStringWithNameMap(nameMap));
-            }
-            return Utils.stringifyList("[ ", " ]", " | ", strSubs);
-        }
+    void addParts(NameScope names, ArrayList<Object> parts) {
+        if(this.arity() < 1) { parts.add("0"); }
+        else { this.addSubtermParts("[ ", " ]", " | ", parts); }
     }
 
     /**
-     * Obtain a string representation of this Parallel.
-     * @return a string representation of this Parallel
-     */
-    @Override
-    public String toString() {
-        if(this.arity() < 1) { return "0"; }
-        else { return Utils.stringifyList("[ ", " ]", " | ", this.subterms); }
-    }
-
-    /**
-     * Deep copy this Parallel.
-     * @return a deep copy of this Parallel
+     * Copy this Parallel, sharing its subterms.
+     * @return a copy of this Parallel
      */
     public Parallel copy() {
-        return new Parallel(this.copySubs());
+        return new Parallel(new ArrayList<PiTerm>(this.subterms));
     }
 }
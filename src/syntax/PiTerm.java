@@ -1,20 +1,67 @@
 package syntax;
 
-import utils.Utils;
 import java.util.ArrayList;
-import java.util.HashSet;
 
 /**
  * A PiTerm is a pi-calculus expression.
  * */
 public abstract class PiTerm extends Term {
 
+    // The position of this term within the interpreter pool that holds it, or
+    // -1 if it is not in a pool. Not copied by copy().
+    private int poolIndex = -1;
+
+    // The Summary of this term, or null if not yet known. Threads that race
+    // to work it out all store equal values, so it needs no synchronization.
+    private Summary summary;
+
+    /**
+     * Access the position of this term within the pool that holds it. The
+     * value is only meaningful to the pool that set it.
+     * @return the stored pool position, or -1 if none was set
+     */
+    public int poolIndex() { return this.poolIndex; }
+
+    /**
+     * Record the position of this term within the pool that holds it.
+     * @param poolIndex the new pool position
+     */
+    public void setPoolIndex(int poolIndex) { this.poolIndex = poolIndex; }
+
     /**
-     * Copy a PiTerm. Contained name objects need not be deeply copied.
+     * Copy a PiTerm, sharing its children. The copy has no pool position.
      * @return a copy of this PiTerm.
      */
     public abstract PiTerm copy();
 
+    /**
+     * Replace the names that refer to the given number of binders, which are
+     * depth binders above this PiTerm, with the given values. Names in
+     * channel positions may only be replaced with Variables. The values must
+     * not contain bound names. This PiTerm is left unchanged, and the result
+     * shares with it every subterm that does not change.
+     * @param depth the number of binders between this PiTerm and the body of
+     * the innermost instantiated binder
+     * @param values the values, the first of which replaces references to the
+     * innermost instantiated binder
+     * @return the instantiated PiTerm
+     */
+    public PiTerm instantiate(int depth, ArrayList<LambdaTerm> values) {
+        return this.instantiate(depth, values, 0);
+    }
+
+    /**
+     * Instantiate the given binders within this PiTerm, recursing until
+     * MAX_RECURSION_DEPTH and using instantiateWithin below that.
+     * @param depth the number of binders between this PiTerm and the body of
+     * the innermost instantiated binder
+     * @param values the values to instantiate the binders with
+     * @param level the depth of this PiTerm within the Term being instantiated
+     * @return the instantiated PiTerm
+     */
+    abstract PiTerm instantiate(int depth, ArrayList<LambdaTerm> values,
+            int level);
+
     /**
      * Determine if two terms will exchange a message. Two terms are defined as
      * able to do so when any top-level (i.e. not to the right of a '.') send or
@@ -28,80 +75,7 @@ public abstract class PiTerm extends Term {
      * @return true if the terms will exchange a message, false otherwise
      */
     public static boolean talksTo(PiTerm t1, PiTerm t2) {
-        return PiTerm.talksTo(t1, t2, new HashSet<Integer>(),
-                new HashSet<Integer>());
-    }
-    private static boolean talksTo(PiTerm t1, PiTerm t2,
-            HashSet<Integer> t1Restricted, HashSet<Integer> t2Restricted) {
-
-        // If we have a send and a receive, return true if they are on the same
-        // channel and neither of them have that channel restricted
-        if(t1 instanceof Send && t2 instanceof Receive) {
-            Send s1 = (Send) t1;
-            Receive r2 = (Receive) t2;
-            return s1.chnl().equals(r2.chnl()) && (s1.arity() == r2.arity()) &&
-                    (!(t1Restricted.contains(s1.chnl()))) &&
-                    (!(t2Restricted.contains(s1.chnl())));
-        }
-        else if(t1 instanceof Receive && t2 instanceof Send) {
-            return PiTerm.talksTo(t2, t1, t2Restricted, t1Restricted);
-        }
-
-        // If one of the terms is a replicate, return true if the body of the
-        // replicated term would talk to the other term, false otherwise
-        else if(t1 instanceof Replicate) {
-            return PiTerm.talksTo(((Replicate) t1).subterm(), t2, t1Restricted,
-                    t2Restricted);
-        }
-        else if(t2 instanceof Replicate) {
-            return PiTerm.talksTo(t2, t1, t2Restricted, t1Restricted);
-        }
-
-        // Terms under Tau actions cannot talk
-        else if(t1 instanceof Tau || t2 instanceof Tau) { return false; }
-
-        // If one of the terms is a parallel composition, return true if either
-        // of its subprocesses would talk to the other term
-        else if(t1 instanceof PiTermManySub) {
-            PiTermManySub ptms;
-            if(t1 instanceof Parallel) { ptms = (Parallel) t1; }
-            else if(t1 instanceof NDSum) { ptms = (NDSum) t1; }
-            else { throw new IllegalArgumentException("Unrecognised " +
-                    "PiTermManySub PiTerm in PiTerm.talksTo()"); }
-
-            boolean foundMatch = false;
-            int i = 0;
-            while(i < ptms.arity() && !foundMatch) {
-                if(PiTerm.talksTo(ptms.subterm(i), t2, t1Restricted,
-                        t2Restricted)) {
-
-                    foundMatch = true;
-                }
-                i++;
-            }
-            return foundMatch;
-        }
-        else if(t2 instanceof PiTermManySub) {
-            return PiTerm.talksTo(t2, t1, t2Restricted, t1Restricted);
-        }
-
-        // If one of the terms is a restriction, add the restricted name to the
-        // set of restricted names, and ask if the subterm would talk to the
-        // other term
-        else if(t1 instanceof Restrict) {
-            Restrict r1 = (Restrict) t1;
-            HashSet<Integer> t1RestrictedNew =
-                    new HashSet<Integer>(t1Restricted);
-            t1RestrictedNew.add(r1.boundName());
-            return PiTerm.talksTo(r1.subterm(), t2, t1RestrictedNew,
-                    t2Restricted);
-        }
-        else if(t2 instanceof Restrict) {
-            return PiTerm.talksTo(t2, t1, t2Restricted, t1Restricted);
-        }
-
-        // No other possibilities, so return false if no other conditions catch
-        else { return false; }
+        return t1.summary().talksTo(t2.summary());
     }
 
     /**
@@ -110,22 +84,42 @@ public abstract class PiTerm extends Term {
      * @return true if the given term has an internal action, false otherwise.
      */
     public static boolean hasInternalAction(PiTerm term) {
-        if(term instanceof PiTermComm) { return false; }
-        else if(term instanceof Restrict || term instanceof Replicate) {
-            return PiTerm.hasInternalAction(((PiTermOneSub) term).subterm());
-        }
-        else if(term instanceof NDSum) {
-            return Utils.any((PiTerm tm) -> PiTerm.hasInternalAction(tm),
-                    ((NDSum) term).subterms());
-        }
-        else if(term instanceof Parallel) {
-            return Utils.any((PiTerm tm) -> PiTerm.hasInternalAction(tm),
-                    ((Parallel) term).subterms()) || PiTerm.talksTo(term, term);
-        }
-        else if(term instanceof Tau) { return true; }
-        else {
-            throw new IllegalArgumentException("Unrecognised PiTerm type in " +
-                    "PiTerm.hasInternalAction()");
+        return term.summary().hasInternalAction();
+    }
+
+    /**
+     * Obtain the Summary of this term's top-level Sends and Receives and
+     * internal actions. Worked out once, with an explicit stack, and then
+     * remembered.
+     * @return the Summary of this term
+     */
+    public Summary summary() {
+        if(this.summary != null) { return this.summary; }
+
+        TermStack stack = new TermStack();
+        stack.push(this, 0);
+        while(!stack.isEmpty()) {
+            PiTerm term = (PiTerm) stack.term();
+            int next = stack.value();
+            if(next < PiTerm.summarizedCount(term)) {
+                stack.setValue(next + 1);
+                PiTerm child = (PiTerm) term.child(next);
+                if(child.summary == null) { stack.push(child, 0); }
+                continue;
+            }
+            stack.pop();
+            term.summary = Summary.of(term);
         }
+        return this.summary;
+    }
+
+    /*
+     * Determine the number of children of a term that its Summary is worked
+     * out from: the subterms of parallel compositions and sums, and of
+     * replications and restrictions, but not the continuations of actions.
+     */
+    private static int summarizedCount(PiTerm term) {
+        if(term instanceof PiTermManySub) { return term.childCount(); }
+        return term instanceof Replicate || term instanceof Restrict ? 1 : 0;
     }
 }
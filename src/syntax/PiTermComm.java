@@ -1,6 +1,5 @@
 package syntax;
 
-import java.util.ArrayList;
 /**
  * PiTermComm represents at a higher level those terms that are involved in
  * message passing. This includes Send and Receive.
@@ -26,8 +25,14 @@ public abstract class PiTermComm extends PiTermOneSub {
     public Integer chnl() { return this.chnl; }
 
     /**
-     * Set the channel name.
-     * @param chnl the new channel name
+     * Access the channel name, which is the name stored in this term.
+     * @return the channel name
      */
-    public void setChnl(Integer chnl) { this.chnl = chnl; }
+    Integer ownName() { return this.chnl; }
+
+    /**
+     * Set the channel name of this term, which must not yet be shared.
+     * @param name the new channel name
+     */
+    void setOwnName(Integer name) { this.chnl = name; }
 }
@@ -1,8 +1,8 @@
 package syntax;
 
+import utils.IntSet;
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.HashSet;
 
 public abstract class PiTermManySub extends PiTerm implements Iterable<PiTerm> {
 
@@ -42,70 +42,79 @@ public abstract class PiTermManySub extends PiTerm implements Iterable<PiTerm> {
     public Iterator<PiTerm> iterator() { return this.subterms.iterator(); }
 
     /**
-     * Enumerate the binders in this PiTermManySub.
-     * @return a HashSet of the binders in this PiTermManySub
+     * The children of a PiTermManySub are its subterms.
+     * @return the number of subterms
      */
-    public HashSet<Integer> binders() {
-        HashSet<Integer> binders = new HashSet<Integer>();
-        for(PiTerm subterm : subterms) {
-            for(Integer binder : subterm.binders()) { binders.add(binder); }
-        }
-        return binders;
-    }
+    public int childCount() { return this.subterms.size(); }
 
     /**
-     * Enumerate the free names in this PiTermManySub.
-     * @return a Hashset of the free names in this PiTermManySub
+     * Access a stored subterm.
+     * @param index the index of the subterm to retrieve
+     * @return the stored subterm
      */
-    public HashSet<Integer> freeVars() {
-        HashSet<Integer> freeVars = new HashSet<Integer>();
-        for(PiTerm subterm : subterms) {
-            for(Integer free : subterm.freeVars()) { freeVars.add(free); }
-        }
-        return freeVars;
-    }
+    public Term child(int index) { return this.subterms.get(index); }
 
     /**
-     * Rename the free occurences of 'from' to 'to' in this PiTermManySub.
-     * @param from free names of this value are renamed
-     * @param to renamed names are given this value
+     * Replace a stored subterm.
+     * @param index the index of the subterm to replace
+     * @param child the new subterm, which must be a PiTerm
      */
-    public void renameFree(Integer from, Integer to) {
-        for(PiTerm subterm : subterms) {
-            subterm.renameFree(from, to);
-        }
+    public void setChild(int index, Term child) {
+        this.subterms.set(index, (PiTerm) child);
     }
 
     /**
-     * Rename the binders and bound occurrences of 'from' to 'to' in this
-     * PiTermManySub.
-     * @param from binders and bound names of this value are renamed
-     * @param to renamed names are given this value
+     * Instantiate the given binders within this PiTermManySub, without
+     * changing it.
+     * @param depth the number of binders between this PiTermManySub and the
+     * body of the innermost instantiated binder
+     * @param values the values to instantiate the binders with
+     * @param level the depth of this PiTermManySub within the Term being
+     * instantiated
+     * @return the instantiated PiTermManySub, which is this one if it contains
+     * none of the given binders
      */
-    public void renameNonFree(Integer from, Integer to) {
-        for(PiTerm subterm : subterms) {
-            subterm.renameNonFree(from, to);
+    PiTerm instantiate(int depth, ArrayList<LambdaTerm> values, int level) {
+        if(this.looseBinders() <= depth) { return this; }
+        if(level == Term.MAX_RECURSION_DEPTH) {
+            return (PiTerm) Term.instantiateWithin(this, depth, values);
+        }
+        PiTermManySub copy = (PiTermManySub) this.copy();
+        for(int i = 0; i < this.subterms.size(); i++) {
+            copy.subterms.set(i, this.subterms.get(i).instantiate(depth,
+                    values, level + 1));
         }
+        return copy;
     }
 
     /**
-     * Obtain an ArrayList with copies of the contained subterms.
-     * @return an ArrayList with copies of the contained subterms
+     * Add the free names of this PiTermManySub to the given set.
+     * @param names the set to add to
+     * @param depth the depth of this PiTermManySub within the Term being
+     * searched
      */
-    protected ArrayList<PiTerm> copySubs() {
-        ArrayList<PiTerm> copies = new ArrayList<PiTerm>();
-        for(PiTerm term : this.subterms) { copies.add(term); }
-        return copies;
+    void addFreeNames(IntSet names, int depth) {
+        for(PiTerm subterm : this.subterms) {
+            Term.addChildFreeNames(subterm, names, depth);
+        }
     }
 
     /**
-     * Carelessly rename every occurence of 'from' with 'to'.
-     * @param from names with this value are renamed
-     * @param to names being renamed are renamed to this name
+     * Add the parts printed for the subterms of this PiTermManySub to parts,
+     * surrounded and separated by the given Strings.
+     * @param open printed before the first subterm
+     * @param close printed after the last subterm
+     * @param delimiter printed between subterms
+     * @param parts the list to add to
      */
-    public void blindRename(Integer from, Integer to) {
-        for(PiTerm subterm : this.subterms) {
-            subterm.blindRename(from, to);
+    protected void addSubtermParts(String open, String close,
+            String delimiter, ArrayList<Object> parts) {
+
+        parts.add(open);
+        for(int i = 0; i < this.subterms.size(); i++) {
+            if(i > 0) { parts.add(delimiter); }
+            parts.add(this.subterms.get(i));
         }
+        parts.add(close);
     }
 }
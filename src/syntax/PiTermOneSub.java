@@ -1,6 +1,7 @@
 package syntax;
 
-import java.util.HashSet;
+import utils.IntSet;
+import java.util.ArrayList;
 
 /**
  * Represents at a higher level those terms that have a single subterm. This
@@ -23,42 +24,59 @@ public abstract class PiTermOneSub extends PiTerm {
     public PiTerm subterm() { return this.subterm; }
 
     /**
-     * Enumerate the binders in this Replicate.
-     * @return a HashSet of the binders in this Replicate
+     * A PiTermOneSub has its subterm as its only child.
+     * @return 1
      */
-    public HashSet<Integer> binders() { return this.subterm.binders(); }
+    public int childCount() { return 1; }
 
     /**
-     * Enumerate the free variable names in this Replicate.
-     * @return a HashSet of the free variable names in this Replicate
+     * Access the stored subterm.
+     * @param index 0
+     * @return the stored subterm
      */
-    public HashSet<Integer> freeVars() { return this.subterm.freeVars(); }
+    public Term child(int index) { return this.subterm; }
 
     /**
-     * Rename the free occurrences of 'from' to 'to' in this Replicate.
-     * @param from all free occurrences of this name are changed
-     * @param to names being changed are replaced with this value
+     * Replace the stored subterm.
+     * @param index 0
+     * @param child the new subterm, which must be a PiTerm
      */
-    public void renameFree(Integer from, Integer to) {
-        this.subterm.renameFree(from, to);
+    public void setChild(int index, Term child) {
+        this.subterm = (PiTerm) child;
     }
 
     /**
-     * Rename the binding and bound occurrences of 'from' to 'to' in this
-     * Replicate.
-     * @param from all binding and bound occurrences of this name are changed
-     * @param to names being changed are replaced with this value
+     * Instantiate the given binders within this PiTermOneSub, without changing
+     * it.
+     * @param depth the number of binders between this PiTermOneSub and the body
+     * of the innermost instantiated binder
+     * @param values the values to instantiate the binders with
+     * @param level the depth of this PiTermOneSub within the Term being
+     * instantiated
+     * @return the instantiated PiTermOneSub, which is this one if it contains
+     * none of the given binders
      */
-    public void renameNonFree(Integer from, Integer to) {
-        this.subterm.renameNonFree(from, to);
+    PiTerm instantiate(int depth, ArrayList<LambdaTerm> values, int level) {
+        if(this.looseBinders() <= depth) { return this; }
+        if(level == Term.MAX_RECURSION_DEPTH) {
+            return (PiTerm) Term.instantiateWithin(this, depth, values);
+        }
+        PiTermOneSub copy = (PiTermOneSub) this.copy();
+        copy.instantiateOwnName(depth, values);
+        copy.subterm = this.subterm.instantiate(depth + this.bindersOver(0),
+                values, level + 1);
+        return copy;
     }
 
     /**
-     * Carelessly rename this Replicate.
-     * @param from all names of this value are renamed
-     * @param to all names being renamed are renamed to this value
+     * Add the free names of this PiTermOneSub to the given set.
+     * @param names the set to add to
+     * @param depth the depth of this PiTermOneSub within the Term being
+     * searched
      */
-    public void blindRename(Integer from, Integer to) {
-        this.subterm.blindRename(from, to);
+    void addFreeNames(IntSet names, int depth) {
+        this.addOwnName(names);
+        Term.addChildFreeNames(this.subterm, names, depth);
     }
+
 }
@@ -1,9 +1,9 @@
 package syntax;
 
+import utils.IntSet;
 import utils.Utils;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 
 /**
  * The Receive class represents a process waiting for a message. Once it
@@ -25,14 +25,20 @@ public final class Receive extends PiTermComm {
             PiTerm subterm) {
 
         super(chnl, subterm);
-        if(new HashSet<Integer>(boundNames).size() < boundNames.size()) {
-            throw new IllegalArgumentException("Duplicate binders in Receive");
+        IntSet distinct = new IntSet();
+        for(Integer boundName : boundNames) {
+            if(!distinct.add(boundName)) {
+                throw new IllegalArgumentException("Duplicate binders in " +
+                        "Receive");
+            }
         }
         this.boundNames = boundNames;
     }
 
     /**
-     * Access the i^th bound name.
+     * Access the i^th bound name. This is only used for printing - occurrences
+     * of the i^th bound name in the subterm refer to it by index, with the
+     * first bound name innermost.
      * @param i the index of the bound name to be retrieved
      * @return the i^th bound name
      */
@@ -45,128 +51,45 @@ public final class Receive extends PiTermComm {
     public int arity() { return this.boundNames.size(); }
 
     /**
-     * Determine if this Receive binds the given name.
-     * @param name the name to test
-     * @return true if name is bound by this Receive, false otherwise
-     */
-    public boolean binds(Integer name) {
-        return this.boundNames.contains(name);
-    }
-
-    /**
-     * Set the value of a particular name in this Receive.
-     * @param index the binder to reset
-     * @param name the new value
-     */
-    public void setName(int index, Integer name) {
-        this.boundNames.remove(index);
-        this.boundNames.add(index, name);
-    }
-
-    /**
-     * Enumerate the binders in this Receive.
-     * @return a HashSet of the binders in this Receive
+     * A Receive binds each of its names over its subterm.
+     * @param index 0
+     * @return the arity of this Receive
      */
     @Override
-    public HashSet<Integer> binders() {
-        HashSet<Integer> subBinders = this.subterm.binders();
-        for(Integer name : this.boundNames) { subBinders.add(name); }
-        return subBinders;
-    }
-
-    /**
-     * Enumerate the free variable names in this Receive.
-     * @return a HashSet of the free variable names in this Receive
-     */
-    public HashSet<Integer> freeVars() {
-        HashSet<Integer> freeVars = this.subterm.freeVars();
-        for(Integer name : this.boundNames) {
-            if(freeVars.contains(name)) { freeVars.remove(name); }
-        }
-        freeVars.add(this.chnl);
-        return freeVars;
-    }
-
-    /**
-     * Rename the free occurrences of 'from' to 'to' in this Receive.
-     * @param from all free occurrences of this name are changed
-     * @param to names being changed are replaced with this value
-     */
-    public void renameFree(Integer from, Integer to) {
-        if(this.chnl.equals(from)) { this.chnl = to; }
-        if(!this.binds(from)) { this.subterm.renameFree(from, to); }
-    }
-
-    /**
-     * Rename the binding or bound occurrences of 'from' to 'to' in this
-     * Receive.
-     * @param from all binding or bound occurrences of this name are changed
-     * @param to names being changed are replaced with this value
-     */
-    public void renameNonFree(Integer from, Integer to) {
-        boolean found = false;
-        int i = 0;
-        while(i < this.arity() && !found) {
-            if(this.name(i).equals(from)) {
-                this.subterm.blindRename(from, to);
-                this.setName(i, to);
-                found = true;
-            }
-            i++;
-        }
-        if(!found) { this.subterm.renameNonFree(from, to); }
-    }
+    public int bindersOver(int index) { return this.arity(); }
 
     /**
-     * Obtain a string representation of this Receive.
-     * @return a string representing this Receive
+     * Access a name bound by this Receive.
+     * @param index the index of the binder, which is the index of the name
+     * @return the bound name
      */
     @Override
-    public String toString() {
-        return this.chnl + " " +
-                Utils.stringifyList("(", ")", ",", this.boundNames) +
-                " . " + this.subterm;
-    }
+    Integer binder(int index) { return this.name(index); }
 
     /**
-     * Obtain a string representation of this Receive, using a different name
-     * type.
-     * @return a string representing the Receive, printing names of a different
-     * type, the values of which are mapped to by the contained names.
+     * Add the parts printed for this Receive to parts, bringing its names into
+     * scope for its subterm.
+     * @param names the NameScope in which this Receive is printed
+     * @param parts the list to add to
      */
-    public String toStringWithNameMap(HashMap<Integer, String> nameMap) {
-        ArrayList<String> nameStrs = new ArrayList<String>();
-        for(Integer name : this.boundNames) {
-            nameStrs.add(nameMap.get(name).toString());
+    void addParts(NameScope names, ArrayList<Object> parts) {
+        String chnlStr = names.name(this.chnl);
+        String[] nameStrs = new String[this.arity()];
+        for(int i = this.arity() - 1; i >= 0; i--) {
+            nameStrs[i] = names.bind(this.name(i), this.subterm);
         }
-        return nameMap.get(this.chnl) + " " +
-                Utils.stringifyList("( ", " )", ", ", nameStrs) + " . " +
-                this.subterm.toStringWithNameMap(nameMap);
+        parts.add(chnlStr + " " + Utils.stringifyList("( ", " )", ", ",
+                new ArrayList<String>(Arrays.asList(nameStrs))) + " . ");
+        parts.add(this.subterm);
+        parts.add(this.arity());
     }
 
     /**
-     * Copy this Receive.
-     * @return a copy of this Receive.
+     * Copy this Receive, sharing its subterm.
+     * @return a copy of this Receive
      */
     public Receive copy() {
-        return new Receive(this.chnl,
-                new ArrayList<Integer>(this.boundNames),
-                this.subterm.copy());
-    }
-
-    /**
-     * Carelessly rename within this Receive.
-     * @param from all names with this value are renamed
-     * @param to all names being renamed are renamed to this name
-     */
-    public void blindRename(Integer from, Integer to) {
-        if(this.chnl.equals(from)) { this.chnl = to; }
-        for(int i = 0; i < this.arity(); i++) {
-            if(this.name(i).equals(from)) {
-                this.boundNames.remove(i);
-                this.boundNames.add(i, to);
-            }
-        }
-        this.subterm.blindRename(from, to);
+        return new Receive(this.chnl, new ArrayList<Integer>(this.boundNames),
+                this.subterm);
     }
 }
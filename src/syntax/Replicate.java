@@ -1,6 +1,6 @@
 package syntax;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 
 /**
  * Replicate elements repeatedly copy a process.
@@ -17,25 +17,18 @@ public final class Replicate extends PiTermOneSub {
     }
 
     /**
-     * Obtain a string representation of this Replicate.
-     * @return a string representing this Replicate
+     * Add the parts printed for this Replicate to parts.
+     * @param names the NameScope in which this Replicate is printed
+     * @param parts the list to add to
      */
-    @Override
-    public String toString() { return "! " + this.subterm.toString(); }
-
-    /**
-     * Obtain a string representation of this Replicate, using a different name
-     * type.
-     * @return a string representing the Replicate, printing names of a
-     * different type, the values of which are mapped to by the contained names.
-     */
-    public String toStringWithNameMap(HashMap<Integer, String> nameMap) {
-        return "! " + this.subterm.toStringWithNameMap(nameMap);
+    void addParts(NameScope names, ArrayList<Object> parts) {
+        parts.add("! ");
+        parts.add(this.subterm);
     }
 
     /**
-     * Copy this Replicate.
+     * Copy this Replicate, sharing its subterm.
      * @return a copy of this Replicate
      */
-    public Replicate copy() { return new Replicate(this.subterm.copy()); }
+    public Replicate copy() { return new Replicate(this.subterm); }
 }
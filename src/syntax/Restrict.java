@@ -1,7 +1,6 @@
 package syntax;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.ArrayList;
 
 /**
  * Restrict objects behave somewhat like lambda abstractions - they bind
@@ -23,99 +22,46 @@ public final class Restrict extends PiTermOneSub {
     }
 
     /**
-     * Access the name bound in this restriction.
+     * Access the name bound in this restriction. This is only used for
+     * printing and for choosing a fresh name when the scope is extruded -
+     * occurrences of the bound name in the subterm refer to it by index.
      * @return the name bound in this restriction
      */
     public Integer boundName() { return this.boundName; }
 
     /**
-     * Enumerate the binders in this Restrict.
-     * @return a HashSet of the binders in this Restrict
+     * A Restrict binds one name over its subterm.
+     * @param index 0
+     * @return 1
      */
     @Override
-    public HashSet<Integer> binders() {
-        HashSet<Integer> subBinders = this.subterm.binders();
-        subBinders.add(this.boundName());
-        return subBinders;
-    }
-
-    /**
-     * Enumerate the free variables in this Restrict.
-     * @return a HashSet of the free variables in this Restrict
-     */
-    @Override
-    public HashSet<Integer> freeVars() {
-        HashSet<Integer> freeVars = this.subterm.freeVars();
-        freeVars.remove(this.boundName());
-        return freeVars;
-    }
+    public int bindersOver(int index) { return 1; }
 
     /**
-     * Rename all free occurrences of 'from' to 'to' in this Restrict.
-     * @param from all free occurrences of this name are changed
-     * @param to names being changed are replaced with this value
-     */
-    @Override
-    public void renameFree(Integer from, Integer to) {
-        if(!this.boundName.equals(from)) { this.subterm.renameFree(from, to); }
-    }
-
-    /**
-     * Rename all binding and bound occurrences of 'from' to 'to' in this
-     * Restrict.
-     * @param from all binding and bound occurrences of this name are changed
-     * @param to names being changed are replaced with this value
-     */
-    @Override
-    public void renameNonFree(Integer from, Integer to) {
-        if(this.boundName.equals(from)) {
-            this.boundName = to;
-            this.subterm.blindRename(from, to);
-        }
-        else { this.subterm.renameNonFree(from, to); }
-    }
-
-    /**
-     * Carelessly rename this Restrict.
-     * @param from all names of this value are renamed
-     * @param to all names being renamed are renamed to this value
-     */
-    @Override
-    public void blindRename(Integer from, Integer to) {
-        if(this.boundName.equals(from)) {
-            this.boundName = to;
-        }
-        this.subterm.blindRename(from, to);
-    }
-
-    /**
-     * Obtain a pretty-printout of this Restrict.
-     * @param indentLevel the number of tabs that should appear before the text
-     * @return a string representing this Restrict
+     * Access the name bound in this restriction.
+     * @param index 0
+     * @return the name bound in this restriction
      */
     @Override
-    public String toString() {
-        return "new " + this.boundName.toString() + " in " +
-                this.subterm.toString();
-    }
+    Integer binder(int index) { return this.boundName; }
 
     /**
-     * Obtain a string representation of this Restrict, using a different name
-     * type.
-     * @return a string representing the Restrict, printing names of a
-     * different type, the values of which are mapped to by the contained names.
+     * Add the parts printed for this Restrict to parts, bringing its name into
+     * scope for its subterm.
+     * @param names the NameScope in which this Restrict is printed
+     * @param parts the list to add to
      */
-    public String toStringWithNameMap(HashMap<Integer, String> nameMap) {
-        return "new " + nameMap.get(this.boundName) + " in " +
-                this.subterm.toStringWithNameMap(nameMap);
+    void addParts(NameScope names, ArrayList<Object> parts) {
+        parts.add("new " + names.bind(this.boundName, this.subterm) + " in ");
+        parts.add(this.subterm);
+        parts.add(1);
     }
 
     /**
-     * Copy this Restrict. No need to copy the name objects, just copy the
-     * reference
+     * Copy this Restrict, sharing its subterm.
      * @return a copy of this Restrict
      */
     public Restrict copy() {
-        return new Restrict(this.boundName, this.subterm.copy());
+        return new Restrict(this.boundName, this.subterm);
     }
 }
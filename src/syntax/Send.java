@@ -1,9 +1,7 @@
 package syntax;
 
-import utils.Utils;
+import utils.IntSet;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 
 /**
  * A Send object sends a message (a name) on a particular channel when there is
@@ -38,104 +36,97 @@ public final class Send extends PiTermComm {
     public int arity() { return this.exps.size(); }
 
     /**
-     * Setter for expressions in this Send.
-     * @param index the index of the expression to set
-     * @param exp the new value for this.exp(i)
+     * The children of a Send are its expressions, followed by its subterm.
+     * @return the arity of this Send, plus one
      */
-    public void setExp(int index, LambdaTerm exp) {
-        this.exps.remove(index);
-        this.exps.add(index, exp);
-    }
+    @Override
+    public int childCount() { return this.exps.size() + 1; }
 
     /**
-     * Enumerate the binders in this Send.
-     * @return a HashSet of the binders in this Send
+     * Access an expression (indices below the arity) or the subterm (the
+     * index equal to the arity).
+     * @param index the index of the child
+     * @return the child at the given index
      */
-    public HashSet<Integer> binders() {
-        return this.subterm.binders();
+    @Override
+    public Term child(int index) {
+        return index < this.exps.size() ? this.exps.get(index) : this.subterm;
     }
 
     /**
-     * Enumerate the free variable names in this Send.
-     * @return a HashSet of the free variable names in this Send
+     * Replace an expression (indices below the arity) or the subterm (the
+     * index equal to the arity).
+     * @param index the index of the child
+     * @param child the new child, a LambdaTerm for an expression or a PiTerm
+     * for the subterm
      */
-    public HashSet<Integer> freeVars() {
-        HashSet<Integer> freeVars = this.subterm.freeVars();
-        freeVars.add(this.chnl);
-        for(LambdaTerm exp : this.exps) {
-            for(Integer freeVar : exp.freeVars()) { freeVars.add(freeVar); }
+    @Override
+    public void setChild(int index, Term child) {
+        if(index < this.exps.size()) {
+            this.exps.set(index, (LambdaTerm) child);
         }
-        return freeVars;
+        else { this.subterm = (PiTerm) child; }
     }
 
     /**
-     * Rename all free occurrences of 'from' to 'to' in this Send.
-     * @param from free occurrences of this name are renamed
-     * @param to renamed names are renamed to this value
+     * Instantiate the given binders within this Send, without changing it.
+     * @param depth the number of binders between this Send and the body
+     * of the innermost instantiated binder
+     * @param values the values to instantiate the binders with
+     * @param level the depth of this Send within the Term being
+     * instantiated
+     * @return the instantiated Send, which is this one if it contains none of
+     * the given binders
      */
-    public void renameFree(Integer from, Integer to) {
-        if(this.chnl.equals(from)) { this.chnl = to; }
-        for(LambdaTerm exp : this.exps) { exp.renameFree(from, to); }
-        this.subterm.renameFree(from, to);
-    }
-
-    /**
-     * Rename all binding and bound occurrences of 'from' to 'to' in this Send.
-     * @param from binding and bound occurrences of this name are renamed
-     * @param to renamed names are renamed to this value
-     */
-    public void renameNonFree(Integer from, Integer to) {
-        for(LambdaTerm exp : this.exps) { exp.renameNonFree(from, to); }
-        this.subterm.renameNonFree(from, to);
-    }
-
-    /**
-     * Carelessly rename within this Send.
-     * @param from all names with this value are renamed
-     * @param to all names being renamed are renamed to this name
-     */
-    public void blindRename(Integer from, Integer to) {
-        if(this.chnl.equals(from)) { this.chnl = to; }
-        for(int i = 0; i < this.arity(); i++) {
-            this.exp(i).blindRename(from, to);
+    PiTerm instantiate(int depth, ArrayList<LambdaTerm> values, int level) {
+        if(this.looseBinders() <= depth) { return this; }
+        if(level == Term.MAX_RECURSION_DEPTH) {
+            return (PiTerm) Term.instantiateWithin(this, depth, values);
         }
-        this.subterm.blindRename(from, to);
+        Send copy = this.copy();
+        copy.instantiateOwnName(depth, values);
+        for(int i = 0; i < this.exps.size(); i++) {
+            copy.exps.set(i, this.exps.get(i).instantiate(depth, values,
+                    level + 1));
+        }
+        copy.subterm = this.subterm.instantiate(depth, values, level + 1);
+        return copy;
     }
 
     /**
-     * Obtain a string representation of this Send.
-     * @return a string representing this Send
+     * Add the parts printed for this Send to parts.
+     * @param names the NameScope in which this Send is printed
+     * @param parts the list to add to
      */
-    @Override
-    public String toString() {
-        return this.chnl + " " + Utils.stringifyList("<", ">", ",", this.exps) +
-                " . " + this.subterm;
+    void addParts(NameScope names, ArrayList<Object> parts) {
+        parts.add(names.name(this.chnl) + " < ");
+        for(int i = 0; i < this.exps.size(); i++) {
+            if(i > 0) { parts.add(", "); }
+            parts.add(this.exps.get(i));
+        }
+        parts.add(" > . ");
+        parts.add(this.subterm);
     }
 
     /**
-     * Obtain a string representation of this Send, using a different name type.
-     * @return a string representing the Send, printing names of a different
-     * type, the values of which are mapped to by the contained names.
+     * Copy this Send, sharing its expressions and subterm.
+     * @return a copy of this Send
      */
-    public String toStringWithNameMap(HashMap<Integer, String> nameMap) {
-        ArrayList<String> nameStrs = new ArrayList<String>();
-        for(LambdaTerm name : this.exps) {
-            nameStrs.add(name.toStringWithNameMap(nameMap));
-        }
-        return nameMap.get(this.chnl) + " " +
-                Utils.stringifyList("< ", " >", ", ", nameStrs) + " . " +
-                this.subterm.toStringWithNameMap(nameMap);
+    public Send copy() {
+        return new Send(this.chnl, new ArrayList<LambdaTerm>(this.exps),
+                this.subterm);
     }
 
     /**
-     * Copy this Send.
-     * @return a copy of this Send.
+     * Add the free names of this Send to the given set.
+     * @param names the set to add to
+     * @param depth the depth of this Send within the Term being searched
      */
-    public Send copy() {
-        ArrayList<LambdaTerm> copyExps = new ArrayList<LambdaTerm>();
+    void addFreeNames(IntSet names, int depth) {
+        this.addOwnName(names);
         for(LambdaTerm exp : this.exps) {
-            copyExps.add(exp.copy());
+            Term.addChildFreeNames(exp, names, depth);
         }
-        return new Send(this.chnl, copyExps, this.subterm.copy());
+        Term.addChildFreeNames(this.subterm, names, depth);
     }
 }
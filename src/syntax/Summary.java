@@ -0,0 +1,234 @@
+package syntax;
+
+import java.util.Arrays;
+
+/**
+ * Summarizes the top-level behaviour of a PiTerm: the channels on which it
+ * has Sends and Receives that are not to the right of a '.' nor beneath a Tau
+ * action, with their arities, and whether it can perform an internal action.
+ * Channels bound by restrictions within the PiTerm are left out, as nothing
+ * outside of it can use them, and channels bound outside of it are given
+ * relative to the PiTerm itself.
+ *
+ * The channels and arities are packed into longs and kept in sorted arrays,
+ * so that two summaries are compared by merging them, without allocating.
+ * As PiTerms are immutable, each works out its Summary once and keeps it (see
+ * PiTerm.summary()).
+ */
+public final class Summary {
+
+    private static final long[] NONE = new long[0];
+
+    // The summaries of terms with no top-level Sends or Receives
+    static final Summary EMPTY = new Summary(NONE, NONE, false);
+    static final Summary INTERNAL = new Summary(NONE, NONE, true);
+
+    // The packed channels and arities of the top-level Sends and Receives,
+    // sorted and without repeats
+    private final long[] sends;
+    private final long[] receives;
+
+    private final boolean internal;
+
+    private Summary(long[] sends, long[] receives, boolean internal) {
+        this.sends = sends;
+        this.receives = receives;
+        this.internal = internal;
+    }
+
+    /**
+     * Work out the Summary of a PiTerm from the Summaries of its top-level
+     * subterms, which must already be known.
+     * @param term the PiTerm to summarize
+     * @return the Summary of term
+     */
+    static Summary of(PiTerm term) {
+        if(term instanceof Send) {
+            Send send = (Send) term;
+            return new Summary(new long[] {
+                    Summary.pack(send.chnl(), send.arity()) }, NONE, false);
+        }
+        else if(term instanceof Receive) {
+            Receive rece = (Receive) term;
+            return new Summary(NONE, new long[] {
+                    Summary.pack(rece.chnl(), rece.arity()) }, false);
+        }
+        else if(term instanceof Tau) { return INTERNAL; }
+        else if(term instanceof Replicate) {
+            return ((Replicate) term).subterm().summary();
+        }
+        else if(term instanceof Restrict) {
+            return ((Restrict) term).subterm().summary().unbind();
+        }
+        else if(term instanceof PiTermManySub) {
+            int sendCount = 0;
+            int receiveCount = 0;
+            boolean internal = false;
+            for(PiTerm subterm : (PiTermManySub) term) {
+                Summary summary = subterm.summary();
+                sendCount += summary.sends.length;
+                receiveCount += summary.receives.length;
+                internal |= summary.internal;
+            }
+            long[] sends = new long[sendCount];
+            long[] receives = new long[receiveCount];
+            sendCount = 0;
+            receiveCount = 0;
+            for(PiTerm subterm : (PiTermManySub) term) {
+                Summary summary = subterm.summary();
+                System.arraycopy(summary.sends, 0, sends, sendCount,
+                        summary.sends.length);
+                System.arraycopy(summary.receives, 0, receives, receiveCount,
+                        summary.receives.length);
+                sendCount += summary.sends.length;
+                receiveCount += summary.receives.length;
+            }
+            sends = Summary.distinct(sends);
+            receives = Summary.distinct(receives);
+
+            // The parts of a parallel composition may talk to one another,
+            // but the branches of a sum may not
+            internal |= term instanceof Parallel &&
+                    Summary.intersect(sends, receives);
+            return sends.length == 0 && receives.length == 0 ?
+                    (internal ? INTERNAL : EMPTY) :
+                    new Summary(sends, receives, internal);
+        }
+        else {
+            throw new IllegalArgumentException("Unrecognised PiTerm type " +
+                    "in Summary.of()");
+        }
+    }
+
+    /**
+     * Determine if a term with this Summary will exchange a message with a
+     * term in the same scope with the given Summary.
+     * @param other the Summary of the other term
+     * @return true if some top-level Send of either term has the same
+     * channel and arity as some top-level Receive of the other
+     */
+    public boolean talksTo(Summary other) {
+        return Summary.intersect(this.sends, other.receives) ||
+                Summary.intersect(this.receives, other.sends);
+    }
+
+    /**
+     * Determine if the term with this Summary can perform an internal action.
+     * @return true if the term has an internal action, false otherwise
+     */
+    public boolean hasInternalAction() { return this.internal; }
+
+    /**
+     * Determine the number of distinct channels and arities on which the term
+     * has top-level Sends.
+     * @return the number of sending ports
+     */
+    public int sendCount() { return this.sends.length; }
+
+    /**
+     * Determine the number of distinct channels and arities on which the term
+     * has top-level Receives.
+     * @return the number of receiving ports
+     */
+    public int receiveCount() { return this.receives.length; }
+
+    /**
+     * Access the channel of a sending port.
+     * @param index the position of the port, below sendCount()
+     * @return the channel name
+     */
+    public Integer sendChannel(int index) {
+        return Summary.channel(this.sends[index]);
+    }
+
+    /**
+     * Access the arity of a sending port.
+     * @param index the position of the port, below sendCount()
+     * @return the arity
+     */
+    public int sendArity(int index) {
+        return Summary.arity(this.sends[index]);
+    }
+
+    /**
+     * Access the channel of a receiving port.
+     * @param index the position of the port, below receiveCount()
+     * @return the channel name
+     */
+    public Integer receiveChannel(int index) {
+        return Summary.channel(this.receives[index]);
+    }
+
+    /**
+     * Access the arity of a receiving port.
+     * @param index the position of the port, below receiveCount()
+     * @return the arity
+     */
+    public int receiveArity(int index) {
+        return Summary.arity(this.receives[index]);
+    }
+
+    /*
+     * Obtain the Summary of a Restrict from that of its subterm, leaving out
+     * the ports on the restricted name and shifting the other bound ones.
+     */
+    private Summary unbind() {
+        long[] sends = Summary.unbind(this.sends);
+        long[] receives = Summary.unbind(this.receives);
+        if(sends == this.sends && receives == this.receives) { return this; }
+        return new Summary(sends, receives, this.internal);
+    }
+
+    private static long[] unbind(long[] ports) {
+        // Bound names sort first, the restricted name last among them
+        if(ports.length == 0 || !Term.isBound(Summary.channel(ports[0]))) {
+            return ports;
+        }
+        long[] unbound = new long[ports.length];
+        int size = 0;
+        for(int i = 0; i < ports.length; i++) {
+            Integer chnl = Summary.channel(ports[i]);
+            if(!Term.isBound(chnl)) { unbound[size++] = ports[i]; }
+            else if(Term.indexOf(chnl) > 0) {
+                unbound[size++] = Summary.pack(
+                        Term.bound(Term.indexOf(chnl) - 1),
+                        Summary.arity(ports[i]));
+            }
+        }
+        return size == ports.length ? unbound : Arrays.copyOf(unbound, size);
+    }
+
+    /*
+     * Sort an array of ports in place, and remove its repeats.
+     */
+    private static long[] distinct(long[] ports) {
+        if(ports.length == 0) { return NONE; }
+        Arrays.sort(ports);
+        int size = 1;
+        for(int i = 1; i < ports.length; i++) {
+            if(ports[i] != ports[size - 1]) { ports[size++] = ports[i]; }
+        }
+        return size == ports.length ? ports : Arrays.copyOf(ports, size);
+    }
+
+    /*
+     * Determine if two sorted arrays of ports have one in common.
+     */
+    private static boolean intersect(long[] ports1, long[] ports2) {
+        int i = 0, j = 0;
+        while(i < ports1.length && j < ports2.length) {
+            if(ports1[i] < ports2[j]) { i++; }
+            else if(ports2[j] < ports1[i]) { j++; }
+            else { return true; }
+        }
+        return false;
+    }
+
+    private static long pack(Integer chnl, int arity) {
+        return ((long) chnl << 32) | (arity & 0xffffffffL);
+    }
+
+    private static Integer channel(long port) { return (int) (port >> 32); }
+
+    private static int arity(long port) { return (int) port; }
+}
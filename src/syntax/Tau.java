@@ -1,6 +1,6 @@
 package syntax;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 
 public final class Tau extends PiTermOneSub {
 
@@ -13,23 +13,18 @@ public final class Tau extends PiTermOneSub {
     }
 
     /**
-     * Obtain a string representation of this Tau action.
-     * @return a string representing this Tau action
+     * Add the parts printed for this Tau action to parts.
+     * @param names the NameScope in which this Tau action is printed
+     * @param parts the list to add to
      */
-    @Override
-    public String toString() { return "~ . " + this.subterm.toString(); }
-
-    /**
-     * Obtain a string representation of this Tau action, using String names.
-     * @return a string representing the Tau action
-     */
-    public String toStringWithNameMap(HashMap<Integer, String> nameMap) {
-        return "~ . " + this.subterm.toStringWithNameMap(nameMap);
+    void addParts(NameScope names, ArrayList<Object> parts) {
+        parts.add("~ . ");
+        parts.add(this.subterm);
     }
 
     /**
-     * Copy this Tau action.
+     * Copy this Tau action, sharing its subterm.
      * @return a copy of this Tau action
      */
-    public Tau copy() { return new Tau(this.subterm.copy()); }
+    public Tau copy() { return new Tau(this.subterm); }
 }
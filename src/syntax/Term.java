@@ -1,69 +1,452 @@
 package syntax;
 
-import java.util.HashSet;
-import java.util.HashMap;
+import utils.IntSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.function.Function;
 
 /**
  * An overarchin Term class - represents any kind of term, lambda or pi.
+ *
+ * Terms are locally nameless. Free names are stored as the non-negative
+ * integers given to them by the lexer or leased from a NameSupply. A name
+ * that refers to a binder within the term is stored as the negative integer
+ * Term.bound(index), where index is the number of binders between the name and
+ * the binder it refers to. Binders keep the name they were written with, which
+ * is used only when printing. A Receive of arity n counts as n binders, the
+ * last of which is its first name, so that name(i) is referred to by index i
+ * immediately beneath the Receive.
+ *
+ * Every operation that visits a whole Term uses an explicit stack, at least
+ * below MAX_RECURSION_DEPTH, so that the depth of a Term is limited by the
+ * heap rather than by the thread stack. Each kind of Term describes its own
+ * node - its children, the binders it places over them, the name it stores
+ * directly and how it is printed - and the traversals here use that to visit
+ * the rest. The operations used during reduction recurse near the root, where
+ * that is faster, and hand over to these traversals once they are too deep.
+ *
+ * Terms are immutable once built, so they share structure freely. Copying a
+ * Term copies only its root, and instantiating binders within a Term builds
+ * new nodes only along the paths to the names that change, sharing every
+ * subterm that refers to none of the instantiated binders. The setters exist
+ * only for building a Term, and must not be used on a Term that may already
+ * be shared.
  */
 public abstract class Term {
-    
+
+    // Traversals that recurse, for speed on shallow terms, switch to an
+    // explicit stack at this depth
+    static final int MAX_RECURSION_DEPTH = 256;
+
+    // The number of binders outside of this Term that it refers to, or -1 if
+    // not yet known. Threads that race to work it out all store the same
+    // value, so it needs no synchronization.
+    private int looseBinders = -1;
+
+    /**
+     * Determine if a name stored in a term refers to a binder within the term.
+     * @param name the stored name
+     * @return true if the name is bound, false if it is free
+     */
+    public static boolean isBound(Integer name) { return name < 0; }
+
+    /**
+     * Obtain the name to store for a reference to the binder index binders
+     * above it.
+     * @param index the number of binders between the name and its binder
+     * @return the stored form of the bound name
+     */
+    public static Integer bound(int index) { return -1 - index; }
+
+    /**
+     * Obtain the index of a bound name.
+     * @param name a bound name
+     * @return the number of binders between the name and its binder
+     */
+    public static int indexOf(Integer name) { return -1 - name; }
+
+    /**
+     * Determine the number of immediate subterms of this Term. The
+     * expressions of a Send come before its continuation.
+     * @return the number of children of this Term
+     */
+    public abstract int childCount();
+
+    /**
+     * Access an immediate subterm of this Term.
+     * @param index the index of the child, less than childCount()
+     * @return the child at the given index
+     */
+    public abstract Term child(int index);
+
+    /**
+     * Replace an immediate subterm of this Term.
+     * @param index the index of the child, less than childCount()
+     * @param child the new child, which must be a LambdaTerm where this Term
+     * holds a LambdaTerm and a PiTerm where it holds a PiTerm
+     */
+    public abstract void setChild(int index, Term child);
+
+    /**
+     * Determine the number of binders that this Term places over one of its
+     * children.
+     * @param index the index of the child
+     * @return the number of binders between this Term and the child
+     */
+    public int bindersOver(int index) { return 0; }
+
+    /**
+     * Access the name that one of the binders of this Term was written with.
+     * @param index the index of the binder, 0 being the innermost
+     * @return the name of the binder
+     */
+    Integer binder(int index) {
+        throw new IllegalArgumentException("Term has no binders");
+    }
+
+    /**
+     * Access the name stored directly in this Term - the name of a Variable or
+     * the channel of a Send or Receive - if it has one.
+     * @return the name stored in this Term, or null if it has none
+     */
+    Integer ownName() { return null; }
+
+    /**
+     * Replace the name stored directly in this Term.
+     * @param name the new name
+     */
+    void setOwnName(Integer name) {
+        throw new IllegalArgumentException("Term stores no name");
+    }
+
+    /**
+     * Add the parts printed for this Term to the given list, in order. A part
+     * is either a String to print, a Term to print with the NameScope as it
+     * then is, or an Integer number of binders to remove from the NameScope.
+     * Binders that this Term places over its children should be brought into
+     * scope by this method.
+     * @param names the NameScope in which this Term is printed
+     * @param parts the list to add to
+     */
+    abstract void addParts(NameScope names, ArrayList<Object> parts);
+
     /**
-     * Enumerate the variable names that have their binders within the given
-     * LambdaTerm.
-     * @return a HashSet of all the variable names that have their binders
-     * within the given LambdaTerm
+     * Replace the names in this Term that refer to the binders named in scope
+     * with references to those binders. Used once, on terms built with named
+     * binders by the parser.
+     * @param scope the names of the binders enclosing this Term, innermost
+     * last
      */
-    public abstract HashSet<Integer> binders();
+    public void bindNames(ArrayList<Integer> scope) {
+        this.bindOwnName(scope);
+        TermStack stack = new TermStack();
+        stack.push(this, 0);
+
+        while(!stack.isEmpty()) {
+            Term term = stack.term();
+            int next = stack.value();
+
+            // Take the binders over the last child visited out of scope
+            if(next > 0) {
+                for(int i = 0; i < term.bindersOver(next - 1); i++) {
+                    scope.remove(scope.size() - 1);
+                }
+            }
+            if(next == term.childCount()) {
+                stack.pop();
+                continue;
+            }
+
+            stack.setValue(next + 1);
+            for(int i = term.bindersOver(next) - 1; i >= 0; i--) {
+                scope.add(term.binder(i));
+            }
+            Term child = term.child(next);
+            child.bindOwnName(scope);
+            stack.push(child, 0);
+        }
+    }
 
     /**
-     * Enumerate the free variables in this LambdaTerm.
-     * @return a HashSet of all the free variable names in this LambdaTerm
+     * Add the free names of this Term to the given set.
+     * @param names the set to add to
      */
-    public abstract HashSet<Integer> freeVars();
+    public void addFreeNames(IntSet names) {
+        this.addFreeNames(names, 0);
+    }
 
     /**
-     * Rename all free occurences of the name 'from' to the name 'to'.
-     * @param from names of this value are renamed
-     * @param to renamed names are renamed to this value
+     * Add the free names of this Term to the given set, recursing until
+     * MAX_RECURSION_DEPTH.
+     * @param names the set to add to
+     * @param depth the depth of this Term within the Term being searched
      */
-    public abstract void renameFree(Integer from, Integer to);
+    abstract void addFreeNames(IntSet names, int depth);
 
     /**
-     * Rename all occurences of the name 'from' to the name 'to', in and after
-     * the first abstraction that binds this name.
-     * @param from names of this value are renamed
-     * @param to renamed names are renamed to this value
+     * Add the free names of a child of a Term being searched at the given
+     * depth - recursively if the depth is below MAX_RECURSION_DEPTH, and
+     * otherwise with an explicit stack.
+     * @param child the child to search
+     * @param names the set to add to
+     * @param depth the depth of the child's parent within the Term being
+     * searched
      */
-    public abstract void renameNonFree(Integer from, Integer to);
+    static void addChildFreeNames(Term child, IntSet names,
+            int depth) {
+
+        if(depth < Term.MAX_RECURSION_DEPTH) {
+            child.addFreeNames(names, depth + 1);
+            return;
+        }
+        ArrayDeque<Term> stack = new ArrayDeque<>();
+        stack.push(child);
+        while(!stack.isEmpty()) {
+            Term term = stack.pop();
+            term.addOwnName(names);
+            for(int i = 0; i < term.childCount(); i++) {
+                stack.push(term.child(i));
+            }
+        }
+    }
 
     /**
-     * Rename every single occurence of the first given name with the second
-     * given name.
-     * @param from all names of this value must be renamed
-     * @param to names being renamed are renamed to this value
+     * Add the name stored directly in this Term to the given set, if it has
+     * one and it is free.
+     * @param names the set to add to
      */
-    public abstract void blindRename(Integer from, Integer to);
+    void addOwnName(IntSet names) {
+        Integer name = this.ownName();
+        if(name != null && !Term.isBound(name)) { names.add(name); }
+    }
 
     /**
-     * Obtain a string representation of this Term.
+     * Obtain a string representation of this Term, printing free names as
+     * integers.
      * @return a string representing the Term
      */
-    public abstract String toString();
+    @Override
+    public String toString() {
+        return this.toStringWithNameMap((Integer name) -> name.toString());
+    }
 
     /**
      * Obtain a string representation of this Term, but instead of using the
-     * toString method of the contained names, use the toString method of
-     * objects mapped to by the contained names in the given map.
+     * toString method of the contained names, use the Strings that the given
+     * function maps the contained free names to. Bound names are printed as
+     * the names of their binders, with primes added where they would otherwise
+     * be confused with a free name.
+     * @param nameMap function from names to the Strings to print for them
      * @return a string representing the Term, printing names of a different
      * type, the values of which are mapped to by the contained names.
      */
-    public abstract String toStringWithNameMap(
-            HashMap<Integer, String> nameMap);
+    public String toStringWithNameMap(Function<Integer, String> nameMap) {
+        StringBuilder str = new StringBuilder();
+        this.appendWithNameMap(nameMap, str);
+        return str.toString();
+    }
+
+    /**
+     * Append the representation given by toStringWithNameMap() to a
+     * StringBuilder, without building a String of it first, so that many
+     * Terms can be printed through a single StringBuilder.
+     * @param nameMap function from names to the Strings to print for them
+     * @param str the StringBuilder to append to
+     */
+    public void appendWithNameMap(Function<Integer, String> nameMap,
+            StringBuilder str) {
+
+        NameScope names = new NameScope(nameMap, this);
+        ArrayDeque<Object> stack = new ArrayDeque<>();
+        ArrayList<Object> parts = new ArrayList<>();
+        stack.push(this);
+
+        while(!stack.isEmpty()) {
+            Object part = stack.pop();
+            if(part instanceof String) {
+                str.append((String) part);
+            }
+            else if(part instanceof Integer) {
+                names.unbind((Integer) part);
+            }
+            else {
+                parts.clear();
+                ((Term) part).addParts(names, parts);
+                for(int i = parts.size() - 1; i >= 0; i--) {
+                    stack.push(parts.get(i));
+                }
+            }
+        }
+    }
 
     /**
-     * Copy a Term. Contained name objects need not be deeply copied.
+     * Copy a Term. As Terms are immutable, the copy shares the children of
+     * this Term, and takes constant time. It is a distinct object, so that it
+     * can be a distinct process, and holds its children in lists of its own.
      * @return a copy of this Term.
      */
     public abstract Term copy();
+
+    /**
+     * Determine the number of binders outside of this Term that names within
+     * it refer to. Instantiating binders at least that many binders above
+     * this Term leaves it unchanged. Worked out once, with an explicit stack,
+     * and then remembered.
+     * @return the number of enclosing binders referred to, 0 if this Term is
+     * locally closed
+     */
+    int looseBinders() {
+        if(this.looseBinders >= 0) { return this.looseBinders; }
+
+        TermStack stack = new TermStack();
+        stack.push(this, 0);
+        while(!stack.isEmpty()) {
+            Term term = stack.term();
+            int next = stack.value();
+            if(next < term.childCount()) {
+                stack.setValue(next + 1);
+                Term child = term.child(next);
+                if(child.looseBinders < 0) { stack.push(child, 0); }
+                continue;
+            }
+            stack.pop();
+
+            Integer name = term.ownName();
+            int loose = name != null && Term.isBound(name) ?
+                    Term.indexOf(name) + 1 : 0;
+            for(int i = 0; i < term.childCount(); i++) {
+                loose = Math.max(loose,
+                        term.child(i).looseBinders - term.bindersOver(i));
+            }
+            term.looseBinders = loose;
+        }
+        return this.looseBinders;
+    }
+
+    /**
+     * Instantiate the binders depth binders above a Term with the given
+     * values, using an explicit stack. The result shares the subterms of term
+     * that do not change, and values are shared rather than copied.
+     * @param term the Term to instantiate, which must not be a Variable and
+     * must refer to at least depth + 1 enclosing binders
+     * @param depth the number of binders between term and the body of the
+     * innermost instantiated binder
+     * @param values the values, the first of which replaces references to the
+     * innermost instantiated binder
+     * @return the instantiated Term
+     */
+    protected static Term instantiateWithin(Term term, int depth,
+            ArrayList<LambdaTerm> values) {
+
+        Term root = term.copy();
+        root.instantiateOwnName(depth, values);
+        TermStack stack = new TermStack();
+        stack.push(root, depth);
+
+        // Each Term on the stack is a new copy, whose children are those of
+        // the Term it was copied from until they are replaced here
+        while(!stack.isEmpty()) {
+            Term copy = stack.term();
+            int copyDepth = stack.value();
+            stack.pop();
+
+            for(int i = 0; i < copy.childCount(); i++) {
+                Term child = copy.child(i);
+                int childDepth = copyDepth + copy.bindersOver(i);
+                if(child.looseBinders() <= childDepth) { continue; }
+
+                if(child instanceof Variable) {
+                    copy.setChild(i, ((Variable) child).instantiate(
+                            childDepth, values, 0));
+                    continue;
+                }
+                Term childCopy = child.copy();
+                childCopy.instantiateOwnName(childDepth, values);
+                copy.setChild(i, childCopy);
+                stack.push(childCopy, childDepth);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Instantiate the name stored directly in this Term, which must be a new
+     * copy, and whose name must not be replaced by a value unless it is a
+     * channel name.
+     * @param depth the number of binders between this Term and the body of
+     * the innermost instantiated binder
+     * @param values the values to instantiate the binders with
+     */
+    void instantiateOwnName(int depth, ArrayList<LambdaTerm> values) {
+        Integer name = this.ownName();
+        if(name == null) { return; }
+
+        int value = Term.valueIndex(name, depth, values.size());
+        if(value < 0) {
+            this.setOwnName(Term.shift(name, depth, values.size()));
+        }
+        else if(values.get(value) instanceof Variable) {
+            this.setOwnName(((Variable) values.get(value)).name());
+        }
+        else {
+            throw new IllegalArgumentException("Tried to replace a " +
+                    "channel name with an expression");
+        }
+    }
+
+    /*
+     * Bind the name stored directly in this Term, if it has one.
+     */
+    private void bindOwnName(ArrayList<Integer> scope) {
+        Integer name = this.ownName();
+        if(name != null) { this.setOwnName(Term.bindName(name, scope)); }
+    }
+
+    /**
+     * Replace a name with a reference to the innermost binder in scope with
+     * that name, if there is one.
+     * @param name the name to bind
+     * @param scope the names of the enclosing binders, innermost last
+     * @return the bound form of the name, or the name itself if it is free
+     */
+    protected static Integer bindName(Integer name, ArrayList<Integer> scope) {
+        for(int i = scope.size() - 1; i >= 0; i--) {
+            if(scope.get(i).equals(name)) {
+                return Term.bound(scope.size() - 1 - i);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Determine which of a list of values replaces a name, when the binders
+     * depth binders above the name are instantiated with those values.
+     * @param name the name to instantiate
+     * @param depth the number of binders between the name and the outermost
+     * of the instantiated binders' bodies
+     * @param count the number of values being instantiated
+     * @return the index of the value replacing the name, or -1 if the name is
+     * not replaced
+     */
+    protected static int valueIndex(Integer name, int depth, int count) {
+        if(!Term.isBound(name)) { return -1; }
+        int index = Term.indexOf(name) - depth;
+        return index >= 0 && index < count ? index : -1;
+    }
+
+    /**
+     * Adjust a name that is not replaced when the binders depth binders above
+     * it are instantiated, to account for those binders being removed.
+     * @param name the name to adjust
+     * @param depth the number of binders between the name and the outermost
+     * of the instantiated binders' bodies
+     * @param count the number of binders being removed
+     * @return the adjusted name
+     */
+    protected static Integer shift(Integer name, int depth, int count) {
+        if(Term.isBound(name) && Term.indexOf(name) >= depth + count) {
+            return Term.bound(Term.indexOf(name) - count);
+        }
+        return name;
+    }
 }
@@ -0,0 +1,257 @@
+package syntax;
+
+import utils.IntSet;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Encodes PiTerms as arrays of ints, and rebuilds them from those arrays by
+ * constructing each node directly, for storing terms in files (see
+ * parser.ProgramImage and interpreter.Checkpoint).
+ *
+ * A term is encoded in post-order, each node as a tag followed by its own
+ * names and the number of its children where that varies, so that it can be
+ * encoded and rebuilt with a stack however deep it is. Names are stored as
+ * they are in the term, bound names being negative (see Term).
+ */
+public final class TermCode {
+
+    // The tags of the kinds of node
+    private static final int PARALLEL = 0;
+    private static final int SUM = 1;
+    private static final int SEND = 2;
+    private static final int RECEIVE = 3;
+    private static final int RESTRICT = 4;
+    private static final int REPLICATE = 5;
+    private static final int TAU = 6;
+    private static final int ABSTRACTION = 7;
+    private static final int APPLICATION = 8;
+    private static final int VARIABLE = 9;
+
+    private TermCode() {}
+
+    /**
+     * Encode a term.
+     * @param root the term to encode
+     * @return an IntBuffer whose remaining ints are the code of the term
+     */
+    public static IntBuffer encode(PiTerm root) {
+        int[] code = new int[64];
+        int length = 0;
+
+        // The nodes on the path from the root, each with the next of its
+        // children to visit
+        TermStack path = new TermStack();
+        path.push(root, 0);
+        while(!path.isEmpty()) {
+            Term term = path.term();
+            int next = path.value();
+            if(next < term.childCount()) {
+                path.setValue(next + 1);
+                path.push(term.child(next), 0);
+                continue;
+            }
+
+            // Every child has been encoded, so encode the node
+            int size = 3 + (term instanceof Receive ?
+                    ((Receive) term).arity() : 0);
+            if(length + size > code.length) {
+                code = Arrays.copyOf(code,
+                        Math.max(2 * code.length, length + size));
+            }
+            length = TermCode.encodeNode(term, code, length);
+            path.pop();
+        }
+        return IntBuffer.wrap(code, 0, length);
+    }
+
+    /**
+     * Rebuild a term from its code.
+     * @param code the code of the term, and nothing else
+     * @return the term
+     * @throws RuntimeException if the code is not that of a single PiTerm
+     */
+    public static PiTerm decode(int[] code) {
+        Term[] stack = new Term[64];
+        int top = 0;
+        int at = 0;
+        while(at < code.length) {
+            Term term;
+            switch(code[at++]) {
+                case PARALLEL:
+                    term = new Parallel(TermCode.popPiTerms(stack, top,
+                            code[at]));
+                    top -= code[at++];
+                    break;
+                case SUM:
+                    term = new NDSum(TermCode.popPiTerms(stack, top,
+                            code[at]));
+                    top -= code[at++];
+                    break;
+                case SEND: {
+                    int chnl = code[at++];
+                    int arity = code[at++];
+                    PiTerm subterm = (PiTerm) stack[--top];
+                    ArrayList<LambdaTerm> exps = new ArrayList<>(arity);
+                    for(int i = top - arity; i < top; i++) {
+                        exps.add((LambdaTerm) stack[i]);
+                    }
+                    top -= arity;
+                    term = new Send(chnl, exps, subterm);
+                    break;
+                }
+                case RECEIVE: {
+                    int chnl = code[at++];
+                    int arity = code[at++];
+                    ArrayList<Integer> names = new ArrayList<>(arity);
+                    for(int i = 0; i < arity; i++) { names.add(code[at++]); }
+                    term = new Receive(chnl, names, (PiTerm) stack[--top]);
+                    break;
+                }
+                case RESTRICT:
+                    term = new Restrict(code[at++], (PiTerm) stack[--top]);
+                    break;
+                case REPLICATE:
+                    term = new Replicate((PiTerm) stack[--top]);
+                    break;
+                case TAU:
+                    term = new Tau((PiTerm) stack[--top]);
+                    break;
+                case ABSTRACTION:
+                    term = new Abstraction(code[at++],
+                            (LambdaTerm) stack[--top]);
+                    break;
+                case APPLICATION: {
+                    LambdaTerm arg = (LambdaTerm) stack[--top];
+                    term = new Application((LambdaTerm) stack[--top], arg);
+                    break;
+                }
+                case VARIABLE:
+                    term = new Variable(code[at++]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown tag");
+            }
+            if(top == stack.length) {
+                stack = Arrays.copyOf(stack, 2 * top);
+            }
+            stack[top++] = term;
+        }
+        if(top != 1) {
+            throw new IllegalArgumentException("Code is not a single term");
+        }
+        return (PiTerm) stack[0];
+    }
+
+    /**
+     * Add every name that is not bound stored in the code of a term to a set,
+     * including the names that binders keep for printing.
+     * @param code an IntBuffer whose remaining ints are the code of a term,
+     * which is left as it is
+     * @param names the set to add the names to
+     */
+    public static void addNames(IntBuffer code, IntSet names) {
+        int at = code.position();
+        while(at < code.limit()) {
+            int arity = 0;
+            switch(code.get(at++)) {
+                case PARALLEL:
+                case SUM:
+                    at++;
+                    continue;
+                case RECEIVE:
+                    arity = code.get(at + 1);
+                    TermCode.addName(code.get(at), names);
+                    for(int i = 0; i < arity; i++) {
+                        TermCode.addName(code.get(at + 2 + i), names);
+                    }
+                    at += 2 + arity;
+                    continue;
+                case SEND:
+                    TermCode.addName(code.get(at), names);
+                    at += 2;
+                    continue;
+                case RESTRICT:
+                case ABSTRACTION:
+                case VARIABLE:
+                    TermCode.addName(code.get(at++), names);
+                    continue;
+                default:
+            }
+        }
+    }
+
+    /*
+     * Encode a single node at the given position, returning the position
+     * after it.
+     */
+    private static int encodeNode(Term term, int[] code, int at) {
+        if(term instanceof Parallel) {
+            code[at++] = PARALLEL;
+            code[at++] = ((Parallel) term).arity();
+        }
+        else if(term instanceof NDSum) {
+            code[at++] = SUM;
+            code[at++] = ((NDSum) term).arity();
+        }
+        else if(term instanceof Send) {
+            code[at++] = SEND;
+            code[at++] = ((Send) term).chnl();
+            code[at++] = ((Send) term).arity();
+        }
+        else if(term instanceof Receive) {
+            Receive rece = (Receive) term;
+            code[at++] = RECEIVE;
+            code[at++] = rece.chnl();
+            code[at++] = rece.arity();
+            for(int i = 0; i < rece.arity(); i++) {
+                code[at++] = rece.name(i);
+            }
+        }
+        else if(term instanceof Restrict) {
+            code[at++] = RESTRICT;
+            code[at++] = ((Restrict) term).boundName();
+        }
+        else if(term instanceof Replicate) {
+            code[at++] = REPLICATE;
+        }
+        else if(term instanceof Tau) {
+            code[at++] = TAU;
+        }
+        else if(term instanceof Abstraction) {
+            code[at++] = ABSTRACTION;
+            code[at++] = ((Abstraction) term).name();
+        }
+        else if(term instanceof Application) {
+            code[at++] = APPLICATION;
+        }
+        else if(term instanceof Variable) {
+            code[at++] = VARIABLE;
+            code[at++] = ((Variable) term).name();
+        }
+        else {
+            throw new IllegalArgumentException("Non-standard Term found in " +
+                    "program");
+        }
+        return at;
+    }
+
+    /*
+     * Collect the given number of PiTerms from the top of the stack, in the
+     * order they were pushed.
+     */
+    private static ArrayList<PiTerm> popPiTerms(Term[] stack, int top,
+            int count) {
+
+        ArrayList<PiTerm> terms = new ArrayList<>(count);
+        for(int i = top - count; i < top; i++) {
+            terms.add((PiTerm) stack[i]);
+        }
+        return terms;
+    }
+
+    private static void addName(int name, IntSet names) {
+        if(name >= 0) { names.add(name); }
+    }
+}
@@ -0,0 +1,73 @@
+package syntax;
+
+import java.util.Arrays;
+
+/**
+ * A stack of Terms, each paired with an int, used by the traversals of Terms
+ * in place of the call stack. What the int means is up to the traversal -
+ * usually the index of the next child to visit, or a binder depth. The two are
+ * kept in parallel arrays so that pushing allocates nothing in the common
+ * case.
+ */
+final class TermStack {
+
+    private Term[] terms;
+    private int[] values;
+    private int size;
+
+    /**
+     * Construct a new, empty TermStack.
+     */
+    TermStack() {
+        this.terms = new Term[4];
+        this.values = new int[4];
+        this.size = 0;
+    }
+
+    /**
+     * Determine if this TermStack is empty.
+     * @return true if there are no Terms on the stack, false otherwise
+     */
+    boolean isEmpty() { return this.size == 0; }
+
+    /**
+     * Push a Term and its value onto the stack.
+     * @param term the Term to push
+     * @param value the value to pair with it
+     */
+    void push(Term term, int value) {
+        if(this.size == this.terms.length) {
+            this.terms = Arrays.copyOf(this.terms, this.size * 2);
+            this.values = Arrays.copyOf(this.values, this.size * 2);
+        }
+        this.terms[this.size] = term;
+        this.values[this.size] = value;
+        this.size++;
+    }
+
+    /**
+     * Access the Term on top of the stack.
+     * @return the top Term
+     */
+    Term term() { return this.terms[this.size - 1]; }
+
+    /**
+     * Access the value paired with the Term on top of the stack.
+     * @return the top value
+     */
+    int value() { return this.values[this.size - 1]; }
+
+    /**
+     * Replace the value paired with the Term on top of the stack.
+     * @param value the new value
+     */
+    void setValue(int value) { this.values[this.size - 1] = value; }
+
+    /**
+     * Remove the top Term and its value from the stack.
+     */
+    void pop() {
+        this.size--;
+        this.terms[this.size] = null;
+    }
+}
@@ -1,7 +1,7 @@
 package syntax;
 
-import java.util.HashSet;
-import java.util.HashMap;
+import utils.IntSet;
+import java.util.ArrayList;
 
 /**
  * Represents lambda calculus variables.
@@ -25,70 +25,81 @@ public final class Variable extends LambdaTerm {
     public Integer name() { return this.name; }
 
     /**
-     * Enumerate the free variable names in this Variable (which will always be
-     * this Variable name only).
-     * @return a HashSet of the free variable names of this Variable
+     * A Variable has no children.
+     * @return 0
      */
-    public HashSet<Integer> freeVars() {
-        HashSet<Integer> fv = new HashSet<Integer>();
-        fv.add(this.name);
-        return fv;
-    }
+    public int childCount() { return 0; }
 
     /**
-     * Enumerate all the variable names bound in this Variable (always none).
-     * @return A HashSet of all variable names bound in this Variable
+     * A Variable has no children.
+     * @param index ignored
+     * @return never returns
      */
-    public HashSet<Integer> binders() { return new HashSet<Integer>(); }
+    public Term child(int index) {
+        throw new IllegalArgumentException("Variable has no children");
+    }
 
     /**
-     * Obtain a String representation of this Variable.
-     * @return a String representation of this Variable
+     * A Variable has no children.
+     * @param index ignored
+     * @param child ignored
      */
-    public String toString() { return this.name.toString(); }
+    public void setChild(int index, Term child) {
+        throw new IllegalArgumentException("Variable has no children");
+    }
 
     /**
-     * Obtain a String representation of this Variable, using a different type
-     * for names.
-     * @param nameMap map from T names to U names
-     * @return a String representation of this Variable, printing the Object
-     * mapped to in nameMap by the Variable name
+     * Access the name of this Variable.
+     * @return the name of this Variable
      */
-    public String toStringWithNameMap(HashMap<Integer, String> nameMap) {
-        return nameMap.get(this.name).toString();
-    }
+    Integer ownName() { return this.name; }
 
     /**
-     * Copy this Variable.
-     * @return a copy of this Variable
+     * Rename this Variable.
+     * @param name the new name
      */
-    public Variable copy() { return new Variable(this.name); }
+    void setOwnName(Integer name) { this.name = name; }
 
     /**
-     * Carelessly rename every occurence of a specific variable name within this
-     * Variable.
-     * @param from rename the stored variable name if it matches this name
-     * @param to if renaming the stored variable, rename it to this value
+     * Obtain the value that this Variable refers to, if any, or otherwise
+     * this Variable with its name adjusted for the removed binders.
+     * @param depth the number of binders between this Variable and the body of
+     * the innermost instantiated binder
+     * @param values the values to instantiate the binders with
+     * @param level unused, as a Variable has no children
+     * @return the instantiated Variable
      */
-    public void blindRename(Integer from, Integer to) {
-        if(this.name.equals(from)) { this.name = to; }
+    LambdaTerm instantiate(int depth, ArrayList<LambdaTerm> values,
+            int level) {
+
+        int value = Term.valueIndex(this.name, depth, values.size());
+        if(value >= 0) { return values.get(value); }
+        Integer name = Term.shift(this.name, depth, values.size());
+        return name.equals(this.name) ? this : new Variable(name);
     }
 
     /**
-     * Rename every free occurence of a specific variable name within this
-     * Variable.
-     * @param from rename the stored variable name if it matches this name
-     * @param to if renaming the stored variable, rename it to this value
+     * Add the String printed for this Variable to parts.
+     * @param names the NameScope in which this Variable is printed
+     * @param parts the list to add to
      */
-    public void renameFree(Integer from, Integer to) {
-        if(this.name.equals(from)) { this.name = to; }
+    void addParts(NameScope names, ArrayList<Object> parts) {
+        parts.add(names.name(this.name));
     }
 
     /**
-     * Rename all bound occurences of the given name within this Variable (i.e.
-     * do nothing).
-     * @param from rename variable names of this value
-     * @param to those variable names being renamed are renamed to this value
+     * Copy this Variable.
+     * @return a copy of this Variable
      */
-    public void renameNonFree(Integer from, Integer to) {}
+    public Variable copy() { return new Variable(this.name); }
+
+    /**
+     * Add the free names of this Variable to the given set.
+     * @param names the set to add to
+     * @param depth the depth of this Variable within the Term being searched
+     */
+    void addFreeNames(IntSet names, int depth) {
+        this.addOwnName(names);
+    }
+
 }
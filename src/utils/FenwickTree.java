@@ -0,0 +1,108 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * A Fenwick tree (binary indexed tree) of non-negative long weights. Supports
+ * updating the weight at an index, and finding the index at which a running
+ * total of weights is reached, both in logarithmic time. This makes it
+ * suitable for choosing an index at random with probability proportional to
+ * its weight.
+ */
+public final class FenwickTree {
+
+    // One-based tree of partial sums. tree[0] is unused.
+    private long[] tree;
+
+    // The weight at each (zero-based) index, kept so that set() can compute
+    // the required delta.
+    private long[] weights;
+
+    private long total;
+
+    /**
+     * Construct a new FenwickTree with all weights set to zero.
+     * @param capacity the number of indices initially available
+     */
+    public FenwickTree(int capacity) {
+        this.tree = new long[Math.max(capacity, 1) + 1];
+        this.weights = new long[Math.max(capacity, 1)];
+        this.total = 0;
+    }
+
+    /**
+     * Access the weight at the given index.
+     * @param index the index to look up
+     * @return the weight at the given index
+     */
+    public long get(int index) {
+        return index < this.weights.length ? this.weights[index] : 0;
+    }
+
+    /**
+     * Access the sum of all weights in the tree.
+     * @return the sum of all weights
+     */
+    public long total() { return this.total; }
+
+    /**
+     * Set the weight at the given index, growing the tree if necessary.
+     * @param index the index to set
+     * @param weight the new weight, which must not be negative
+     */
+    public void set(int index, long weight) {
+        if(weight < 0) {
+            throw new IllegalArgumentException("FenwickTree weights must not " +
+                    "be negative");
+        }
+        this.ensureCapacity(index + 1);
+        long delta = weight - this.weights[index];
+        if(delta == 0) { return; }
+        this.weights[index] = weight;
+        this.total += delta;
+        for(int i = index + 1; i < this.tree.length; i += i & (-i)) {
+            this.tree[i] += delta;
+        }
+    }
+
+    /**
+     * Find the index whose weight covers the given position in the running
+     * total, i.e. the smallest index i such that the sum of the weights at
+     * indices 0 to i inclusive is greater than target.
+     * @param target a value in the range [0, total())
+     * @return the index covering the target position
+     */
+    public int find(long target) {
+        if(target < 0 || target >= this.total) {
+            throw new IllegalArgumentException("FenwickTree.find(): target " +
+                    "out of range");
+        }
+        int pos = 0;
+        for(int step = Integer.highestOneBit(this.tree.length - 1); step > 0;
+                step >>= 1) {
+
+            int next = pos + step;
+            if(next < this.tree.length && this.tree[next] <= target) {
+                pos = next;
+                target -= this.tree[next];
+            }
+        }
+        return pos;
+    }
+
+    /*
+     * Grow the tree so that it can hold at least the given number of indices.
+     * The partial sums are rebuilt from the stored weights.
+     */
+    private void ensureCapacity(int capacity) {
+        if(capacity <= this.weights.length) { return; }
+        int newCapacity = Math.max(capacity, this.weights.length * 2);
+        this.weights = Arrays.copyOf(this.weights, newCapacity);
+        this.tree = new long[newCapacity + 1];
+        for(int i = 1; i < this.tree.length; i++) {
+            this.tree[i] += this.weights[i - 1];
+            int parent = i + (i & (-i));
+            if(parent < this.tree.length) { this.tree[parent] += this.tree[i]; }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * A map from ints to values, storing its keys without boxing. The entries are
+ * kept in dense arrays in the order they were added, and found through an
+ * open-addressing hash table with linear probing, as in IntSet. Entries cannot
+ * be removed, as the maps this serves only ever grow.
+ */
+public final class IntMap<V> {
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    // The position of each entry plus one, at the slot its key hashes to or
+    // the first free slot after it, or 0 for an empty slot. Never more than
+    // half full.
+    private int[] table;
+
+    /**
+     * Construct a new, empty IntMap.
+     */
+    public IntMap() {
+        this.keys = new int[4];
+        this.values = new Object[4];
+        this.size = 0;
+        this.table = new int[8];
+    }
+
+    /**
+     * Look up the value for a key.
+     * @param key the key to look up
+     * @return the value for the key, or null if it has none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int index = this.table[this.slot(key)] - 1;
+        return index < 0 ? null : (V) this.values[index];
+    }
+
+    /**
+     * Give a key a value, replacing any value it had.
+     * @param key the key
+     * @param value the value for the key
+     * @return the previous value for the key, or null if it had none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int slot = this.slot(key);
+        int index = this.table[slot] - 1;
+        if(index >= 0) {
+            V previous = (V) this.values[index];
+            this.values[index] = value;
+            return previous;
+        }
+        if(this.size == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+            this.values = Arrays.copyOf(this.values, 2 * this.size);
+        }
+        this.keys[this.size] = key;
+        this.values[this.size] = value;
+        this.table[slot] = ++this.size;
+        if(2 * this.size > this.table.length) { this.rehash(); }
+        return null;
+    }
+
+    /**
+     * Determine if a key has a value.
+     * @param key the key to look for
+     * @return true if the key has a value, false otherwise
+     */
+    public boolean containsKey(int key) {
+        return this.table[this.slot(key)] != 0;
+    }
+
+    /**
+     * Determine the number of entries in this map.
+     * @return the number of keys with values
+     */
+    public int size() { return this.size; }
+
+    /*
+     * Find the slot holding the given key, or the empty slot where it would
+     * go.
+     */
+    private int slot(int key) {
+        int mask = this.table.length - 1;
+        int slot = IntSet.hash(key) & mask;
+        while(this.table[slot] != 0 && this.keys[this.table[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /*
+     * Double the size of the table, and put every entry back in it.
+     */
+    private void rehash() {
+        this.table = new int[2 * this.table.length];
+        for(int i = 0; i < this.size; i++) {
+            this.table[this.slot(this.keys[i])] = i + 1;
+        }
+    }
+}
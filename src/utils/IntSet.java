@@ -0,0 +1,169 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of ints, stored without boxing. The members are kept in a dense
+ * array in the order they were added, and found through an open-addressing
+ * hash table with linear probing that holds their positions in that array.
+ * Adding, removing and testing membership take expected constant time, and
+ * iterating over the members allocates nothing. Removing a member moves the
+ * last member into its place.
+ */
+public final class IntSet {
+
+    private int[] members;
+    private int size;
+
+    // The position of each member plus one, at the slot it hashes to or the
+    // first free slot after it, or 0 for an empty slot. Never more than half
+    // full.
+    private int[] table;
+
+    /**
+     * Construct a new, empty IntSet.
+     */
+    public IntSet() {
+        this.members = new int[4];
+        this.size = 0;
+        this.table = new int[8];
+    }
+
+    /**
+     * Add an int to this set.
+     * @param value the int to add
+     * @return true if the int was added, false if it was already a member
+     */
+    public boolean add(int value) {
+        int slot = this.slot(value);
+        if(this.table[slot] != 0) { return false; }
+        if(this.size == this.members.length) {
+            this.members = Arrays.copyOf(this.members, 2 * this.size);
+        }
+        this.members[this.size] = value;
+        this.table[slot] = ++this.size;
+        if(2 * this.size > this.table.length) { this.rehash(); }
+        return true;
+    }
+
+    /**
+     * Determine if an int is a member of this set.
+     * @param value the int to look for
+     * @return true if the int is a member, false otherwise
+     */
+    public boolean contains(int value) {
+        return this.table[this.slot(value)] != 0;
+    }
+
+    /**
+     * Remove an int from this set.
+     * @param value the int to remove
+     * @return true if the int was a member, false otherwise
+     */
+    public boolean remove(int value) {
+        int slot = this.slot(value);
+        int index = this.table[slot] - 1;
+        if(index < 0) { return false; }
+
+        // Close the gap in the table, moving back any later entry of the
+        // same run that could not otherwise be found
+        int mask = this.table.length - 1;
+        int gap = slot;
+        for(int next = (gap + 1) & mask; this.table[next] != 0;
+                next = (next + 1) & mask) {
+            int home = IntSet.hash(this.members[this.table[next] - 1]) & mask;
+            if(((next - home) & mask) >= ((next - gap) & mask)) {
+                this.table[gap] = this.table[next];
+                gap = next;
+            }
+        }
+        this.table[gap] = 0;
+
+        // Move the last member into the removed member's position
+        int last = this.members[--this.size];
+        if(index != this.size) {
+            this.table[this.slot(last)] = index + 1;
+            this.members[index] = last;
+        }
+        return true;
+    }
+
+    /**
+     * Access the member at the given position, in the order in which the
+     * members were added, so far as removals allow.
+     * @param index the position, below size()
+     * @return the member at that position
+     */
+    public int get(int index) {
+        if(index >= this.size) {
+            throw new IndexOutOfBoundsException("Index " + index +
+                    " out of bounds for IntSet of size " + this.size);
+        }
+        return this.members[index];
+    }
+
+    /**
+     * Perform an action for each member of this set, in the order of get().
+     * The set must not be modified meanwhile.
+     * @param action the action to perform
+     */
+    public void forEach(IntConsumer action) {
+        for(int i = 0; i < this.size; i++) { action.accept(this.members[i]); }
+    }
+
+    /**
+     * Determine the number of members of this set.
+     * @return the number of members
+     */
+    public int size() { return this.size; }
+
+    /**
+     * Determine if this set has no members.
+     * @return true if the set is empty, false otherwise
+     */
+    public boolean isEmpty() { return this.size == 0; }
+
+    /**
+     * Remove every member of this set, keeping its capacity for reuse.
+     */
+    public void clear() {
+        Arrays.fill(this.table, 0);
+        this.size = 0;
+    }
+
+    /**
+     * Spread the bits of an int, so that runs of consecutive values, such as
+     * names, do not fill runs of consecutive slots.
+     * @param value the int to hash
+     * @return the hash of the int
+     */
+    static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /*
+     * Find the slot holding the given value, or the empty slot where it
+     * would go.
+     */
+    private int slot(int value) {
+        int mask = this.table.length - 1;
+        int slot = IntSet.hash(value) & mask;
+        while(this.table[slot] != 0 &&
+                this.members[this.table[slot] - 1] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /*
+     * Double the size of the table, and put every member back in it.
+     */
+    private void rehash() {
+        this.table = new int[2 * this.table.length];
+        for(int i = 0; i < this.size; i++) {
+            this.table[this.slot(this.members[i])] = i + 1;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Interns the names of a program, numbering them 0, 1, 2... in the order they
+ * are first seen. Names are found through an open-addressing hash table with
+ * linear probing, as in IntMap, but keyed by characters: a name can be looked
+ * up straight from a range of a char array, such as the Lexer's buffer, and a
+ * String is only made for it the first time it is seen. The Strings are kept
+ * in a dense array, so finding the name for a number is an array access.
+ *
+ * A SymbolTable only ever grows. Once it is no longer added to it may be read
+ * from any number of threads at once.
+ */
+public final class SymbolTable {
+
+    private String[] names;
+    private int[] hashes;
+    private int size;
+
+    // The number of each name plus one, at the slot its hash falls in or the
+    // first free slot after it, or 0 for an empty slot. Never more than half
+    // full.
+    private int[] table;
+
+    /**
+     * Construct a new, empty SymbolTable.
+     */
+    public SymbolTable() {
+        this.names = new String[8];
+        this.hashes = new int[8];
+        this.size = 0;
+        this.table = new int[16];
+    }
+
+    /**
+     * Find the number of the name made up of a range of chars, numbering it
+     * if it has not been seen before.
+     * @param chars the array holding the name
+     * @param start the index of the first char of the name
+     * @param length the number of chars in the name
+     * @return the number of the name
+     */
+    public int intern(char[] chars, int start, int length) {
+        int hash = 0;
+        for(int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = this.table.length - 1;
+        int slot = IntSet.hash(hash) & mask;
+        while(this.table[slot] != 0) {
+            int symbol = this.table[slot] - 1;
+            if(this.hashes[symbol] == hash &&
+                    SymbolTable.equal(this.names[symbol], chars, start,
+                    length)) {
+
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return this.add(slot, new String(chars, start, length), hash);
+    }
+
+    /**
+     * Find the number of a name, numbering it if it has not been seen before.
+     * @param name the name
+     * @return the number of the name
+     */
+    public int intern(String name) {
+        int slot = this.slot(name);
+        if(this.table[slot] != 0) { return this.table[slot] - 1; }
+        return this.add(slot, name, name.hashCode());
+    }
+
+    /**
+     * Find the number of a name without numbering it.
+     * @param name the name
+     * @return the number of the name, or -1 if it has not been seen
+     */
+    public int lookup(String name) {
+        return this.table[this.slot(name)] - 1;
+    }
+
+    /**
+     * Find the name with a given number.
+     * @param symbol the number of the name
+     * @return the name with that number
+     */
+    public String name(int symbol) {
+        if(symbol < 0 || symbol >= this.size) {
+            throw new IllegalArgumentException("No name is numbered " + symbol);
+        }
+        return this.names[symbol];
+    }
+
+    /**
+     * Determine the number of names in this table, which is also the number
+     * the next new name will be given.
+     * @return the number of names
+     */
+    public int size() { return this.size; }
+
+    /*
+     * Find the slot holding the given name, or the empty slot where it would
+     * go. A name's hash is the same as that of its String.
+     */
+    private int slot(String name) {
+        int hash = name.hashCode();
+        int mask = this.table.length - 1;
+        int slot = IntSet.hash(hash) & mask;
+        while(this.table[slot] != 0) {
+            int symbol = this.table[slot] - 1;
+            if(this.hashes[symbol] == hash && this.names[symbol].equals(name)) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /*
+     * Number a new name, putting it in the given empty slot.
+     */
+    private int add(int slot, String name, int hash) {
+        if(this.size == this.names.length) {
+            this.names = Arrays.copyOf(this.names, 2 * this.size);
+            this.hashes = Arrays.copyOf(this.hashes, 2 * this.size);
+        }
+        int symbol = this.size;
+        this.names[symbol] = name;
+        this.hashes[symbol] = hash;
+        this.table[slot] = ++this.size;
+        if(2 * this.size > this.table.length) { this.rehash(); }
+        return symbol;
+    }
+
+    /*
+     * Double the size of the table, and put every name back in it.
+     */
+    private void rehash() {
+        this.table = new int[2 * this.table.length];
+        int mask = this.table.length - 1;
+        for(int i = 0; i < this.size; i++) {
+            int slot = IntSet.hash(this.hashes[i]) & mask;
+            while(this.table[slot] != 0) { slot = (slot + 1) & mask; }
+            this.table[slot] = i + 1;
+        }
+    }
+
+    private static boolean equal(String name, char[] chars, int start,
+            int length) {
+
+        if(name.length() != length) { return false; }
+        for(int i = 0; i < length; i++) {
+            if(name.charAt(i) != chars[start + i]) { return false; }
+        }
+        return true;
+    }
+}
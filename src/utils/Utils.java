@@ -22,11 +22,43 @@ public final class Utils {
      * @return an arbitrary element of the given list
      */
     public static <E> E arbitraryElement(ArrayList<E> list) {
+        return Utils.arbitraryElement(Utils.rand, list);
+    }
+
+    /**
+     * Retrieve an arbitrary element from an ArrayList, using the given source
+     * of random numbers.
+     * @param random the source of random numbers
+     * @param list the ArrayList to use
+     * @return an arbitrary element of the given list
+     */
+    public static <E> E arbitraryElement(Random random, ArrayList<E> list) {
         if(list.isEmpty()) {
             throw new IllegalArgumentException("Utils.arbitraryElement(): " +
                     "cannot retrieve an element from an empty list");
         }
-        return list.get(Utils.rand.nextInt(list.size()));
+        return list.get(random.nextInt(list.size()));
+    }
+
+    /**
+     * Retrieve an arbitrary long in the range [0, bound), using the given
+     * source of random numbers.
+     * @param random the source of random numbers
+     * @param bound the exclusive upper bound, which must be positive
+     * @return an arbitrary long at least zero and less than bound
+     */
+    public static long arbitraryLong(Random random, long bound) {
+        if(bound <= 0) {
+            throw new IllegalArgumentException("Utils.arbitraryLong(): " +
+                    "bound must be positive");
+        }
+        // Reject the top partial range of longs so that the result is uniform
+        long bits, value;
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        } while(bits - value + (bound - 1) < 0);
+        return value;
     }
 
     /**